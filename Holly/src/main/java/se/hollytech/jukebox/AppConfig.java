@@ -1,13 +1,276 @@
 package se.hollytech.jukebox;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import se.hollytech.jukebox.batch.MicroBatchProperties;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.cache.PersistentCacheProperties;
+import se.hollytech.jukebox.controller.UpstreamFanOutInterceptor;
+import se.hollytech.jukebox.http.HttpClientPoolMetrics;
+import se.hollytech.jukebox.http.HttpClientProperties;
+import se.hollytech.jukebox.http.UpstreamClientHttpConnector;
+import se.hollytech.jukebox.http.UpstreamClientHttpRequestFactory;
+import se.hollytech.jukebox.http.UpstreamHedgeMetrics;
+import se.hollytech.jukebox.http.UpstreamHedging;
+import se.hollytech.jukebox.http.UpstreamRequestMetrics;
+import se.hollytech.jukebox.http.UpstreamResponseCache;
+import se.hollytech.jukebox.http.UpstreamResponseCacheMetrics;
+import se.hollytech.jukebox.http.UpstreamThrottleFilter;
+import se.hollytech.jukebox.http.UpstreamThrottleInterceptor;
+import se.hollytech.jukebox.http.UpstreamThrottleMetrics;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.service.CacheLoadMetrics;
+import se.hollytech.jukebox.service.JukeboxService;
+import se.hollytech.jukebox.warmup.CacheWarmer;
+import se.hollytech.jukebox.warmup.CacheWarmupHealthIndicator;
+import se.hollytech.jukebox.warmup.CacheWarmupMetrics;
+import se.hollytech.jukebox.warmup.WarmupProperties;
+
+import java.util.List;
+import java.util.concurrent.Executor;
 
 @Configuration
+@EnableConfigurationProperties({HttpClientProperties.class, JukeboxCacheProperties.class, PersistentCacheProperties.class,
+        WarmupProperties.class, MicroBatchProperties.class})
 public class AppConfig {
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public UpstreamClientHttpRequestFactory upstreamClientHttpRequestFactory(HttpClientProperties properties,
+                                                                             Environment environment) throws Exception {
+        return new UpstreamClientHttpRequestFactory(properties, Threading.VIRTUAL.isActive(environment));
+    }
+
+    @Bean
+    public HttpClientPoolMetrics httpClientPoolMetrics(UpstreamClientHttpRequestFactory requestFactory) {
+        return new HttpClientPoolMetrics(requestFactory);
+    }
+
+    /**
+     * Adaptive rate limits per upstream host, shared by every outbound client.
+     */
+    @Bean
+    public UpstreamThrottles upstreamThrottles(HttpClientProperties properties) {
+        return new UpstreamThrottles(properties);
+    }
+
+    @Bean
+    public UpstreamThrottleMetrics upstreamThrottleMetrics(UpstreamThrottles throttles) {
+        return new UpstreamThrottleMetrics(throttles);
+    }
+
+    /**
+     * Hedges slow lookups to the upstreams under {@code jukebox.http.hedge.upstreams}, within their throttles.
+     */
+    @Bean
+    public UpstreamHedging upstreamHedging(HttpClientProperties properties, UpstreamThrottles throttles,
+                                           Environment environment) {
+        return new UpstreamHedging(properties, throttles, Threading.VIRTUAL.isActive(environment));
+    }
+
+    @Bean
+    public UpstreamHedgeMetrics upstreamHedgeMetrics(UpstreamHedging hedging) {
+        return new UpstreamHedgeMetrics(hedging);
+    }
+
+    /**
+     * HTTP cache of upstream GET responses, consulted before the throttles so a fresh response takes no permit.
+     */
+    @Bean
+    public UpstreamResponseCache upstreamResponseCache(HttpClientProperties properties, UpstreamThrottles throttles) {
+        return new UpstreamResponseCache(properties.getCache(), throttles);
+    }
+
+    @Bean
+    public UpstreamResponseCacheMetrics upstreamResponseCacheMetrics(UpstreamResponseCache cache) {
+        return new UpstreamResponseCacheMetrics(cache);
+    }
+
+    /**
+     * Latency and outcome of the requests that reach the upstreams, last in line after the cache and throttles.
+     */
+    @Bean
+    public UpstreamRequestMetrics upstreamRequestMetrics(UpstreamThrottles throttles, MeterRegistry registry) {
+        return new UpstreamRequestMetrics(throttles, registry);
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, UpstreamClientHttpRequestFactory requestFactory,
+                                     UpstreamResponseCache responseCache, UpstreamThrottles throttles,
+                                     UpstreamRequestMetrics requestMetrics) {
+        return builder.requestFactory(() -> requestFactory)
+                .additionalInterceptors(responseCache, new UpstreamThrottleInterceptor(throttles), requestMetrics)
+                .build();
+    }
+
+    /**
+     * Non-blocking client for {@code jukebox.service.mode=reactive}, on the same connection pools and
+     * throttles as {@link #restTemplate}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "jukebox.service.mode", havingValue = "reactive")
+    public WebClient upstreamWebClient(WebClient.Builder builder, UpstreamClientHttpRequestFactory requestFactory,
+                                       UpstreamThrottles throttles, UpstreamRequestMetrics requestMetrics) {
+        return builder.clientConnector(new UpstreamClientHttpConnector(requestFactory))
+                .filter(new UpstreamThrottleFilter(throttles))
+                .filter(requestMetrics)
+                .build();
+    }
+
+    /**
+     * Bounded pool used to fan out independent upstream calls (e.g. one Cover Art Archive
+     * lookup per album). The pool size caps how many of those calls are in flight at once.
+     * With virtual threads each call gets its own virtual thread, under the same cap.
+     */
+    @Bean
+    public Executor upstreamExecutor(@Value("${jukebox.upstream.max-concurrency:8}") int maxConcurrency,
+                                     Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new BoundedVirtualThreadExecutor("upstream-", maxConcurrency);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setThreadNamePrefix("upstream-");
+        return executor;
+    }
+
+    /**
+     * Runs background refreshes of stale artist cache entries, off the request threads.
+     */
+    @Bean
+    public Executor cacheRefreshExecutor(@Value("${jukebox.cache.refresh-threads:2}") int refreshThreads,
+                                         Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new BoundedVirtualThreadExecutor("cache-refresh-", refreshThreads);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(refreshThreads);
+        executor.setMaxPoolSize(refreshThreads);
+        executor.setThreadNamePrefix("cache-refresh-");
+        return executor;
+    }
+
+    @Bean
+    public CacheWarmer cacheWarmer(JukeboxService jukeboxService, WarmupProperties properties, UpstreamThrottles throttles) {
+        return new CacheWarmer(jukeboxService, properties, throttles);
+    }
+
+    @Bean
+    public CacheWarmupHealthIndicator cacheWarmupHealthIndicator(CacheWarmer cacheWarmer, WarmupProperties properties) {
+        return new CacheWarmupHealthIndicator(cacheWarmer, properties);
+    }
+
+    @Bean
+    public CacheWarmupMetrics cacheWarmupMetrics(CacheWarmer cacheWarmer) {
+        return new CacheWarmupMetrics(cacheWarmer);
+    }
+
+    /**
+     * Second cache tier behind the Caffeine caches, kept on local disk so restarts do not start cold.
+     */
+    @Bean
+    public PersistentCacheManager persistentCacheManager(PersistentCacheProperties properties) {
+        return new PersistentCacheManager(properties);
+    }
+
+    /**
+     * Collects concurrent Wikipedia and Wikidata lookups into multi-title requests, sent on the upstream
+     * executor like the other upstream calls.
+     */
+    @Bean
+    public MicroBatchScheduler microBatchScheduler(MicroBatchProperties properties, Environment environment,
+                                                   @Qualifier("upstreamExecutor") Executor upstreamExecutor) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new MicroBatchScheduler(properties, Thread.ofVirtual().name("micro-batch-", 1).factory(), upstreamExecutor);
+        }
+        return new MicroBatchScheduler(properties, upstreamExecutor);
+    }
+
+    @Bean
+    public CacheManager cacheManager(JukeboxCacheProperties properties,
+                                     ObjectProvider<JukeboxService> jukeboxService,
+                                     RateLimiterRegistry rateLimiterRegistry,
+                                     @Qualifier("cacheRefreshExecutor") Executor cacheRefreshExecutor) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Artist entries are served stale after the soft TTL while a rate-limited background refresh replaces
+        // them; the hard TTL bounds how old a served entry can get when refreshes keep failing, and partial
+        // details expire after the much shorter partial TTL
+        RateLimiter refreshRateLimiter = rateLimiterRegistry.rateLimiter("cacheRefresh");
+        cacheManager.registerCustomCache("artistLookupCache", artistCacheBuilder(properties, cacheRefreshExecutor)
+                .build(new RateLimitedRefreshLoader("artistLookupCache",
+                        name -> jukeboxService.getObject().loadArtistMbid(name), refreshRateLimiter)));
+        cacheManager.registerCustomCache("artistDetailsCache", artistCacheBuilder(properties, cacheRefreshExecutor)
+                .build(new RateLimitedRefreshLoader("artistDetailsCache",
+                        mbid -> jukeboxService.getObject().loadArtistDetails(mbid), refreshRateLimiter)));
+        // Release-group cover art rarely changes and is shared between artists, so it outlives the artist entries
+        cacheManager.registerCustomCache("coverArtCache", Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCoverArt().getTtl())
+                .maximumWeight(properties.getCoverArt().getMaximumMemory().toBytes())
+                .weigher(new CacheEntryWeigher())
+                .recordStats()
+                .build());
+        // Negative entries (unknown artists, missing covers and descriptions) live in their own short-lived
+        // caches, so they expire independently and their hits and misses are reported separately
+        for (String name : List.of("artistNotFoundCache", "missingCoverArtCache", "missingDescriptionCache")) {
+            cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                    .expireAfterWrite(properties.getNegative().getTtl())
+                    .maximumWeight(properties.getNegative().getMaximumMemory().toBytes())
+                    .weigher(new CacheEntryWeigher())
+                    .recordStats()
+                    .build());
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public CacheMemoryMetrics cacheMemoryMetrics(CacheManager cacheManager) {
+        return new CacheMemoryMetrics(cacheManager);
+    }
+
+    @Bean
+    public CacheLoadMetrics cacheLoadMetrics(MeterRegistry registry) {
+        return new CacheLoadMetrics(registry);
+    }
+
+    /**
+     * Counts the upstream requests behind each artist API request, see {@link UpstreamFanOutInterceptor}.
+     */
+    @Bean
+    public WebMvcConfigurer upstreamFanOutConfigurer(MeterRegistry registry) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry interceptors) {
+                interceptors.addInterceptor(new UpstreamFanOutInterceptor(registry)).addPathPatterns("/api/artist/**");
+            }
+        };
+    }
+
+    private static Caffeine<Object, Object> artistCacheBuilder(JukeboxCacheProperties properties, Executor refreshExecutor) {
+        return Caffeine.newBuilder()
+                .refreshAfterWrite(properties.getArtist().getSoftTtl())
+                .expireAfter(new ArtistCacheExpiry(properties.getArtist().getHardTtl(), properties.getArtist().getPartialTtl()))
+                .maximumWeight(properties.getArtist().getMaximumMemory().toBytes())
+                .weigher(new CacheEntryWeigher())
+                .executor(refreshExecutor)
+                .recordStats();
     }
 }
@@ -0,0 +1,36 @@
+package se.hollytech.jukebox;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import se.hollytech.jukebox.model.Artist;
+
+import java.time.Duration;
+
+/**
+ * Expires artist cache entries {@code hardTtl} after they were written, or {@code partialTtl} after if they
+ * hold partial artist details, so that those are loaded again soon and completed. Reads do not extend an entry.
+ */
+class ArtistCacheExpiry implements Expiry<Object, Object> {
+
+    private final long hardTtlNanos;
+    private final long partialTtlNanos;
+
+    ArtistCacheExpiry(Duration hardTtl, Duration partialTtl) {
+        this.hardTtlNanos = hardTtl.toNanos();
+        this.partialTtlNanos = partialTtl.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return value instanceof Artist artist && artist.partial() ? partialTtlNanos : hardTtlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
@@ -0,0 +1,79 @@
+package se.hollytech.jukebox;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+
+import java.util.List;
+
+/**
+ * Weighs cache entries by their estimated heap size in bytes, so that the caches are bounded by memory rather
+ * than entry count: an artist with a long description and a full discography weighs as much as hundreds of
+ * lookups. The estimate assumes a 64-bit JVM with compressed references and compact strings. A deflated
+ * description is counted at its deflated size. Strings shared with other entries, such as cover art URLs, are
+ * counted in full in each entry.
+ */
+class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    // Caffeine's node for an entry with expiry, refresh and weight, plus its hash table slot
+    static final int ENTRY_OVERHEAD = 80;
+    private static final int OBJECT_HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int STRING = 24;
+    private static final int ARRAY_HEADER = 16;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + estimate(key) + estimate(value));
+    }
+
+    /**
+     * The estimated bytes of a cached key or value, including the objects it references. Shared constants
+     * such as {@link Boolean#TRUE} weigh nothing.
+     */
+    static long estimate(Object value) {
+        if (value instanceof String string) {
+            return estimate(string);
+        }
+        if (value instanceof Artist artist) {
+            int deflated = artist.deflatedDescriptionLength();
+            long bytes = align(OBJECT_HEADER + 4 * REFERENCE + Integer.BYTES + 1) + estimate(artist.name())
+                    + (deflated >= 0 ? align(ARRAY_HEADER + deflated) : estimate(artist.description()))
+                    + estimate(artist.mbid());
+            List<Album> albums = artist.albums();
+            if (albums != null) {
+                bytes += align(OBJECT_HEADER + 4) + align(ARRAY_HEADER + (long) albums.size() * REFERENCE);
+                for (Album album : albums) {
+                    bytes += align(OBJECT_HEADER + 3 * REFERENCE) + estimate(album.title()) + estimate(album.id())
+                            + estimate(album.image());
+                }
+            }
+            return bytes;
+        }
+        if (value instanceof ArtistLookup lookup) {
+            return align(OBJECT_HEADER + 2 * REFERENCE) + estimate(lookup.name()) + estimate(lookup.mbid());
+        }
+        return 0;
+    }
+
+    private static long estimate(String string) {
+        if (string == null) {
+            return 0;
+        }
+        int length = string.length();
+        // Compact strings keep one byte per character unless a character is outside Latin-1
+        int bytesPerChar = 1;
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING + align(ARRAY_HEADER + (long) length * bytesPerChar);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,56 @@
+package se.hollytech.jukebox;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * Publishes the number of entries and their estimated bytes, as weighed by {@link CacheEntryWeigher}, of every
+ * in-memory cache as {@code jukebox.cache.entries} and {@code jukebox.cache.size} gauges, tagged by cache.
+ */
+public class CacheMemoryMetrics implements MeterBinder {
+
+    private final CacheManager cacheManager;
+
+    public CacheMemoryMetrics(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String name : cacheManager.getCacheNames()) {
+            if (!(cacheManager.getCache(name) instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            Cache<Object, Object> cache = caffeineCache.getNativeCache();
+            Gauge.builder("jukebox.cache.entries", cache, CacheMemoryMetrics::entries)
+                    .description("Entries in the cache")
+                    .tag("cache", name)
+                    .register(registry);
+            Gauge.builder("jukebox.cache.size", cache, CacheMemoryMetrics::weightedSize)
+                    .description("Estimated bytes taken by the cache's keys and values")
+                    .baseUnit("bytes")
+                    .tag("cache", name)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Entries in {@code cache}, with pending writes applied first.
+     */
+    static long entries(Cache<?, ?> cache) {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Estimated bytes in {@code cache}, with pending writes applied first; zero if it is not weighed.
+     */
+    static long weightedSize(Cache<?, ?> cache) {
+        cache.cleanUp();
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+}
@@ -0,0 +1,101 @@
+package se.hollytech.jukebox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Cache sizing and expiry, bound from {@code jukebox.cache.*}. Each in-memory cache is bounded by
+ * {@code maximumMemory}, the estimated heap size of its keys and values, rather than by entry count.
+ */
+@ConfigurationProperties(prefix = "jukebox.cache")
+public class JukeboxCacheProperties {
+
+    private final Artist artist = new Artist();
+    private final Expiring coverArt = new Expiring(Duration.ofDays(30), DataSize.ofMegabytes(16));
+    private final Expiring negative = new Expiring(Duration.ofMinutes(10), DataSize.ofMegabytes(2));
+
+    public Artist getArtist() {
+        return artist;
+    }
+
+    public Expiring getCoverArt() {
+        return coverArt;
+    }
+
+    public Expiring getNegative() {
+        return negative;
+    }
+
+    /**
+     * Artist lookup and details entries. After {@code softTtl} an entry is still served but refreshed in the
+     * background; after {@code hardTtl} without a successful refresh it is evicted. Partial details, answered
+     * when a request's latency budget ran out, are evicted after {@code partialTtl} instead. The lookup and
+     * details caches each get {@code maximumMemory}.
+     */
+    public static class Artist {
+        private Duration softTtl = Duration.ofHours(1);
+        private Duration hardTtl = Duration.ofHours(6);
+        private Duration partialTtl = Duration.ofMinutes(2);
+        private DataSize maximumMemory = DataSize.ofMegabytes(64);
+
+        public Duration getSoftTtl() {
+            return softTtl;
+        }
+
+        public void setSoftTtl(Duration softTtl) {
+            this.softTtl = softTtl;
+        }
+
+        public Duration getHardTtl() {
+            return hardTtl;
+        }
+
+        public void setHardTtl(Duration hardTtl) {
+            this.hardTtl = hardTtl;
+        }
+
+        public Duration getPartialTtl() {
+            return partialTtl;
+        }
+
+        public void setPartialTtl(Duration partialTtl) {
+            this.partialTtl = partialTtl;
+        }
+
+        public DataSize getMaximumMemory() {
+            return maximumMemory;
+        }
+
+        public void setMaximumMemory(DataSize maximumMemory) {
+            this.maximumMemory = maximumMemory;
+        }
+    }
+
+    public static class Expiring {
+        private Duration ttl;
+        private DataSize maximumMemory;
+
+        public Expiring(Duration ttl, DataSize maximumMemory) {
+            this.ttl = ttl;
+            this.maximumMemory = maximumMemory;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public DataSize getMaximumMemory() {
+            return maximumMemory;
+        }
+
+        public void setMaximumMemory(DataSize maximumMemory) {
+            this.maximumMemory = maximumMemory;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package se.hollytech.jukebox;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.hollytech.jukebox.http.UpstreamPriority;
+import se.hollytech.jukebox.model.Artist;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Cache loader for stale-while-revalidate caches. Background refreshes take a permit from the given
+ * rate limiter; without one the refresh is skipped, the stale value stays in place and the next read
+ * past the soft TTL tries again. A failed refresh likewise keeps the stale value, and so does one that only got
+ * partial artist details in place of complete ones. Refreshes call the upstreams at
+ * {@link UpstreamPriority#BACKGROUND} priority.
+ */
+class RateLimitedRefreshLoader implements CacheLoader<Object, Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitedRefreshLoader.class);
+
+    private final String cacheName;
+    private final Function<String, ?> loader;
+    private final RateLimiter rateLimiter;
+
+    RateLimitedRefreshLoader(String cacheName, Function<String, ?> loader, RateLimiter rateLimiter) {
+        this.cacheName = cacheName;
+        this.loader = loader;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Object load(Object key) {
+        return loader.apply((String) key);
+    }
+
+    @Override
+    public Object reload(Object key, Object oldValue) {
+        Object value = UpstreamPriority.BACKGROUND.call(() -> load(key));
+        if (value instanceof Artist artist && artist.partial() && !(oldValue instanceof Artist old && old.partial())) {
+            // Failing the refresh keeps the complete entry until its hard TTL, rather than a partial one for the
+            // partial TTL
+            throw new IllegalStateException("Refresh got partial artist details: cache=" + cacheName + ", key=" + key);
+        }
+        return value;
+    }
+
+    @Override
+    public CompletableFuture<?> asyncReload(Object key, Object oldValue, Executor executor) throws Exception {
+        if (!rateLimiter.acquirePermission()) {
+            logger.debug("Cache refresh postponed, refresh rate limit reached: cache={}, key={}", cacheName, key);
+            // Caffeine keeps the current value and does not log a cancelled refresh
+            CompletableFuture<Object> postponed = new CompletableFuture<>();
+            postponed.cancel(false);
+            return postponed;
+        }
+        logger.debug("Refreshing stale cache entry in background: cache={}, key={}", cacheName, key);
+        return CacheLoader.super.asyncReload(key, oldValue, executor);
+    }
+}
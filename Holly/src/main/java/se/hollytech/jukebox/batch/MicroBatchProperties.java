@@ -0,0 +1,59 @@
+package se.hollytech.jukebox.batch;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Micro-batching settings for upstream lookups, bound from {@code jukebox.batch.*}. Keys requested within
+ * {@code window} of the first pending one are sent as a single upstream request, which goes out early once
+ * the batcher's maximum size is reached.
+ */
+@ConfigurationProperties(prefix = "jukebox.batch")
+public class MicroBatchProperties {
+
+    private boolean enabled = true;
+    private Duration window = Duration.ofMillis(5);
+    /**
+     * Threads that time the batch windows, shared by all batchers. Blocking loaders run on the upstream executor.
+     */
+    private int threads = 4;
+    /**
+     * Maximum keys per request, by batcher name; batchers not listed use 50.
+     */
+    private Map<String, Integer> maxSize = new HashMap<>(Map.of("wikipedia", 20, "wikidata", 50));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public Map<String, Integer> getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Map<String, Integer> maxSize) {
+        this.maxSize = maxSize;
+    }
+}
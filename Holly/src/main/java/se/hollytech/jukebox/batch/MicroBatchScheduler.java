@@ -0,0 +1,88 @@
+package se.hollytech.jukebox.batch;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import se.hollytech.jukebox.http.UpstreamPriority;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+
+/**
+ * Creates {@link MicroBatcher}s that share one scheduler, which times the batch windows and sends the
+ * batches. Blocking loaders run on {@code loaderExecutor} instead, so a loader waiting for a throttle permit
+ * or a response does not hold up the windows of other batchers.
+ */
+public class MicroBatchScheduler implements DisposableBean {
+
+    private static final int DEFAULT_MAX_SIZE = 50;
+    private final MicroBatchProperties properties;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Executor loaderExecutor;
+
+    public MicroBatchScheduler(MicroBatchProperties properties, Executor loaderExecutor) {
+        this(properties, daemonThreadFactory(), loaderExecutor);
+    }
+
+    /**
+     * Creates the scheduler's threads with {@code threadFactory}, e.g. virtual threads.
+     */
+    public MicroBatchScheduler(MicroBatchProperties properties, ThreadFactory threadFactory, Executor loaderExecutor) {
+        this.properties = properties;
+        this.loaderExecutor = loaderExecutor;
+        if (properties.isEnabled()) {
+            this.scheduler = new ScheduledThreadPoolExecutor(properties.getThreads(), threadFactory);
+            this.scheduler.setRemoveOnCancelPolicy(true);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * A scheduler whose batchers load every key on its own, on the calling thread.
+     */
+    public static MicroBatchScheduler disabled() {
+        MicroBatchProperties properties = new MicroBatchProperties();
+        properties.setEnabled(false);
+        return new MicroBatchScheduler(properties, Runnable::run);
+    }
+
+    /**
+     * A batcher whose loader blocks; it runs on the loader executor, at the priority the batch is sent with.
+     */
+    public <K, V> MicroBatcher<K, V> batcher(String name, Function<Set<K>, Map<K, V>> loader) {
+        if (scheduler == null) {
+            return asyncBatcher(name, keys -> CompletableFuture.completedFuture(loader.apply(keys)));
+        }
+        return asyncBatcher(name, keys -> {
+            UpstreamPriority priority = UpstreamPriority.current();
+            return CompletableFuture.supplyAsync(() -> priority.call(() -> loader.apply(keys)), loaderExecutor);
+        });
+    }
+
+    /**
+     * A batcher whose loader returns without waiting for the upstream response.
+     */
+    public <K, V> MicroBatcher<K, V> asyncBatcher(String name, Function<Set<K>, CompletionStage<Map<K, V>>> loader) {
+        int maxSize = Math.max(1, properties.getMaxSize().getOrDefault(name, DEFAULT_MAX_SIZE));
+        return new MicroBatcher<>(name, maxSize, properties.getWindow().toNanos(), loader, scheduler);
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("micro-batch-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package se.hollytech.jukebox.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.hollytech.jukebox.http.UpstreamPriority;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects keys requested concurrently into one call of a multi-key loader. The first pending key opens a
+ * window; the batch is sent when the window closes or as soon as it holds {@code maxBatchSize} keys,
+ * whichever comes first. Callers asking for a key that is already pending share its result.
+ *
+ * <p>The loader completes with values by key; keys it leaves out complete with {@code null}, and if it
+ * fails, every key of the batch fails with its exception. Batches are sent from the scheduler's threads, never
+ * on the callers', so callers may block on the result from any pool. Each batch is sent at the most urgent
+ * {@link UpstreamPriority} of the callers waiting for it.
+ */
+public final class MicroBatcher<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+    private final String name;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Function<Set<K>, CompletionStage<Map<K, V>>> loader;
+    private final ScheduledExecutorService scheduler;
+    // A ReentrantLock rather than a monitor, so a virtual thread that has to wait for it is not pinned
+    private final Lock lock = new ReentrantLock();
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private UpstreamPriority pendingPriority;
+    private ScheduledFuture<?> scheduledFlush;
+
+    MicroBatcher(String name, int maxBatchSize, long windowNanos, Function<Set<K>, CompletionStage<Map<K, V>>> loader,
+                 ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = windowNanos;
+        this.loader = loader;
+        this.scheduler = scheduler;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        UpstreamPriority priority = UpstreamPriority.current();
+        if (scheduler == null) {
+            // Batching is disabled: every key is its own batch, sent from the calling thread
+            return apply(Set.of(key), priority).thenApply(values -> values.get(key)).toCompletableFuture();
+        }
+
+        Batch<K, V> fullBatch = null;
+        CompletableFuture<V> future;
+        lock.lock();
+        try {
+            if (pendingPriority == null || priority.compareTo(pendingPriority) < 0) {
+                pendingPriority = priority;
+            }
+            future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(this::flushWindow, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (fullBatch != null) {
+            Batch<K, V> batch = fullBatch;
+            scheduler.execute(() -> send(batch, "full"));
+        }
+        return future;
+    }
+
+    private void flushWindow() {
+        Batch<K, V> batch;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        } finally {
+            lock.unlock();
+        }
+        send(batch, "window");
+    }
+
+    private Batch<K, V> takePending() {
+        Batch<K, V> batch = new Batch<>(pending, pendingPriority);
+        pending = new LinkedHashMap<>();
+        pendingPriority = null;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void send(Batch<K, V> batch, String trigger) {
+        Map<K, CompletableFuture<V>> futures = batch.futures();
+        logger.debug("Sending micro-batch: batcher={}, size={}, trigger={}, priority={}", name, futures.size(), trigger,
+                batch.priority().tag());
+        apply(Collections.unmodifiableSet(futures.keySet()), batch.priority()).whenComplete((values, error) -> {
+            if (error == null) {
+                futures.forEach((key, future) -> future.complete(values.get(key)));
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.warn("Micro-batch failed: batcher={}, size={}, error={}", name, futures.size(), cause.getMessage());
+            futures.values().forEach(future -> future.completeExceptionally(cause));
+        });
+    }
+
+    private CompletionStage<Map<K, V>> apply(Set<K> keys, UpstreamPriority priority) {
+        try {
+            return priority.call(() -> loader.apply(keys));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private record Batch<K, V>(Map<K, CompletableFuture<V>> futures, UpstreamPriority priority) {
+    }
+}
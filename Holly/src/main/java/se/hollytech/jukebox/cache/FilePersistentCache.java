@@ -0,0 +1,542 @@
+package se.hollytech.jukebox.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache kept outside the Java heap. Entries are appended to a data file in the compact binary
+ * encoding of the given mapper and located through an open-addressing hash index in direct memory, which
+ * holds only a 64-bit key hash and a file offset per entry. Reads go through the OS page cache, so the
+ * heap only sees the entry being decoded.
+ * <p>
+ * Each record carries a CRC, its expiry and write times and either a value or a removal marker. On startup the index
+ * is rebuilt by scanning the file; a torn or corrupt tail is truncated. When the file runs out of entries
+ * or bytes it is compacted: superseded and expired records are dropped, and if the live entries still take
+ * more than half of either limit, the oldest-written ones are dropped too.
+ * <p>
+ * Compaction runs as a single task on the given executor, not on the thread whose write found the file full.
+ * It copies the records it keeps without holding the lock, so reads and writes go on meanwhile, and only
+ * takes the write lock to append the records written since and swap the files. Until it is done, writes
+ * that do not fit are not stored; removals always are.
+ */
+public class FilePersistentCache<V> implements PersistentCache<V>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilePersistentCache.class);
+
+    // crc, key length, value length, expiry, write time
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int SLOT_BYTES = 2 * Long.BYTES;
+    private static final int REMOVED = -1;
+    private static final int MAX_KEY_BYTES = 64 * 1024;
+    private static final int MAX_VALUE_BYTES = 16 * 1024 * 1024;
+    static final int MAX_ENTRIES = 1 << 24;
+
+    private final String name;
+    private final Path file;
+    private final Class<V> type;
+    private final ObjectMapper mapper;
+    private final long ttlMillis;
+    private final int maximumEntries;
+    private final long maximumFileSize;
+    private final Executor compactionExecutor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Slot layout: key hash (0 = empty), record offset + 1 (0 = removed)
+    private final ByteBuffer index;
+    private final int mask;
+
+    private FileChannel channel;
+    private long writePosition;
+    private int usedSlots;
+    private int liveEntries;
+    // Bumped by clear(), so that a compaction started before it does not bring the cleared records back
+    private long generation;
+
+    public FilePersistentCache(String name, Path file, Class<V> type, ObjectMapper mapper, Duration ttl,
+                               int maximumEntries, long maximumFileSize, Executor compactionExecutor) throws IOException {
+        if (maximumEntries < 1 || maximumEntries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("maximumEntries must be between 1 and " + MAX_ENTRIES);
+        }
+        this.name = name;
+        this.file = file;
+        this.type = type;
+        this.mapper = mapper;
+        this.ttlMillis = ttl.toMillis();
+        this.maximumEntries = maximumEntries;
+        this.maximumFileSize = maximumFileSize;
+        this.compactionExecutor = compactionExecutor;
+        // At least twice as many slots as entries keeps probe sequences short
+        int slots = Integer.highestOneBit(Math.max(maximumEntries, 8)) << 2;
+        this.index = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+        this.mask = slots - 1;
+        this.channel = open(file);
+        int records = load();
+        logger.info("Persistent cache opened: cache={}, file={}, entries={}, records={}, bytes={}",
+                name, file, liveEntries, records, writePosition);
+        if (records > 2 * liveEntries + 1024) {
+            compact();
+        }
+    }
+
+    @Override
+    public Entry<V> getEntry(String key) {
+        lock.readLock().lock();
+        try {
+            long pointer = pointer(findSlot(hash(key)));
+            if (pointer == 0) {
+                return null;
+            }
+            Record record = read(pointer - 1);
+            if (record == null || record.value() == null || !record.key().equals(key)
+                    || record.expiresAt() <= System.currentTimeMillis()) {
+                return null;
+            }
+            return new Entry<>(mapper.readValue(record.value(), type), record.writtenAt());
+        } catch (IOException e) {
+            logger.warn("Failed to read persistent cache entry: cache={}, key={}, error={}", name, key, e.getMessage());
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, V value) {
+        try {
+            long now = System.currentTimeMillis();
+            write(key, now, now + ttlMillis, mapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            logger.warn("Failed to write persistent cache entry: cache={}, key={}, error={}", name, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        try {
+            write(key, System.currentTimeMillis(), 0, null);
+        } catch (IOException e) {
+            logger.warn("Failed to invalidate persistent cache entry: cache={}, key={}, error={}", name, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            channel.truncate(0);
+            resetIndex();
+            generation++;
+        } catch (IOException e) {
+            logger.warn("Failed to clear persistent cache: cache={}, error={}", name, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveEntries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long fileSize() {
+        lock.readLock().lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(String key, long writtenAt, long expiresAt, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_BYTES || (value != null && value.length > MAX_VALUE_BYTES)) {
+            logger.warn("Persistent cache entry too large, not stored: cache={}, key={}", name, key);
+            return;
+        }
+        long hash = hash(key);
+        ByteBuffer record = encode(keyBytes, writtenAt, expiresAt, value);
+        if (append(hash, record, value == null)) {
+            return;
+        }
+        scheduleCompaction();
+        // Fits at once only if the executor ran the compaction on this thread
+        if (!append(hash, record, value == null)) {
+            logger.debug("Persistent cache full until compacted, entry not stored: cache={}, key={}", name, key);
+        }
+    }
+
+    /**
+     * Appends a record unless it would take the file past its entry or byte limit, and returns whether it
+     * did. A removal is always appended, since dropping it would bring the removed value back.
+     */
+    private boolean append(long hash, ByteBuffer record, boolean removal) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(hash);
+            if (removal && pointer(slot) == 0) {
+                return true;
+            }
+            boolean newKey = index.getLong(slot * SLOT_BYTES) == 0;
+            if (!removal && ((newKey && usedSlots >= maximumEntries)
+                    || writePosition + record.remaining() > maximumFileSize)) {
+                return false;
+            }
+            long offset = writePosition;
+            ByteBuffer bytes = record.duplicate();
+            while (bytes.hasRemaining()) {
+                writePosition += channel.write(bytes, writePosition);
+            }
+            setPointer(slot, hash, removal ? 0 : offset + 1);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    logger.warn("Failed to compact persistent cache: cache={}, error={}", name, e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            compacting.set(false);
+            logger.warn("Failed to schedule persistent cache compaction: cache={}, error={}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the index from the data file and returns the number of records read. A file written with a
+     * larger entry limit than the current one keeps its newest entries: whenever the limit is reached the
+     * index is rebuilt from where the scan had seen half of it, and the records before that are compacted away.
+     */
+    private int load() throws IOException {
+        long start = 0;
+        while (true) {
+            resetIndex();
+            long now = System.currentTimeMillis();
+            long position = start;
+            long size = channel.size();
+            long halfway = -1;
+            int records = 0;
+            boolean full = false;
+            while (position < size) {
+                Record record = read(position);
+                if (record == null) {
+                    logger.warn("Truncating incomplete or corrupt persistent cache data: cache={}, offset={}, bytes={}",
+                            name, position, size - position);
+                    channel.truncate(position);
+                    break;
+                }
+                long hash = hash(record.key());
+                int slot = findSlot(hash);
+                if (record.value() == null || record.expiresAt() <= now) {
+                    if (pointer(slot) != 0) {
+                        setPointer(slot, hash, 0);
+                    }
+                } else if (index.getLong(slot * SLOT_BYTES) == 0 && usedSlots >= maximumEntries) {
+                    full = true;
+                    break;
+                } else {
+                    setPointer(slot, hash, position + 1);
+                }
+                position += record.length();
+                records++;
+                if (halfway < 0 && usedSlots >= maximumEntries / 2) {
+                    halfway = position;
+                }
+            }
+            if (full) {
+                // Written with a larger limit than the current one
+                start = halfway;
+                continue;
+            }
+            writePosition = position;
+            if (start > 0) {
+                logger.warn("Persistent cache held more entries than allowed, keeping the newest: cache={}, maximumEntries={}",
+                        name, maximumEntries);
+                compact();
+                return liveEntries;
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Rewrites the data file with the newest live records only, keeping at most half of the entry and byte
+     * limits so that compaction does not immediately run again. The kept records are picked and copied without
+     * the lock, which is safe since records are never changed once written; the write lock is only taken to
+     * append what was written meanwhile, swap the files and point the index at the new offsets.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        long[] offsets;
+        int count = 0;
+        long copiedUpTo;
+        long startGeneration;
+        lock.readLock().lock();
+        try {
+            offsets = new long[liveEntries];
+            for (int slot = 0; slot <= mask; slot++) {
+                long pointer = pointer(slot);
+                if (pointer != 0) {
+                    offsets[count++] = pointer - 1;
+                }
+            }
+            copiedUpTo = writePosition;
+            startGeneration = generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(offsets, 0, count);
+
+        long now = System.currentTimeMillis();
+        long[] hashes = new long[count];
+        long[] lengths = new long[count];
+        int kept = 0;
+        long keptBytes = 0;
+        int first = count;
+        for (int i = count - 1; i >= 0 && kept < maximumEntries / 2; i--) {
+            Record record = read(offsets[i]);
+            if (record == null || record.expiresAt() <= now) {
+                continue;
+            }
+            if (keptBytes + record.length() > maximumFileSize / 2) {
+                break;
+            }
+            hashes[i] = hash(record.key());
+            lengths[i] = record.length();
+            keptBytes += record.length();
+            kept++;
+            first = i;
+        }
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel target = open(compacted)) {
+            target.truncate(0);
+            for (int i = first; i < count; i++) {
+                transfer(offsets[i], lengths[i], target);
+            }
+            lock.writeLock().lock();
+            try {
+                if (generation != startGeneration || !channel.isOpen()) {
+                    // Cleared or closed meanwhile
+                    Files.deleteIfExists(compacted);
+                    return;
+                }
+                transfer(copiedUpTo, writePosition - copiedUpTo, target);
+                target.force(false);
+                target.close();
+                swap(compacted, first, count, hashes, lengths, copiedUpTo);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        logger.info("Persistent cache compacted: cache={}, entries={}, bytes={}, elapsedMs={}",
+                name, liveEntries, writePosition, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Replaces the data file with the compacted one and rebuilds the index from the kept records and the
+     * records appended after them. Called with the write lock held.
+     */
+    private void swap(Path compacted, int first, int count, long[] hashes, long[] lengths, long copiedUpTo)
+            throws IOException {
+        channel.close();
+        try {
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Carries on with the uncompacted file and its index
+            channel = open(file);
+            throw e;
+        }
+        channel = open(file);
+        long appendedAt = writePosition;
+        resetIndex();
+        long position = 0;
+        for (int i = first; i < count; i++) {
+            if (lengths[i] > 0) {
+                setPointer(findSlot(hashes[i]), hashes[i], position + 1);
+                position += lengths[i];
+            }
+        }
+        long end = position + appendedAt - copiedUpTo;
+        long now = System.currentTimeMillis();
+        while (position < end) {
+            Record record = read(position);
+            if (record == null) {
+                break;
+            }
+            long hash = hash(record.key());
+            int slot = findSlot(hash);
+            if (record.value() == null || record.expiresAt() <= now) {
+                if (pointer(slot) != 0) {
+                    setPointer(slot, hash, 0);
+                }
+            } else {
+                setPointer(slot, hash, position + 1);
+            }
+            position += record.length();
+        }
+        writePosition = position;
+    }
+
+    private void transfer(long position, long length, FileChannel target) throws IOException {
+        for (long copied = 0; copied < length; ) {
+            copied += channel.transferTo(position + copied, length - copied, target);
+        }
+    }
+
+    private Record read(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (!readFully(header, offset)) {
+            return null;
+        }
+        int crc = header.getInt(0);
+        int keyLength = header.getInt(4);
+        int valueLength = header.getInt(8);
+        long expiresAt = header.getLong(12);
+        long writtenAt = header.getLong(20);
+        if (keyLength < 0 || keyLength > MAX_KEY_BYTES || valueLength < REMOVED || valueLength > MAX_VALUE_BYTES) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(keyLength + Math.max(valueLength, 0));
+        if (!readFully(body, offset + HEADER_BYTES)) {
+            return null;
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(header.array(), Integer.BYTES, HEADER_BYTES - Integer.BYTES);
+        checksum.update(body.array());
+        if ((int) checksum.getValue() != crc) {
+            return null;
+        }
+        String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+        byte[] value = valueLength == REMOVED ? null : Arrays.copyOfRange(body.array(), keyLength, body.capacity());
+        return new Record(key, writtenAt, expiresAt, value, HEADER_BYTES + body.capacity());
+    }
+
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer encode(byte[] key, long writtenAt, long expiresAt, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + key.length + (value != null ? value.length : 0));
+        buffer.putInt(0)
+                .putInt(key.length)
+                .putInt(value != null ? value.length : REMOVED)
+                .putLong(expiresAt)
+                .putLong(writtenAt)
+                .put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), Integer.BYTES, buffer.capacity() - Integer.BYTES);
+        buffer.putInt(0, (int) checksum.getValue());
+        return buffer.flip();
+    }
+
+    private int findSlot(long hash) {
+        int slot = (int) hash & mask;
+        while (true) {
+            long slotHash = index.getLong(slot * SLOT_BYTES);
+            if (slotHash == 0 || slotHash == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long pointer(int slot) {
+        return index.getLong(slot * SLOT_BYTES + Long.BYTES);
+    }
+
+    private void setPointer(int slot, long hash, long pointer) {
+        if (index.getLong(slot * SLOT_BYTES) == 0) {
+            index.putLong(slot * SLOT_BYTES, hash);
+            usedSlots++;
+        }
+        if (pointer(slot) != 0) {
+            liveEntries--;
+        }
+        if (pointer != 0) {
+            liveEntries++;
+        }
+        index.putLong(slot * SLOT_BYTES + Long.BYTES, pointer);
+    }
+
+    private void resetIndex() {
+        for (int offset = 0; offset < index.capacity(); offset += Long.BYTES) {
+            index.putLong(offset, 0);
+        }
+        usedSlots = 0;
+        liveEntries = 0;
+        writePosition = 0;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static long hash(String key) {
+        // FNV-1a followed by a 64-bit finalizer to spread the bits used for the slot
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+
+    private record Record(String key, long writtenAt, long expiresAt, byte[] value, int length) {
+    }
+}
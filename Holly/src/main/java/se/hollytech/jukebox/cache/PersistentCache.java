@@ -0,0 +1,58 @@
+package se.hollytech.jukebox.cache;
+
+/**
+ * A cache tier that outlives the process, consulted after an in-memory miss and before any upstream
+ * call. Implementations never throw on storage failures; a failed read is a miss and a failed write is
+ * dropped.
+ */
+public interface PersistentCache<V> {
+
+    /**
+     * Returns the unexpired value for {@code key}, or {@code null}.
+     */
+    default V get(String key) {
+        Entry<V> entry = getEntry(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    /**
+     * Returns the unexpired value for {@code key} with the time it was written, or {@code null}.
+     */
+    Entry<V> getEntry(String key);
+
+    void put(String key, V value);
+
+    void invalidate(String key);
+
+    void clear();
+
+    /**
+     * A cache that stores nothing, used when the persistent tier is disabled.
+     */
+    static <V> PersistentCache<V> disabled() {
+        return new PersistentCache<>() {
+            @Override
+            public Entry<V> getEntry(String key) {
+                return null;
+            }
+
+            @Override
+            public void put(String key, V value) {
+            }
+
+            @Override
+            public void invalidate(String key) {
+            }
+
+            @Override
+            public void clear() {
+            }
+        };
+    }
+
+    /**
+     * A stored value and the time it was written, in epoch milliseconds.
+     */
+    record Entry<V>(V value, long writtenAt) {
+    }
+}
@@ -0,0 +1,76 @@
+package se.hollytech.jukebox.cache;
+
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hands out one {@link PersistentCache} per cache name. If the persistent tier is disabled, or its file
+ * cannot be opened, the returned cache stores nothing and the application runs on the in-memory tier alone.
+ */
+public class PersistentCacheManager implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentCacheManager.class);
+
+    private final PersistentCacheProperties properties;
+    private final SmileMapper smileMapper = new SmileMapper();
+    private final Map<String, PersistentCache<?>> caches = new ConcurrentHashMap<>();
+    // Compacts the cache files off the request and refresh threads whose writes found them full
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("persistent-cache-compaction").daemon().factory());
+
+    public PersistentCacheManager(PersistentCacheProperties properties) {
+        this.properties = properties;
+    }
+
+    public static PersistentCacheManager disabled() {
+        PersistentCacheProperties properties = new PersistentCacheProperties();
+        properties.setEnabled(false);
+        return new PersistentCacheManager(properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> PersistentCache<V> getCache(String name, Class<V> type) {
+        return (PersistentCache<V>) caches.computeIfAbsent(name, n -> open(n, type));
+    }
+
+    private <V> PersistentCache<V> open(String name, Class<V> type) {
+        if (!properties.isEnabled()) {
+            return PersistentCache.disabled();
+        }
+        try {
+            Files.createDirectories(properties.getDirectory());
+            return new FilePersistentCache<>(name, properties.getDirectory().resolve(name + ".data"), type, smileMapper,
+                    properties.getTtl(), properties.getMaximumEntries(), properties.getMaximumFileSize().toBytes(),
+                    compactor);
+        } catch (IOException e) {
+            logger.warn("Persistent cache unavailable, continuing without it: cache={}, directory={}, error={}",
+                    name, properties.getDirectory(), e.getMessage());
+            return PersistentCache.disabled();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PersistentCache<?> cache : caches.values()) {
+            if (cache instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close persistent cache: error={}", e.getMessage());
+                }
+            }
+        }
+        caches.clear();
+        // Only after the files are closed: interrupting a compaction would close the file channel it reads
+        compactor.shutdownNow();
+    }
+}
@@ -0,0 +1,61 @@
+package se.hollytech.jukebox.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Second-tier cache settings, bound from {@code jukebox.cache.persistent.*}. Each persistent cache is a
+ * data file named after the cache in {@code directory}.
+ */
+@ConfigurationProperties(prefix = "jukebox.cache.persistent")
+public class PersistentCacheProperties {
+
+    private boolean enabled = true;
+    private Path directory = Path.of("data", "cache");
+    private Duration ttl = Duration.ofHours(6);
+    private int maximumEntries = 1_000_000;
+    private DataSize maximumFileSize = DataSize.ofGigabytes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaximumEntries() {
+        return maximumEntries;
+    }
+
+    public void setMaximumEntries(int maximumEntries) {
+        this.maximumEntries = maximumEntries;
+    }
+
+    public DataSize getMaximumFileSize() {
+        return maximumFileSize;
+    }
+
+    public void setMaximumFileSize(DataSize maximumFileSize) {
+        this.maximumFileSize = maximumFileSize;
+    }
+}
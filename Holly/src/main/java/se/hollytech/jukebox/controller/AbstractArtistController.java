@@ -0,0 +1,95 @@
+package se.hollytech.jukebox.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import se.hollytech.jukebox.model.ArtistBatchItem;
+import se.hollytech.jukebox.service.ArtistNotFoundException;
+import se.hollytech.jukebox.service.JukeboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * The artist endpoints that are served the same way whichever {@code jukebox.service.mode} is configured;
+ * the MBID, details and discography reads are added by the controller of each mode. Those send an ETag with
+ * each artist, and answer a matching {@code If-None-Match} with {@code 304 Not Modified}.
+ */
+public abstract class AbstractArtistController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractArtistController.class);
+    private static final long DISCOGRAPHY_STREAM_TIMEOUT_MILLIS = 60_000;
+    protected final JukeboxService jukeboxService;
+    final ArtistETags artistETags = new ArtistETags();
+
+    protected AbstractArtistController(JukeboxService jukeboxService) {
+        this.jukeboxService = jukeboxService;
+    }
+
+    @GetMapping("api/artist/discography/stream")
+    public ResponseEntity<SseEmitter> streamArtistDiscography(@RequestParam String artistName) {
+        try {
+            logger.info("Received artist discography stream request: artistName={}", artistName);
+            SseEmitter emitter = new SseEmitter(DISCOGRAPHY_STREAM_TIMEOUT_MILLIS);
+            DiscographyEventStream events = new DiscographyEventStream(emitter, artistName);
+            jukeboxService.streamArtistDiscography(artistName, events).whenComplete(events::complete);
+            return ResponseEntity.ok(emitter);
+        } catch (ArtistNotFoundException e) {
+            logger.warn("Artist not found: artistName={}", artistName);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("api/artist/details/batch")
+    public List<ArtistBatchItem> getArtistDetailsBatch(@RequestBody List<String> mbids) {
+        logger.info("Received artist details batch request: size={}", mbids.size());
+        return jukeboxService.getArtistDetailsBatch(mbids);
+    }
+
+    @PostMapping("api/artist/discography/batch")
+    public List<ArtistBatchItem> getArtistDiscographyBatch(@RequestBody List<String> artistNames) {
+        logger.info("Received artist discography batch request: size={}", artistNames.size());
+        return jukeboxService.getArtistDiscographyBatch(artistNames);
+    }
+
+    @DeleteMapping("api/artist/details/cache")
+    public ResponseEntity<Void> evictArtistDetailsCache(@RequestParam String mbid) {
+        try {
+            logger.info("Received details cache eviction request: mbid={}", mbid);
+            jukeboxService.evictArtistDetailsCache(mbid);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            logger.error("Failed to evict details cache: mbid={}, error={}", mbid, e.getMessage());
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @DeleteMapping("api/artist/lookup/cache")
+    public ResponseEntity<Void> evictArtistLookupCache(@RequestParam String artistName) {
+        try {
+            logger.info("Received lookup cache eviction request: artistName={}", artistName);
+            jukeboxService.evictArtistLookupCache(artistName);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            logger.error("Failed to evict lookup cache: artistName={}, error={}", artistName, e.getMessage());
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @DeleteMapping("api/artist/discography/cache")
+    public ResponseEntity<Void> evictArtistDiscographyCache(@RequestParam String artistName) {
+        try {
+            logger.info("Received discography cache eviction request: artistName={}", artistName);
+            jukeboxService.evictArtistDiscographyCache(artistName);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            logger.error("Failed to evict discography cache: artistName={}, error={}", artistName, e.getMessage());
+            return ResponseEntity.status(500).build();
+        }
+    }
+}
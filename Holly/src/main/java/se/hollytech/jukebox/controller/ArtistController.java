@@ -1,7 +1,12 @@
 package se.hollytech.jukebox.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.util.unit.DataSize;
 import se.hollytech.jukebox.model.Artist;
 import se.hollytech.jukebox.model.ArtistLookup;
 import se.hollytech.jukebox.service.ArtistNotFoundException;
@@ -11,79 +16,100 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import se.hollytech.jukebox.service.MusicBrainzApiException;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
+
+/**
+ * Serves the MBID, details and discography reads from {@link JukeboxService}. Details and discography
+ * answer within {@code jukebox.service.latency-budget}, or the {@code budget} request parameter if given
+ * (e.g. {@code 1500ms} or {@code 2s}; {@code 0} for none), and a partial answer carries the
+ * {@value #PARTIAL_HEADER} header.
+ * <p>
+ * With {@code jukebox.cache.serialized-responses.enabled}, each cached artist or lookup is serialized once and its
+ * hits write the stored JSON bytes, together with a gzip-compressed copy of bodies over
+ * {@code server.compression.min-response-size} unless {@code jukebox.cache.serialized-responses.gzip} is off.
+ */
 @RestController
-public class ArtistController {
+@ConditionalOnProperty(name = "jukebox.service.mode", havingValue = "blocking", matchIfMissing = true)
+public class ArtistController extends AbstractArtistController {
 
+    static final String PARTIAL_HEADER = "X-Partial-Response";
     private static final Logger logger = LoggerFactory.getLogger(ArtistController.class);
-    private final JukeboxService jukeboxService;
+    private final Duration latencyBudget;
+    // null unless serialized responses are enabled
+    private final SerializedResponses serializedResponses;
 
-    public ArtistController(JukeboxService jukeboxService) {
-        this.jukeboxService = jukeboxService;
+    public ArtistController(JukeboxService jukeboxService,
+                            @Value("${jukebox.service.latency-budget:5s}") Duration latencyBudget,
+                            ObjectMapper objectMapper,
+                            @Value("${jukebox.cache.serialized-responses.enabled:false}") boolean serializedResponses,
+                            @Value("${jukebox.cache.serialized-responses.gzip:true}") boolean gzip,
+                            @Value("${server.compression.min-response-size:2KB}") DataSize gzipMinSize) {
+        super(jukeboxService);
+        this.latencyBudget = latencyBudget;
+        this.serializedResponses = serializedResponses
+                ? new SerializedResponses(objectMapper, gzip ? gzipMinSize.toBytes() : -1)
+                : null;
     }
 
     @GetMapping("/api/artist/mbid")
-    public ArtistLookup getArtistMbid(@RequestParam String artistName) {
+    public ResponseEntity<?> getArtistMbid(@RequestParam String artistName, WebRequest request) {
         logger.info("Received MBID lookup request: artistName={}", artistName);
         ArtistLookup artist = jukeboxService.getArtistMbid(artistName);
         logger.debug("Returning artist lookup data: artistName={}, mbid={}", artistName, artist.mbid());
-        return artist;
+        if (serializedResponses != null) {
+            return serializedResponses.body(artist, null, new HttpHeaders(), request);
+        }
+        return ResponseEntity.ok(artist);
     }
 
     @GetMapping("/api/artist/details")
-    public Artist getArtistDetails(@RequestParam String mbid) {
+    public ResponseEntity<?> getArtistDetails(@RequestParam String mbid, @RequestParam(required = false) String budget,
+                                              WebRequest request) {
         logger.info("Received artist details request: mbid={}", mbid);
-        Artist artist = jukeboxService.getArtistDetails(mbid);
-        logger.debug("Returning artist details: mbid={}", mbid);
-        return artist;
+        Artist artist = jukeboxService.getArtistDetails(mbid, latencyBudget(budget));
+        logger.debug("Returning artist details: mbid={}, partial={}", mbid, artist.partial());
+        return ok(artist, request);
     }
 
     @GetMapping("api/artist/discography")
-    public ResponseEntity<Artist> getArtistDiscography(@RequestParam String artistName) {
+    public ResponseEntity<?> getArtistDiscography(@RequestParam String artistName,
+                                                  @RequestParam(required = false) String budget, WebRequest request) {
         try {
             logger.info("Received artist discography request: artistName={}", artistName);
-            Artist artist = jukeboxService.getArtistDiscography(artistName);
-            return ResponseEntity.ok(artist);
+            Artist artist = jukeboxService.getArtistDiscography(artistName, latencyBudget(budget));
+            return ok(artist, request);
         } catch (ArtistNotFoundException e) {
             logger.warn("Artist not found: artistName={}", artistName);
             return ResponseEntity.notFound().build();
         }
     }
 
-    @DeleteMapping("api/artist/details/cache")
-    public ResponseEntity<Void> evictArtistDetailsCache(@RequestParam String mbid) {
-        try {
-            logger.info("Received details cache eviction request: mbid={}", mbid);
-            jukeboxService.evictArtistDetailsCache(mbid);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            logger.error("Failed to evict details cache: mbid={}, error={}", mbid, e.getMessage());
-            return ResponseEntity.status(500).build();
+    private Duration latencyBudget(String budget) {
+        if (budget == null || budget.isBlank()) {
+            return latencyBudget;
         }
-    }
-
-    @DeleteMapping("api/artist/lookup/cache")
-    public ResponseEntity<Void> evictArtistLookupCache(@RequestParam String artistName) {
         try {
-            logger.info("Received lookup cache eviction request: artistName={}", artistName);
-            jukeboxService.evictArtistLookupCache(artistName);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            logger.error("Failed to evict lookup cache: artistName={}, error={}", artistName, e.getMessage());
-            return ResponseEntity.status(500).build();
+            return DurationStyle.detectAndParse(budget.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid budget: " + budget);
         }
     }
 
-    @DeleteMapping("api/artist/discography/cache")
-    public ResponseEntity<Void> evictArtistDiscographyCache(@RequestParam String artistName) {
-        try {
-            logger.info("Received discography cache eviction request: artistName={}", artistName);
-            jukeboxService.evictArtistDiscographyCache(artistName);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            logger.error("Failed to evict discography cache: artistName={}, error={}", artistName, e.getMessage());
-            return ResponseEntity.status(500).build();
+    /**
+     * The artist with its ETag; a request whose {@code If-None-Match} matches it is answered with 304, by Spring
+     * or else by {@link SerializedResponses}.
+     */
+    private ResponseEntity<?> ok(Artist artist, WebRequest request) {
+        String eTag = artistETags.of(artist);
+        HttpHeaders headers = new HttpHeaders();
+        if (artist.partial()) {
+            headers.set(PARTIAL_HEADER, "true");
+        }
+        if (serializedResponses != null) {
+            return serializedResponses.body(artist, eTag, headers, request);
         }
+        return ResponseEntity.ok().eTag(eTag).headers(headers).body(artist);
     }
-}
\ No newline at end of file
+}
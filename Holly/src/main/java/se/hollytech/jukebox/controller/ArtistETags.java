@@ -0,0 +1,70 @@
+package se.hollytech.jukebox.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong ETags for artist responses, derived from every field that is written out. The tag is remembered per
+ * {@link Artist} instance, and a cached artist is the same instance on every hit, so it is computed once per
+ * cache entry. It is forgotten once the instance is no longer referenced.
+ */
+final class ArtistETags {
+
+    private static final int TAG_BYTES = 16;
+
+    // Weak keys are compared by identity, so an artist reloaded with the same content gets its own entry
+    private final Cache<Artist, String> tags = Caffeine.newBuilder().weakKeys().build();
+
+    String of(Artist artist) {
+        return tags.get(artist, ArtistETags::compute);
+    }
+
+    private static String compute(Artist artist) {
+        MessageDigest digest = sha256();
+        update(digest, artist.name());
+        update(digest, artist.description());
+        update(digest, artist.mbid());
+        update(digest, Boolean.toString(artist.partial()));
+        if (artist.albums() != null) {
+            for (Album album : artist.albums()) {
+                update(digest, album.title());
+                update(digest, album.id());
+                update(digest, album.image());
+            }
+        }
+        byte[] hash = digest.digest();
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, TAG_BYTES)) + "\"";
+    }
+
+    /**
+     * Adds a field, length-prefixed so that neighbouring fields cannot run into each other; {@code null} is
+     * told apart from the empty string.
+     */
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8),
+                (byte) bytes.length});
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
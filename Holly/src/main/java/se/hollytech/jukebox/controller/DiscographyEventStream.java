@@ -0,0 +1,70 @@
+package se.hollytech.jukebox.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.DiscographyListener;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Writes a streamed discography as Server-Sent Events: {@code artist}, one {@code album} per album,
+ * {@code description}, and finally {@code complete}, or {@code error} if the load failed part way.
+ * Each event carries a JSON object.
+ */
+final class DiscographyEventStream implements DiscographyListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiscographyEventStream.class);
+    private final SseEmitter emitter;
+    private final String artistName;
+
+    DiscographyEventStream(SseEmitter emitter, String artistName) {
+        this.emitter = emitter;
+        this.artistName = artistName;
+    }
+
+    @Override
+    public void onArtist(ArtistLookup artist) {
+        send("artist", artist);
+    }
+
+    @Override
+    public void onAlbum(Album album) {
+        send("album", album);
+    }
+
+    @Override
+    public void onDescription(String description) {
+        send("description", Collections.singletonMap("description", description));
+    }
+
+    /**
+     * Ends the stream once the discography is resolved or has failed.
+     */
+    void complete(Artist artist, Throwable error) {
+        if (error == null) {
+            send("complete", Map.of("albumsCount", artist.albums().size()));
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.error("Discography stream failed: artistName={}, error={}", artistName, cause.getMessage());
+            send("error", Collections.singletonMap("message", cause.getMessage()));
+        }
+        emitter.complete();
+    }
+
+    private void send(String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream timed out; the load itself carries on and is cached
+            logger.debug("Dropped discography event: artistName={}, event={}, error={}", artistName, event, e.getMessage());
+        }
+    }
+}
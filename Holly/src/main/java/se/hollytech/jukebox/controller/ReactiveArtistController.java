@@ -0,0 +1,63 @@
+package se.hollytech.jukebox.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.ArtistNotFoundException;
+import se.hollytech.jukebox.service.JukeboxService;
+import se.hollytech.jukebox.service.ReactiveJukeboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the MBID, details and discography reads from {@link ReactiveJukeboxService} when
+ * {@code jukebox.service.mode=reactive}. The paths, responses and error mapping are those of
+ * {@link ArtistController}; the request thread is released while the upstream calls are in flight.
+ */
+@RestController
+@ConditionalOnProperty(name = "jukebox.service.mode", havingValue = "reactive")
+public class ReactiveArtistController extends AbstractArtistController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveArtistController.class);
+    private final ReactiveJukeboxService reactiveJukeboxService;
+
+    public ReactiveArtistController(JukeboxService jukeboxService, ReactiveJukeboxService reactiveJukeboxService) {
+        super(jukeboxService);
+        this.reactiveJukeboxService = reactiveJukeboxService;
+    }
+
+    @GetMapping("/api/artist/mbid")
+    public Mono<ArtistLookup> getArtistMbid(@RequestParam String artistName) {
+        logger.info("Received MBID lookup request: artistName={}", artistName);
+        return reactiveJukeboxService.getArtistMbid(artistName)
+                .doOnNext(artist -> logger.debug("Returning artist lookup data: artistName={}, mbid={}", artistName, artist.mbid()));
+    }
+
+    @GetMapping("/api/artist/details")
+    public Mono<ResponseEntity<Artist>> getArtistDetails(@RequestParam String mbid) {
+        logger.info("Received artist details request: mbid={}", mbid);
+        return reactiveJukeboxService.getArtistDetails(mbid)
+                .doOnNext(artist -> logger.debug("Returning artist details: mbid={}", mbid))
+                .map(this::ok);
+    }
+
+    @GetMapping("api/artist/discography")
+    public Mono<ResponseEntity<Artist>> getArtistDiscography(@RequestParam String artistName) {
+        logger.info("Received artist discography request: artistName={}", artistName);
+        return reactiveJukeboxService.getArtistDiscography(artistName)
+                .map(this::ok)
+                .onErrorResume(ArtistNotFoundException.class, e -> {
+                    logger.warn("Artist not found: artistName={}", artistName);
+                    return Mono.just(ResponseEntity.notFound().build());
+                });
+    }
+
+    private ResponseEntity<Artist> ok(Artist artist) {
+        return ResponseEntity.ok().eTag(artistETags.of(artist)).body(artist);
+    }
+}
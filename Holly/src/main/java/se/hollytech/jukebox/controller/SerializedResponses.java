@@ -0,0 +1,125 @@
+package se.hollytech.jukebox.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The encoded JSON of response bodies, remembered per instance like {@link ArtistETags}, so a cached artist or
+ * lookup is serialized once per cache entry and its hits write the stored bytes. Bodies of at least
+ * {@code gzipMinBytes} are also kept gzip-compressed and sent that way to clients that accept it, with the
+ * {@code --gzip} ETag suffix the server's own compression uses.
+ */
+final class SerializedResponses {
+
+    private static final String GZIP = "gzip";
+    private static final String GZIP_ETAG_SUFFIX = "--gzip";
+
+    private final ObjectMapper objectMapper;
+    private final long gzipMinBytes;
+    private final Cache<Object, Serialized> bodies = Caffeine.newBuilder().weakKeys().build();
+
+    /**
+     * @param gzipMinBytes the smallest body also kept compressed, or a negative number to never compress
+     */
+    SerializedResponses(ObjectMapper objectMapper, long gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    Serialized of(Object value) {
+        return bodies.get(value, this::serialize);
+    }
+
+    /**
+     * A {@code 200} answer with {@code headers} and the stored bytes of {@code value}, compressed if the client
+     * accepts it. If {@code eTag} is given and the request's {@code If-None-Match} holds it in either encoding,
+     * the answer is {@code 304 Not Modified} instead.
+     */
+    ResponseEntity<?> body(Object value, String eTag, HttpHeaders headers, WebRequest request) {
+        Serialized serialized = of(value);
+        boolean gzip = serialized.gzip() != null && acceptsGzip(request);
+        if (serialized.gzip() != null) {
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (eTag != null) {
+            String gzipETag = eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+            headers.setETag(gzip ? gzipETag : eTag);
+            if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag, gzipETag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            return ResponseEntity.ok().headers(headers).body(serialized.gzip());
+        }
+        return ResponseEntity.ok().headers(headers).body(serialized.json());
+    }
+
+    private Serialized serialize(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Serialized(json, gzipMinBytes >= 0 && json.length >= gzipMinBytes ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response body: " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(GZIP)) {
+                return parts.length < 2 || !parts[1].replace(" ", "").equalsIgnoreCase("q=0");
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag, String gzipETag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag) || candidate.equals(gzipETag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The JSON of a body, and its gzip-compressed form if it is large enough to be worth it.
+     */
+    record Serialized(byte[] json, byte[] gzip) {
+    }
+}
@@ -0,0 +1,64 @@
+package se.hollytech.jukebox.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import se.hollytech.jukebox.http.UpstreamFanOut;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many upstream requests each {@code /api/artist/*} request caused as a
+ * {@code jukebox.api.upstream.requests} histogram, tagged by endpoint pattern and method. Requests answered from
+ * the caches count zero. The count follows the work the blocking service hands to its upstream executor,
+ * throttle and hedges, and for a streamed discography it covers the whole stream. Lookups merged into a
+ * Wikipedia or Wikidata batch are shared between requests and are not counted for any of them, nor are the
+ * upstream requests of the reactive mode.
+ */
+public class UpstreamFanOutInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String REQUESTS_ATTRIBUTE = UpstreamFanOutInterceptor.class.getName() + ".requests";
+
+    private final MeterRegistry registry;
+
+    public UpstreamFanOutInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // An async request passes here again when its result is dispatched, and keeps counting into the same total
+        AtomicInteger requests = (AtomicInteger) request.getAttribute(REQUESTS_ATTRIBUTE);
+        if (requests == null) {
+            requests = new AtomicInteger();
+            request.setAttribute(REQUESTS_ATTRIBUTE, requests);
+        }
+        UpstreamFanOut.set(requests);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        UpstreamFanOut.set(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        UpstreamFanOut.set(null);
+        AtomicInteger requests = (AtomicInteger) request.getAttribute(REQUESTS_ATTRIBUTE);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (requests == null || pattern == null) {
+            return;
+        }
+        DistributionSummary.builder("jukebox.api.upstream.requests")
+                .description("Upstream requests caused by one API request")
+                .tag("endpoint", pattern.toString())
+                .tag("method", request.getMethod())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(requests.get());
+    }
+}
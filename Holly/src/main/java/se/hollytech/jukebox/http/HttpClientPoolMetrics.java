@@ -0,0 +1,61 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.eclipse.jetty.client.AbstractConnectionPool;
+import org.eclipse.jetty.client.Destination;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.transport.HttpDestination;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Publishes connection pool usage of every upstream client as {@code jukebox.http.client.*} gauges,
+ * summed over the destinations (scheme/host/port) each client has connected to.
+ */
+public class HttpClientPoolMetrics implements MeterBinder {
+
+    private final UpstreamClientHttpRequestFactory requestFactory;
+
+    public HttpClientPoolMetrics(UpstreamClientHttpRequestFactory requestFactory) {
+        this.requestFactory = requestFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        requestFactory.getClients().forEach((upstream, client) -> {
+            poolGauge(registry, "jukebox.http.client.connections.active", "Connections currently serving a request",
+                    upstream, client, AbstractConnectionPool::getActiveConnectionCount);
+            poolGauge(registry, "jukebox.http.client.connections.idle", "Open connections available for reuse",
+                    upstream, client, AbstractConnectionPool::getIdleConnectionCount);
+            poolGauge(registry, "jukebox.http.client.connections.pending", "Connections being opened",
+                    upstream, client, AbstractConnectionPool::getPendingConnectionCount);
+            Gauge.builder("jukebox.http.client.connections.max", client, HttpClient::getMaxConnectionsPerDestination)
+                    .description("Maximum connections per destination")
+                    .tag("upstream", upstream)
+                    .register(registry);
+            Gauge.builder("jukebox.http.client.requests.queued", client, c -> sum(c, HttpClientPoolMetrics::queuedRequests))
+                    .description("Requests waiting for a pooled connection")
+                    .tag("upstream", upstream)
+                    .register(registry);
+        });
+    }
+
+    private static void poolGauge(MeterRegistry registry, String name, String description, String upstream,
+                                  HttpClient client, ToIntFunction<AbstractConnectionPool> metric) {
+        Gauge.builder(name, client, c -> sum(c, destination ->
+                        destination.getConnectionPool() instanceof AbstractConnectionPool pool ? metric.applyAsInt(pool) : 0))
+                .description(description)
+                .tag("upstream", upstream)
+                .register(registry);
+    }
+
+    private static double sum(HttpClient client, ToIntFunction<Destination> metric) {
+        return client.getDestinations().stream().mapToInt(metric).sum();
+    }
+
+    private static int queuedRequests(Destination destination) {
+        return destination instanceof HttpDestination httpDestination ? httpDestination.getQueuedRequestCount() : 0;
+    }
+}
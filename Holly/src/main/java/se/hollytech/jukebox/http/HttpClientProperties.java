@@ -0,0 +1,305 @@
+package se.hollytech.jukebox.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbound HTTP settings, bound from {@code jukebox.http.*}. Each entry under {@code upstreams}
+ * gets its own connection pool, timeouts and throttle; requests to any other host use {@code defaults}.
+ * How every throttle adapts to the upstream's answers is set under {@code throttle}, which upstreams'
+ * lookups are hedged under {@code hedge}, and the cache of upstream responses under {@code cache}.
+ */
+@ConfigurationProperties(prefix = "jukebox.http")
+public class HttpClientProperties {
+
+    private Duration idleTimeout = Duration.ofSeconds(60);
+    private Upstream defaults = new Upstream();
+    private Map<String, Upstream> upstreams = new LinkedHashMap<>();
+    private Throttle throttle = new Throttle();
+    private Hedge hedge = new Hedge();
+    private ResponseCache cache = new ResponseCache();
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Upstream getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Upstream defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+    public void setUpstreams(Map<String, Upstream> upstreams) {
+        this.upstreams = upstreams;
+    }
+
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    public void setThrottle(Throttle throttle) {
+        this.throttle = throttle;
+    }
+
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Hedge hedge) {
+        this.hedge = hedge;
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public void setCache(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    public static class Upstream {
+        private String host;
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(10);
+        private int maxConnections = 8;
+        private double maxRate = 50;
+        private double minRate = 1;
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public double getMaxRate() {
+            return maxRate;
+        }
+
+        public void setMaxRate(double maxRate) {
+            this.maxRate = maxRate;
+        }
+
+        public double getMinRate() {
+            return minRate;
+        }
+
+        public void setMinRate(double minRate) {
+            this.minRate = minRate;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    public static class Throttle {
+        private double increase = 1;
+        private double decreaseFactor = 0.5;
+        private Duration maxRetryAfter = Duration.ofSeconds(60);
+        private double batchMinShare = 0.2;
+        private double backgroundMinShare = 0.1;
+
+        public double getIncrease() {
+            return increase;
+        }
+
+        public void setIncrease(double increase) {
+            this.increase = increase;
+        }
+
+        public double getDecreaseFactor() {
+            return decreaseFactor;
+        }
+
+        public void setDecreaseFactor(double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+        }
+
+        public Duration getMaxRetryAfter() {
+            return maxRetryAfter;
+        }
+
+        public void setMaxRetryAfter(Duration maxRetryAfter) {
+            this.maxRetryAfter = maxRetryAfter;
+        }
+
+        public double getBatchMinShare() {
+            return batchMinShare;
+        }
+
+        public void setBatchMinShare(double batchMinShare) {
+            this.batchMinShare = batchMinShare;
+        }
+
+        public double getBackgroundMinShare() {
+            return backgroundMinShare;
+        }
+
+        public void setBackgroundMinShare(double backgroundMinShare) {
+            this.backgroundMinShare = backgroundMinShare;
+        }
+
+        /**
+         * The share of permits kept for a priority while it has calls waiting; none for interactive calls.
+         */
+        public double minShare(UpstreamPriority priority) {
+            return switch (priority) {
+                case INTERACTIVE -> 0;
+                case BATCH -> batchMinShare;
+                case BACKGROUND -> backgroundMinShare;
+            };
+        }
+    }
+
+    public static class Hedge {
+        private boolean enabled = false;
+        private List<String> upstreams = new ArrayList<>(List.of("coverartarchive", "wikipedia"));
+        private double percentile = 0.95;
+        private Duration initialDelay = Duration.ofSeconds(1);
+        private Duration minDelay = Duration.ofMillis(50);
+        private int minSamples = 20;
+        private double maxShare = 0.05;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getUpstreams() {
+            return upstreams;
+        }
+
+        public void setUpstreams(List<String> upstreams) {
+            this.upstreams = upstreams;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getMaxShare() {
+            return maxShare;
+        }
+
+        public void setMaxShare(double maxShare) {
+            this.maxShare = maxShare;
+        }
+    }
+
+    public static class ResponseCache {
+        private boolean enabled = true;
+        private DataSize maximumSize = DataSize.ofMegabytes(32);
+        private DataSize maximumEntrySize = DataSize.ofMegabytes(1);
+        private Duration retention = Duration.ofDays(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(DataSize maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public DataSize getMaximumEntrySize() {
+            return maximumEntrySize;
+        }
+
+        public void setMaximumEntrySize(DataSize maximumEntrySize) {
+            this.maximumEntrySize = maximumEntrySize;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package se.hollytech.jukebox.http;
+
+import org.eclipse.jetty.client.Request;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.JettyClientHttpConnector;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The non-blocking counterpart of {@link UpstreamClientHttpRequestFactory} for {@code WebClient}: requests
+ * run on the same per-upstream Jetty clients, so both service modes share one set of connection pools,
+ * and each request gets its upstream's read timeout.
+ */
+public class UpstreamClientHttpConnector implements ClientHttpConnector {
+
+    private final UpstreamClientHttpRequestFactory requestFactory;
+    private final Map<String, JettyClientHttpConnector> connectors = new LinkedHashMap<>();
+
+    public UpstreamClientHttpConnector(UpstreamClientHttpRequestFactory requestFactory) {
+        this.requestFactory = requestFactory;
+        requestFactory.getClients().forEach((upstream, client) -> connectors.put(upstream, new JettyClientHttpConnector(client)));
+    }
+
+    @Override
+    public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                                            Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+        String upstream = requestFactory.upstreamFor(uri);
+        Duration readTimeout = requestFactory.getReadTimeout(upstream);
+        return connectors.get(upstream).connect(method, uri, request -> {
+            request.<Request>getNativeRequest().timeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return requestCallback.apply(request);
+        });
+    }
+}
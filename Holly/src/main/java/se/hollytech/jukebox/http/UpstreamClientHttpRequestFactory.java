@@ -0,0 +1,137 @@
+package se.hollytech.jukebox.http;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.transport.HttpClientConnectionFactory;
+import org.eclipse.jetty.client.transport.HttpClientTransportDynamic;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.transport.ClientConnectionFactoryOverHTTP2;
+import org.eclipse.jetty.io.ClientConnector;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JettyClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Routes outbound requests to one pooled Jetty {@link HttpClient} per configured upstream host.
+ * Connections are kept alive between calls, and HTTP/2 is negotiated via ALPN when the server
+ * supports it (falling back to HTTP/1.1). Hosts without their own entry share a default client. With
+ * virtual threads, the clients run the tasks that may block on virtual threads as well.
+ */
+public class UpstreamClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamClientHttpRequestFactory.class);
+    static final String DEFAULT_UPSTREAM = "default";
+
+    private final Map<String, HttpClient> clients = new LinkedHashMap<>();
+    private final Map<String, Duration> readTimeouts = new LinkedHashMap<>();
+    private final Map<String, String> upstreamsByHost = new LinkedHashMap<>();
+    private final Map<String, ClientHttpRequestFactory> factoriesByHost = new LinkedHashMap<>();
+    private final ClientHttpRequestFactory defaultFactory;
+    private final boolean virtualThreads;
+
+    public UpstreamClientHttpRequestFactory(HttpClientProperties properties) throws Exception {
+        this(properties, false);
+    }
+
+    public UpstreamClientHttpRequestFactory(HttpClientProperties properties, boolean virtualThreads) throws Exception {
+        this.virtualThreads = virtualThreads;
+        try {
+            for (Map.Entry<String, HttpClientProperties.Upstream> entry : properties.getUpstreams().entrySet()) {
+                HttpClientProperties.Upstream upstream = entry.getValue();
+                if (upstream.getHost() == null || upstream.getHost().isBlank()) {
+                    throw new IllegalArgumentException("No host configured for upstream: " + entry.getKey());
+                }
+                upstreamsByHost.put(upstream.getHost().toLowerCase(), entry.getKey());
+                factoriesByHost.put(upstream.getHost().toLowerCase(), createFactory(entry.getKey(), upstream, properties));
+            }
+            defaultFactory = createFactory(DEFAULT_UPSTREAM, properties.getDefaults(), properties);
+        } catch (Exception e) {
+            // The container never destroys a bean whose constructor failed, so the clients started so far are stopped here
+            for (HttpClient client : clients.values()) {
+                try {
+                    client.stop();
+                } catch (Exception stopFailure) {
+                    e.addSuppressed(stopFailure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        String host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
+        return factoriesByHost.getOrDefault(host, defaultFactory).createRequest(uri, httpMethod);
+    }
+
+    /**
+     * The name of the upstream whose client serves {@code uri}.
+     */
+    public String upstreamFor(URI uri) {
+        String host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
+        return upstreamsByHost.getOrDefault(host, DEFAULT_UPSTREAM);
+    }
+
+    public Duration getReadTimeout(String upstream) {
+        return readTimeouts.get(upstream);
+    }
+
+    /**
+     * The underlying client per upstream name, for pool metrics and the reactive connector.
+     */
+    public Map<String, HttpClient> getClients() {
+        return Collections.unmodifiableMap(clients);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (HttpClient client : clients.values()) {
+            client.stop();
+        }
+    }
+
+    private ClientHttpRequestFactory createFactory(String name, HttpClientProperties.Upstream upstream,
+                                                   HttpClientProperties properties) throws Exception {
+        ClientConnector connector = new ClientConnector();
+        connector.setConnectTimeout(upstream.getConnectTimeout());
+        connector.setIdleTimeout(properties.getIdleTimeout());
+
+        HTTP2Client http2Client = new HTTP2Client(connector);
+        HttpClientTransportDynamic transport = new HttpClientTransportDynamic(connector,
+                HttpClientConnectionFactory.HTTP11, new ClientConnectionFactoryOverHTTP2.HTTP2(http2Client));
+
+        HttpClient client = new HttpClient(transport);
+        client.setMaxConnectionsPerDestination(upstream.getMaxConnections());
+        client.setConnectTimeout(upstream.getConnectTimeout().toMillis());
+        client.setIdleTimeout(properties.getIdleTimeout().toMillis());
+        client.setUserAgentField(null);
+        if (virtualThreads) {
+            QueuedThreadPool threadPool = new QueuedThreadPool();
+            threadPool.setName("http-client-" + name);
+            threadPool.setVirtualThreadsExecutor(VirtualThreads.getNamedVirtualThreadsExecutor("http-client-" + name + "-virtual"));
+            client.setExecutor(threadPool);
+        }
+        // Registered before starting, so that a client whose start fails half way is stopped with the others
+        clients.put(name, client);
+        client.start();
+        readTimeouts.put(name, upstream.getReadTimeout());
+
+        JettyClientHttpRequestFactory factory = new JettyClientHttpRequestFactory(client);
+        factory.setReadTimeout(upstream.getReadTimeout());
+        logger.info("Configured outbound HTTP client: upstream={}, host={}, maxConnections={}, connectTimeout={}, readTimeout={}, virtualThreads={}",
+                name, upstream.getHost(), upstream.getMaxConnections(), upstream.getConnectTimeout(), upstream.getReadTimeout(), virtualThreads);
+        return factory;
+    }
+}
@@ -0,0 +1,65 @@
+package se.hollytech.jukebox.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Counts the upstream requests made on behalf of one incoming request. Like {@link UpstreamPriority}, the count
+ * applies to the calling thread: code running inside {@link #call} adds its upstream requests to the given
+ * counter, and tasks handed to other threads keep adding to it if they are wrapped with {@link #propagate}.
+ * Requests made outside any count, such as cache refreshes and warm-up, are not attributed to anything.
+ */
+public final class UpstreamFanOut {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    private UpstreamFanOut() {
+    }
+
+    /**
+     * Runs {@code call} with its upstream requests added to {@code requests}.
+     */
+    public static <T> T call(AtomicInteger requests, Supplier<T> call) {
+        AtomicInteger previous = CURRENT.get();
+        CURRENT.set(requests);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * {@code task}, adding its upstream requests to the calling thread's count wherever it runs.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        AtomicInteger requests = CURRENT.get();
+        return requests == null ? task : () -> call(requests, task);
+    }
+
+    /**
+     * Sets the calling thread's count, or clears it if {@code requests} is {@code null}; for request lifecycles
+     * that do not fit in {@link #call}.
+     */
+    public static void set(AtomicInteger requests) {
+        if (requests != null) {
+            CURRENT.set(requests);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Counts an upstream request made by the calling thread.
+     */
+    static void increment() {
+        AtomicInteger requests = CURRENT.get();
+        if (requests != null) {
+            requests.incrementAndGet();
+        }
+    }
+}
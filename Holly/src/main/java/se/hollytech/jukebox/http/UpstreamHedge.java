@@ -0,0 +1,227 @@
+package se.hollytech.jukebox.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent GETs to one upstream: if the first attempt has not answered after the hedge delay, a
+ * second one is sent and whichever answers first is used. The slower attempt is left to finish, and only its
+ * latency is kept.
+ * <p>
+ * The delay is the configured percentile of the latencies of recent attempts, or {@code initial-delay} until
+ * {@code min-samples} of them are known. Hedges are limited to {@code max-share} of the calls, and none is
+ * sent while callers are waiting for a permit of the upstream's {@link UpstreamThrottle}, so they only use
+ * spare permits.
+ */
+public class UpstreamHedge {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamHedge.class);
+    // Hedge credits are counted in millionths of a hedge, so that adding up the share does not drift
+    private static final long HEDGE = 1_000_000;
+    private static final long MAX_CREDITS = 10 * HEDGE;
+    private static final int WINDOW = 256;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final String upstream;
+    private final UpstreamThrottle throttle;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+    private final double percentile;
+    private final long initialDelayNanos;
+    private final long minDelayNanos;
+    private final int minSamples;
+    private final long creditPerCall;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] latencies = new long[WINDOW];
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private int samples;
+    private int nextSample;
+    private long credits;
+    private volatile long delayNanos;
+
+    public UpstreamHedge(String upstream, HttpClientProperties.Hedge settings, UpstreamThrottle throttle, Executor executor) {
+        this(upstream, settings, throttle, executor, System::nanoTime);
+    }
+
+    UpstreamHedge(String upstream, HttpClientProperties.Hedge settings, UpstreamThrottle throttle, Executor executor,
+                  LongSupplier nanoClock) {
+        if (settings.getPercentile() <= 0 || settings.getPercentile() > 1) {
+            throw new IllegalArgumentException("Invalid hedge percentile for upstream " + upstream + ": " + settings.getPercentile());
+        }
+        if (settings.getMaxShare() < 0 || settings.getMaxShare() > 1) {
+            throw new IllegalArgumentException("Invalid hedge share for upstream " + upstream + ": " + settings.getMaxShare());
+        }
+        this.upstream = upstream;
+        this.throttle = throttle;
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+        this.percentile = settings.getPercentile();
+        this.initialDelayNanos = settings.getInitialDelay().toNanos();
+        this.minDelayNanos = settings.getMinDelay().toNanos();
+        this.minSamples = Math.max(1, Math.min(WINDOW, settings.getMinSamples()));
+        this.creditPerCall = Math.round(settings.getMaxShare() * HEDGE);
+        this.delayNanos = initialDelayNanos;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    /**
+     * How long the first attempt currently gets before a hedge is sent.
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getHedged() {
+        return hedged.sum();
+    }
+
+    /**
+     * Hedges that answered before the first attempt.
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * Runs {@code attempt}, and a second time if the first has not returned within the hedge delay, returning
+     * the first result. An attempt that fails leaves the call to the other; if both fail, the first attempt's
+     * error is thrown. Both attempts run on the hedge executor, tagged with the caller's priority and counted in
+     * its {@link UpstreamFanOut}.
+     */
+    public <T> T call(Supplier<T> attempt) {
+        calls.increment();
+        earnCredit();
+        UpstreamPriority priority = UpstreamPriority.current();
+        attempt = UpstreamFanOut.propagate(attempt);
+        CompletableFuture<T> first = start(attempt, priority);
+        try {
+            try {
+                return first.get(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!tryHedge()) {
+                    return first.get();
+                }
+            }
+            hedged.increment();
+            logger.debug("Hedging slow call: upstream={}, delayMillis={}", upstream, TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            CompletableFuture<T> second = start(attempt, priority);
+            CompletableFuture<T> winner = firstSuccessful(first, second);
+            return winner.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ResourceAccessException("Call to upstream " + upstream + " failed: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for upstream " + upstream);
+        }
+    }
+
+    private <T> CompletableFuture<T> start(Supplier<T> attempt, UpstreamPriority priority) {
+        long start = nanoClock.getAsLong();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return priority.call(attempt);
+            } finally {
+                recordLatency(nanoClock.getAsLong() - start);
+            }
+        }, executor);
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        // The win is decided and counted before the caller is released, so it is in the metrics once call returns
+        AtomicBoolean decided = new AtomicBoolean();
+        AtomicInteger failed = new AtomicInteger();
+        first.whenComplete((result, error) -> {
+            if (error == null) {
+                if (decided.compareAndSet(false, true)) {
+                    winner.complete(result);
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        second.whenComplete((result, error) -> {
+            if (error == null) {
+                if (decided.compareAndSet(false, true)) {
+                    hedgeWins.increment();
+                    winner.complete(result);
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                // Report the first attempt's error, like an unhedged call would
+                first.whenComplete((ignored, firstError) -> winner.completeExceptionally(firstError));
+            }
+        });
+        return winner;
+    }
+
+    private void earnCredit() {
+        lock.lock();
+        try {
+            credits = Math.min(MAX_CREDITS, credits + creditPerCall);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the credit for a hedge, unless there is not enough or the upstream has callers waiting for permits.
+     */
+    private boolean tryHedge() {
+        if (throttle.getQueued() > 0) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (credits < HEDGE) {
+                return false;
+            }
+            credits -= HEDGE;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        lock.lock();
+        try {
+            latencies[nextSample] = nanos;
+            nextSample = (nextSample + 1) % WINDOW;
+            samples = Math.min(WINDOW, samples + 1);
+            if (samples >= minSamples && (samples == minSamples || nextSample % RECOMPUTE_EVERY == 0)) {
+                long[] sorted = Arrays.copyOf(latencies, samples);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile * samples) - 1;
+                delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes every upstream hedge as {@code jukebox.http.hedge.*} meters: counts of calls, hedges and hedges that
+ * answered first, the hedge rate and win rate derived from them, and the current hedge delay.
+ */
+public class UpstreamHedgeMetrics implements MeterBinder {
+
+    private final UpstreamHedging hedging;
+
+    public UpstreamHedgeMetrics(UpstreamHedging hedging) {
+        this.hedging = hedging;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        hedging.getHedges().forEach((upstream, hedge) -> {
+            eventCounter(registry, upstream, hedge, "call", UpstreamHedge::getCalls);
+            eventCounter(registry, upstream, hedge, "hedged", UpstreamHedge::getHedged);
+            eventCounter(registry, upstream, hedge, "hedge-won", UpstreamHedge::getHedgeWins);
+            Gauge.builder("jukebox.http.hedge.rate", hedge, h -> ratio(h.getHedged(), h.getCalls()))
+                    .description("Share of calls that were hedged")
+                    .tag("upstream", upstream)
+                    .register(registry);
+            Gauge.builder("jukebox.http.hedge.win-rate", hedge, h -> ratio(h.getHedgeWins(), h.getHedged()))
+                    .description("Share of hedges that answered before the first attempt")
+                    .tag("upstream", upstream)
+                    .register(registry);
+            Gauge.builder("jukebox.http.hedge.delay", hedge, h -> h.getDelayNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1))
+                    .description("Time the first attempt gets before a hedge is sent")
+                    .baseUnit("milliseconds")
+                    .tag("upstream", upstream)
+                    .register(registry);
+        });
+    }
+
+    private static double ratio(long count, long total) {
+        return total > 0 ? (double) count / total : 0;
+    }
+
+    private static void eventCounter(MeterRegistry registry, String upstream, UpstreamHedge hedge, String event,
+                                     ToDoubleFunction<UpstreamHedge> count) {
+        FunctionCounter.builder("jukebox.http.hedge.events", hedge, count)
+                .description("Hedgeable calls, hedges sent and hedges that answered first")
+                .tag("upstream", upstream)
+                .tag("event", event)
+                .register(registry);
+    }
+}
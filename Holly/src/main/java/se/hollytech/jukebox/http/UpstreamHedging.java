@@ -0,0 +1,64 @@
+package se.hollytech.jukebox.http;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * One {@link UpstreamHedge} per upstream listed under {@code jukebox.http.hedge.upstreams}, looked up by request
+ * host like the throttles of {@link UpstreamThrottles}. Calls to any other upstream, or with hedging disabled, run
+ * once on the calling thread. The hedges share one executor for their attempts, which only starts threads once a
+ * hedged call is made.
+ */
+public class UpstreamHedging implements DisposableBean {
+
+    private final UpstreamThrottles throttles;
+    private final Map<String, UpstreamHedge> hedges = new LinkedHashMap<>();
+    private final ExecutorService executor;
+
+    public UpstreamHedging(HttpClientProperties properties, UpstreamThrottles throttles, boolean virtualThreads) {
+        this.throttles = throttles;
+        this.executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upstream-hedge-", 1).factory())
+                : Executors.newCachedThreadPool(Thread.ofPlatform().name("upstream-hedge-", 1).daemon().factory());
+        HttpClientProperties.Hedge settings = properties.getHedge();
+        if (settings.isEnabled()) {
+            for (String upstream : settings.getUpstreams()) {
+                hedges.put(upstream, new UpstreamHedge(upstream, settings, throttles.get(upstream), executor));
+            }
+        }
+    }
+
+    /**
+     * Hedging that runs every call once, for running without it.
+     */
+    public static UpstreamHedging disabled() {
+        return new UpstreamHedging(new HttpClientProperties(), UpstreamThrottles.disabled(), false);
+    }
+
+    /**
+     * Runs a GET to {@code uri}, hedged if its upstream is.
+     */
+    public <T> T call(URI uri, Supplier<T> attempt) {
+        UpstreamHedge hedge = hedges.get(throttles.forUri(uri).getUpstream());
+        return hedge != null ? hedge.call(attempt) : attempt.get();
+    }
+
+    /**
+     * Every hedge by upstream name, for metrics.
+     */
+    public Map<String, UpstreamHedge> getHedges() {
+        return Collections.unmodifiableMap(hedges);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,62 @@
+package se.hollytech.jukebox.http;
+
+import java.util.function.Supplier;
+
+/**
+ * How urgently an upstream call is needed, from most to least urgent. A waiting interactive call gets the next
+ * permit of its {@link UpstreamThrottle} before any batch or background call, except for the minimum shares
+ * kept for those.
+ * <p>
+ * The priority applies to the calling thread: code running inside {@link #call} or {@link #run} is tagged with
+ * it, and a thread that is not tagged counts as interactive.
+ */
+public enum UpstreamPriority {
+
+    /** Calls a user is waiting for. */
+    INTERACTIVE,
+    /** Calls made for the batch endpoints. */
+    BATCH,
+    /** Cache refreshes and warm-up. */
+    BACKGROUND;
+
+    private static final ThreadLocal<UpstreamPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The priority the calling thread is tagged with, {@link #INTERACTIVE} if none.
+     */
+    public static UpstreamPriority current() {
+        UpstreamPriority priority = CURRENT.get();
+        return priority != null ? priority : INTERACTIVE;
+    }
+
+    /**
+     * Runs {@code call} with the calling thread tagged with this priority.
+     */
+    public <T> T call(Supplier<T> call) {
+        UpstreamPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * The name used in properties and metric tags.
+     */
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,77 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request sent to an upstream as a {@code jukebox.http.requests} histogram, tagged by upstream and
+ * outcome ({@code success}, {@code client-error}, {@code server-error} or {@code io-error}), and counts it in
+ * the caller's {@link UpstreamFanOut}. Placed after the response cache and the throttle, so it sees only the
+ * requests that go out, and their latency without the wait for a permit. It is both a {@code RestTemplate}
+ * interceptor and a {@code WebClient} filter.
+ */
+public class UpstreamRequestMetrics implements ClientHttpRequestInterceptor, ExchangeFilterFunction {
+
+    private final UpstreamThrottles throttles;
+    private final MeterRegistry registry;
+
+    public UpstreamRequestMetrics(UpstreamThrottles throttles, MeterRegistry registry) {
+        this.throttles = throttles;
+        this.registry = registry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        UpstreamFanOut.increment();
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            record(request.getURI(), start, outcome(response.getStatusCode().value()));
+            return response;
+        } catch (IOException | RuntimeException e) {
+            record(request.getURI(), start, "io-error");
+            throw e;
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            UpstreamFanOut.increment();
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> record(request.url(), start, outcome(response.statusCode().value())))
+                    .doOnError(e -> record(request.url(), start, "io-error"));
+        });
+    }
+
+    private void record(URI uri, long startNanos, String outcome) {
+        Timer.builder("jukebox.http.requests")
+                .description("Requests sent to the upstream, by how they ended")
+                .tag("upstream", throttles.forUri(uri).getUpstream())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(int status) {
+        if (status >= 500) {
+            return "server-error";
+        }
+        return status >= 400 ? "client-error" : "success";
+    }
+}
@@ -0,0 +1,341 @@
+package se.hollytech.jukebox.http;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches upstream GET responses by URL below the domain caches, honouring their {@code Cache-Control},
+ * {@code Expires}, {@code ETag} and {@code Last-Modified} headers. A fresh response is answered without calling
+ * the upstream or taking a throttle permit. An expired one that has a validator is revalidated with
+ * {@code If-None-Match} or {@code If-Modified-Since}, and a {@code 304} answer serves the stored body again.
+ * <p>
+ * Only {@code 200} responses are stored, unless they are marked {@code no-store} or {@code Vary: *}, or have
+ * neither a freshness lifetime nor a validator. Responses over {@code maximum-entry-size} are passed through
+ * unbuffered. The stored bodies are bounded by {@code maximum-size} in total, and each is kept at most
+ * {@code retention} after it was last stored or revalidated.
+ */
+public class UpstreamResponseCache implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamResponseCache.class);
+    // Headers that describe the stored body and are not taken over from a 304 answer
+    private static final Set<String> BODY_HEADERS = Set.of(HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+            HttpHeaders.CONTENT_ENCODING.toLowerCase(), HttpHeaders.TRANSFER_ENCODING.toLowerCase());
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final boolean enabled;
+    private final UpstreamThrottles throttles;
+    private final int maximumEntryBytes;
+    private final LongSupplier nanoClock;
+    private final Cache<String, CachedResponse> responses;
+    private final Map<String, Counters> counters = new LinkedHashMap<>();
+
+    public UpstreamResponseCache(HttpClientProperties.ResponseCache settings, UpstreamThrottles throttles) {
+        this(settings, throttles, System::nanoTime, ForkJoinPool.commonPool());
+    }
+
+    UpstreamResponseCache(HttpClientProperties.ResponseCache settings, UpstreamThrottles throttles, LongSupplier nanoClock,
+                          Executor executor) {
+        this.enabled = settings.isEnabled();
+        this.throttles = throttles;
+        this.maximumEntryBytes = (int) Math.min(Integer.MAX_VALUE - 1, settings.getMaximumEntrySize().toBytes());
+        this.nanoClock = nanoClock;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaximumSize().toBytes())
+                .weigher((String url, CachedResponse response) -> response.weight(url))
+                .expireAfterWrite(settings.getRetention())
+                .executor(executor)
+                .build();
+        throttles.getThrottles().keySet().forEach(upstream -> counters.put(upstream, new Counters()));
+    }
+
+    /**
+     * Hit, revalidation and miss counts of the named upstream, or {@code null} if there is no such upstream.
+     */
+    public Counters getCounters(String upstream) {
+        return counters.get(upstream);
+    }
+
+    /**
+     * Every upstream's counts by upstream name, for metrics.
+     */
+    public Map<String, Counters> getAllCounters() {
+        return counters;
+    }
+
+    public long getEntries() {
+        return responses.estimatedSize();
+    }
+
+    /**
+     * The bytes taken by the stored responses, as weighed against {@code maximum-size}.
+     */
+    public long getWeightedSize() {
+        return responses.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!enabled || request.getMethod() != HttpMethod.GET) {
+            return execution.execute(request, body);
+        }
+        String url = request.getURI().toString();
+        Counters upstreamCounters = counters.get(throttles.forUri(request.getURI()).getUpstream());
+        CachedResponse cached = responses.getIfPresent(url);
+        if (cached != null && cached.isFresh(nanoClock.getAsLong())) {
+            upstreamCounters.hits.increment();
+            logger.debug("Upstream response cache hit: url={}", url);
+            return cached.toResponse();
+        }
+        if (cached != null && cached.hasValidator()) {
+            cached.addConditions(request.getHeaders());
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            response.close();
+            CachedResponse revalidated = cached.revalidated(response.getHeaders(), nanoClock.getAsLong());
+            responses.put(url, revalidated);
+            upstreamCounters.revalidations.increment();
+            logger.debug("Upstream response revalidated: url={}", url);
+            return revalidated.toResponse();
+        }
+        upstreamCounters.misses.increment();
+        return store(url, response);
+    }
+
+    /**
+     * Reads and stores a cacheable response, returning it with its body re-readable from memory.
+     */
+    private ClientHttpResponse store(String url, ClientHttpResponse response) throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        if (response.getStatusCode().value() != HttpStatus.OK.value() || !isStorable(headers)
+                || headers.getContentLength() > maximumEntryBytes) {
+            responses.invalidate(url);
+            return response;
+        }
+        InputStream stream = response.getBody();
+        byte[] bytes = stream.readNBytes(maximumEntryBytes + 1);
+        if (bytes.length > maximumEntryBytes) {
+            responses.invalidate(url);
+            return new BufferedResponse(response, new SequenceInputStream(new ByteArrayInputStream(bytes), stream));
+        }
+        responses.put(url, new CachedResponse(copyOf(headers), bytes, freshUntil(headers, nanoClock.getAsLong())));
+        return new BufferedResponse(response, new ByteArrayInputStream(bytes));
+    }
+
+    private static boolean isStorable(HttpHeaders headers) {
+        if (directives(headers).containsKey("no-store") || headers.getVary().contains("*")) {
+            return false;
+        }
+        return freshnessLifetimeSeconds(headers) > 0 || headers.getETag() != null || headers.getLastModified() >= 0;
+    }
+
+    private static long freshUntil(HttpHeaders headers, long now) {
+        if (directives(headers).containsKey("no-cache")) {
+            return now;
+        }
+        long age = parseSeconds(headers.getFirst(HttpHeaders.AGE));
+        long remaining = Math.max(0, freshnessLifetimeSeconds(headers) - Math.max(0, age));
+        return now + TimeUnit.SECONDS.toNanos(remaining);
+    }
+
+    /**
+     * {@code max-age}, or else {@code Expires} minus {@code Date}; zero if neither is given.
+     */
+    private static long freshnessLifetimeSeconds(HttpHeaders headers) {
+        long maxAge = parseSeconds(directives(headers).get("max-age"));
+        if (maxAge >= 0) {
+            return maxAge;
+        }
+        long expires = headers.getExpires();
+        long date = headers.getDate();
+        if (expires >= 0 && date >= 0) {
+            return Math.max(0, (expires - date) / 1000);
+        }
+        return 0;
+    }
+
+    private static Map<String, String> directives(HttpHeaders headers) {
+        Map<String, String> directives = new LinkedHashMap<>();
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : value.split(",")) {
+                String[] parts = directive.trim().split("=", 2);
+                if (!parts[0].isEmpty()) {
+                    directives.put(parts[0].toLowerCase(), parts.length > 1 ? parts[1].replace("\"", "").trim() : "");
+                }
+            }
+        }
+        return directives;
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static HttpHeaders copyOf(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)) {
+                copy.put(name, List.copyOf(values));
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * Hit, revalidation and miss counts of one upstream.
+     */
+    public static class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder revalidations = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        /** Answered from a fresh stored response. */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /** Answered from a stored response after a {@code 304}. */
+        public long getRevalidations() {
+            return revalidations.sum();
+        }
+
+        /** Answered by the upstream with a full response. */
+        public long getMisses() {
+            return misses.sum();
+        }
+    }
+
+    private record CachedResponse(HttpHeaders headers, byte[] body, long freshUntilNanos) {
+
+        boolean isFresh(long now) {
+            return now - freshUntilNanos < 0;
+        }
+
+        boolean hasValidator() {
+            return headers.getETag() != null || headers.getLastModified() >= 0;
+        }
+
+        void addConditions(HttpHeaders requestHeaders) {
+            if (headers.getETag() != null) {
+                requestHeaders.setIfNoneMatch(headers.getETag());
+            } else {
+                requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, headers.getFirst(HttpHeaders.LAST_MODIFIED));
+            }
+        }
+
+        /**
+         * This response with the headers of a {@code 304} answer taken over and its freshness renewed.
+         */
+        CachedResponse revalidated(HttpHeaders notModifiedHeaders, long now) {
+            HttpHeaders merged = copyOf(headers);
+            notModifiedHeaders.forEach((name, values) -> {
+                if (!BODY_HEADERS.contains(name.toLowerCase())) {
+                    merged.put(name, List.copyOf(values));
+                }
+            });
+            return new CachedResponse(merged, body, freshUntil(merged, now));
+        }
+
+        int weight(String url) {
+            int headerBytes = 0;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                headerBytes += header.getKey().length();
+                for (String value : header.getValue()) {
+                    headerBytes += value.length();
+                }
+            }
+            return ENTRY_OVERHEAD + url.length() + headerBytes + body.length;
+        }
+
+        ClientHttpResponse toResponse() {
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatusCode getStatusCode() {
+                    return HttpStatus.OK;
+                }
+
+                @Override
+                public String getStatusText() {
+                    return HttpStatus.OK.getReasonPhrase();
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return HttpHeaders.readOnlyHttpHeaders(headers);
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    /**
+     * An upstream response whose body has been read into memory, at least in part.
+     */
+    private record BufferedResponse(ClientHttpResponse response, InputStream body) implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
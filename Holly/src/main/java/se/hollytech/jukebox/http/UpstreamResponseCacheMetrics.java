@@ -0,0 +1,46 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the upstream response cache as {@code jukebox.http.cache.*} meters: hits, revalidations and misses
+ * per upstream, and the number and size of the stored responses.
+ */
+public class UpstreamResponseCacheMetrics implements MeterBinder {
+
+    private final UpstreamResponseCache cache;
+
+    public UpstreamResponseCacheMetrics(UpstreamResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.getAllCounters().forEach((upstream, counters) -> {
+            requestCounter(registry, upstream, counters, "hit", UpstreamResponseCache.Counters::getHits);
+            requestCounter(registry, upstream, counters, "revalidated", UpstreamResponseCache.Counters::getRevalidations);
+            requestCounter(registry, upstream, counters, "miss", UpstreamResponseCache.Counters::getMisses);
+        });
+        Gauge.builder("jukebox.http.cache.entries", cache, UpstreamResponseCache::getEntries)
+                .description("Stored upstream responses")
+                .register(registry);
+        Gauge.builder("jukebox.http.cache.size", cache, UpstreamResponseCache::getWeightedSize)
+                .description("Bytes taken by the stored upstream responses")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static void requestCounter(MeterRegistry registry, String upstream, UpstreamResponseCache.Counters counters,
+                                       String result, ToDoubleFunction<UpstreamResponseCache.Counters> count) {
+        FunctionCounter.builder("jukebox.http.cache.requests", counters, count)
+                .description("Upstream GETs answered from a fresh stored response, after revalidation or by a full response")
+                .tag("upstream", upstream)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,579 @@
+package se.hollytech.jukebox.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Paces the calls to one upstream at a rate that adapts to its answers (additive increase, multiplicative
+ * decrease). The rate starts at {@code max-rate}. A 503 or 429 cuts it by {@code decrease-factor}, at most once
+ * per second so that a burst of rejected calls counts as one signal, but never below {@code min-rate}; a
+ * {@code Retry-After} header also holds back every call for that long. Each other answer below 500 adds
+ * {@code increase}/rate, so the rate grows by {@code increase} requests/s for every second of calls at the
+ * current rate, back up to {@code max-rate}.
+ * <p>
+ * Callers that cannot have a permit straight away queue by {@link UpstreamPriority}, and each permit goes to
+ * the longest-waiting caller of the most urgent priority. So that batch and background calls are not starved,
+ * every permit handed out while they wait earns them their {@code min-share} of a permit, and one that has
+ * earned a whole permit gets the next one. A caller still waiting after {@code max-wait}, or that could not
+ * get a permit within it anyway, is refused with {@link UpstreamThrottledException}. At startup and after an
+ * idle spell up to a second's worth of permits can be used at once.
+ * <p>
+ * A priority can also be held to a maximum share of the current rate with {@link #setMaxShare}; its callers
+ * then wait for their own, sparser slots even when the upstream has permits to spare.
+ */
+public class UpstreamThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamThrottle.class);
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long BURST_NANOS = NANOS_PER_SECOND;
+    private static final long BACK_OFF_INTERVAL_NANOS = NANOS_PER_SECOND;
+    // Shares are counted in millionths of a permit, so that adding them up does not drift
+    private static final long PERMIT = 1_000_000;
+    private static final UpstreamPriority[] PRIORITIES = UpstreamPriority.values();
+
+    private final String upstream;
+    private final double maxRate;
+    private final double minRate;
+    private final double increase;
+    private final double decreaseFactor;
+    private final long maxWaitNanos;
+    private final long maxRetryAfterNanos;
+    private final long[] minShares = new long[PRIORITIES.length];
+    private final ScheduledExecutorService dispatcher;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ThreadLocal<Boolean> reservedPermit = new ThreadLocal<>();
+    private final List<Deque<Waiter>> waiters = new ArrayList<>();
+    private final long[] shareCredits = new long[PRIORITIES.length];
+    private final double[] maxShares = new double[PRIORITIES.length];
+    private final long[] nextSharePermitNanos = new long[PRIORITIES.length];
+    private final AtomicInteger[] queued = new AtomicInteger[PRIORITIES.length];
+    private final LongAdder[] granted = new LongAdder[PRIORITIES.length];
+    private final LongAdder[] waitedNanos = new LongAdder[PRIORITIES.length];
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder backOffs = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+    private volatile ObjLongConsumer<UpstreamPriority> waitListener = (priority, waitedNanos) -> {
+    };
+    private volatile double rate;
+    private long nextPermitNanos;
+    private long pausedUntilNanos;
+    private long lastBackOffNanos;
+    private ScheduledFuture<?> scheduledDispatch;
+    private long scheduledDispatchNanos;
+
+    public UpstreamThrottle(String upstream, HttpClientProperties.Upstream limits, HttpClientProperties.Throttle settings,
+                            ScheduledExecutorService dispatcher) {
+        this(upstream, limits, settings, dispatcher, System::nanoTime);
+    }
+
+    UpstreamThrottle(String upstream, HttpClientProperties.Upstream limits, HttpClientProperties.Throttle settings,
+                     ScheduledExecutorService dispatcher, LongSupplier nanoClock) {
+        if (limits.getMaxRate() <= 0 || limits.getMinRate() <= 0 || limits.getMinRate() > limits.getMaxRate()) {
+            throw new IllegalArgumentException("Invalid rate limits for upstream " + upstream + ": minRate="
+                    + limits.getMinRate() + ", maxRate=" + limits.getMaxRate());
+        }
+        double totalShare = 0;
+        for (UpstreamPriority priority : PRIORITIES) {
+            double share = settings.minShare(priority);
+            if (share < 0) {
+                throw new IllegalArgumentException("Invalid minimum share for " + priority.tag() + " calls: " + share);
+            }
+            minShares[priority.ordinal()] = Math.round(share * PERMIT);
+            totalShare += share;
+            waiters.add(new ArrayDeque<>());
+            queued[priority.ordinal()] = new AtomicInteger();
+            granted[priority.ordinal()] = new LongAdder();
+            waitedNanos[priority.ordinal()] = new LongAdder();
+        }
+        if (totalShare > 1) {
+            throw new IllegalArgumentException("Minimum shares of batch and background calls add up to more than 1: " + totalShare);
+        }
+        this.upstream = upstream;
+        this.maxRate = limits.getMaxRate();
+        this.minRate = limits.getMinRate();
+        this.increase = settings.getIncrease();
+        this.decreaseFactor = settings.getDecreaseFactor();
+        this.maxWaitNanos = limits.getMaxWait().toNanos();
+        this.maxRetryAfterNanos = settings.getMaxRetryAfter().toNanos();
+        this.dispatcher = dispatcher;
+        this.nanoClock = nanoClock;
+        this.rate = maxRate;
+        long now = nanoClock.getAsLong();
+        this.nextPermitNanos = now - BURST_NANOS;
+        this.pausedUntilNanos = now - BURST_NANOS;
+        this.lastBackOffNanos = now - BACK_OFF_INTERVAL_NANOS;
+        Arrays.fill(maxShares, 1);
+        Arrays.fill(nextSharePermitNanos, now - BURST_NANOS);
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    /**
+     * The currently permitted requests per second.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * Callers currently waiting for a permit.
+     */
+    public int getQueued() {
+        int total = 0;
+        for (AtomicInteger count : queued) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * Callers of the given priority currently waiting for a permit.
+     */
+    public int getQueued(UpstreamPriority priority) {
+        return queued[priority.ordinal()].get();
+    }
+
+    /**
+     * Permits handed out to callers of the given priority, whether straight away or after waiting.
+     */
+    public long getGranted(UpstreamPriority priority) {
+        return granted[priority.ordinal()].sum();
+    }
+
+    /**
+     * Total time callers of the given priority waited for the permits they were handed.
+     */
+    public long getWaitedNanos(UpstreamPriority priority) {
+        return waitedNanos[priority.ordinal()].sum();
+    }
+
+    /**
+     * Tells {@code listener} the priority and wait in nanoseconds of every permit handed out from now on, for
+     * metrics that need each wait rather than the totals. It is called outside the throttle's lock.
+     */
+    public void setWaitListener(ObjLongConsumer<UpstreamPriority> listener) {
+        this.waitListener = listener;
+    }
+
+    /**
+     * Holds callers of {@code priority} to at most {@code share} of the current rate, between 0 (exclusive) and
+     * 1; a share of 1 lifts the limit. Callers already waiting are held to the new share too.
+     */
+    public void setMaxShare(UpstreamPriority priority, double share) {
+        if (!(share > 0 && share <= 1)) {
+            throw new IllegalArgumentException("Invalid maximum share for " + priority.tag() + " calls: " + share);
+        }
+        List<Runnable> completions;
+        lock.lock();
+        try {
+            maxShares[priority.ordinal()] = share;
+            completions = dispatch(nanoClock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    public double getMaxShare(UpstreamPriority priority) {
+        return maxShares[priority.ordinal()];
+    }
+
+    public long getDelayed() {
+        return delayed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getBackOffs() {
+        return backOffs.sum();
+    }
+
+    public long getPauses() {
+        return pauses.sum();
+    }
+
+    /**
+     * Waits on the calling thread until a permit is available, unless {@link #schedule} has already obtained
+     * one for the call running on it.
+     */
+    public void acquirePermission(UpstreamPriority priority) {
+        if (reservedPermit.get() != null) {
+            reservedPermit.remove();
+            return;
+        }
+        CompletableFuture<Void> permit = request(priority);
+        try {
+            permit.get();
+        } catch (ExecutionException e) {
+            throw (UpstreamThrottledException) e.getCause();
+        } catch (InterruptedException e) {
+            // The dispatcher skips cancelled callers
+            permit.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new UpstreamThrottledException(upstream, "Interrupted while waiting for a permit for upstream " + upstream);
+        }
+    }
+
+    /**
+     * Runs {@code call} on {@code executor} once a permit is available, tagged with {@code priority} and counted
+     * in the caller's {@link UpstreamFanOut}; waiting for the permit does not hold a thread, and the first
+     * request the call makes to this upstream uses it. Stages chained to the returned future before it
+     * completes run tagged with {@code priority} too. Fails with {@link UpstreamThrottledException} if no permit
+     * frees up within {@code max-wait}.
+     */
+    public <T> CompletableFuture<T> schedule(Supplier<T> call, Executor executor, UpstreamPriority priority) {
+        Supplier<T> counted = UpstreamFanOut.propagate(call);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        request(priority).whenComplete((ignored, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            try {
+                executor.execute(() -> priority.run(() -> {
+                    T value;
+                    try {
+                        value = withReservedPermit(counted);
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                    result.complete(value);
+                }));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Completes once a permit is available; the wait holds no thread.
+     */
+    Mono<Void> permit(UpstreamPriority priority) {
+        return Mono.defer(() -> Mono.fromFuture(request(priority)));
+    }
+
+    /**
+     * Queues a caller for a permit. The returned future completes when the permit is handed out, on the calling
+     * thread if one is free, and fails if none is within {@code max-wait}.
+     */
+    CompletableFuture<Void> request(UpstreamPriority priority) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        List<Runnable> completions;
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            if (nextPermitAt(priority, now) - now > maxWaitNanos) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(rejection());
+            }
+            waiters.get(priority.ordinal()).add(new Waiter(priority, now, permit));
+            queued[priority.ordinal()].incrementAndGet();
+            completions = dispatch(now);
+        } finally {
+            lock.unlock();
+        }
+        completions.forEach(Runnable::run);
+        return permit;
+    }
+
+    /**
+     * Hands out the permits that are due and refuses the callers whose wait is up. Meant for the dispatcher
+     * thread, and for tests that move the clock on by hand.
+     */
+    void dispatch() {
+        List<Runnable> completions;
+        lock.lock();
+        try {
+            scheduledDispatch = null;
+            completions = dispatch(nanoClock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Decides, under the lock, who gets a permit now and who is refused; the returned completions tell them
+     * once the lock is released, since a permit's holder may go on to send its request on the same thread.
+     */
+    private List<Runnable> dispatch(long now) {
+        List<Runnable> completions = new ArrayList<>();
+        for (Deque<Waiter> queue : waiters) {
+            // Every caller has the same max-wait, so the head of each queue is the first whose wait is up
+            while (!queue.isEmpty() && now - queue.peek().enqueuedNanos() > maxWaitNanos) {
+                Waiter waiter = dequeue(queue);
+                rejected.increment();
+                completions.add(() -> waiter.permit().completeExceptionally(rejection()));
+            }
+        }
+        while (getQueued() > 0) {
+            long start = nextPermitAt(now);
+            if (start - now > 0) {
+                break;
+            }
+            UpstreamPriority priority = nextPriority(now);
+            if (priority == null) {
+                // Only callers held to their maximum share are waiting, and none of their slots is due
+                break;
+            }
+            Waiter waiter = dequeue(waiters.get(priority.ordinal()));
+            if (waiter.permit().isDone()) {
+                continue;
+            }
+            nextPermitNanos = start + intervalNanos();
+            if (maxShares[priority.ordinal()] < 1) {
+                nextSharePermitNanos[priority.ordinal()] = nextSharePermitAt(priority, now) + shareIntervalNanos(priority);
+            }
+            long waited = now - waiter.enqueuedNanos();
+            granted[waiter.priority().ordinal()].increment();
+            waitedNanos[waiter.priority().ordinal()].add(waited);
+            if (waited > 0) {
+                delayed.increment();
+            }
+            ObjLongConsumer<UpstreamPriority> listener = waitListener;
+            completions.add(() -> {
+                listener.accept(waiter.priority(), waited);
+                waiter.permit().complete(null);
+            });
+        }
+        if (getQueued() > 0) {
+            // Come back when the next permit a waiting caller may have is due, or earlier if a caller's wait is up
+            // before that
+            long wakeUp = now + maxWaitNanos + 1;
+            for (UpstreamPriority priority : PRIORITIES) {
+                Deque<Waiter> queue = waiters.get(priority.ordinal());
+                if (queue.isEmpty()) {
+                    continue;
+                }
+                long due = nextPermitAt(priority, now);
+                if (due - wakeUp < 0) {
+                    wakeUp = due;
+                }
+                if (queue.peek().enqueuedNanos() + maxWaitNanos + 1 - wakeUp < 0) {
+                    wakeUp = queue.peek().enqueuedNanos() + maxWaitNanos + 1;
+                }
+            }
+            scheduleDispatch(wakeUp, now);
+        }
+        return completions;
+    }
+
+    /**
+     * The priority the next permit goes to: the most urgent one waiting, unless a less urgent one has earned a
+     * whole permit through its minimum share. A priority that has used up its maximum share for now is passed
+     * over; {@code null} if no other is waiting.
+     */
+    private UpstreamPriority nextPriority(long now) {
+        UpstreamPriority mostUrgent = null;
+        UpstreamPriority owed = null;
+        for (UpstreamPriority priority : PRIORITIES) {
+            int index = priority.ordinal();
+            if (waiters.get(index).isEmpty()) {
+                // Shares are only earned while waiting, so an idle priority cannot save up permits for later
+                shareCredits[index] = 0;
+            } else if (maxShares[index] < 1 && nextSharePermitAt(priority, now) - now > 0) {
+                // Held back by its maximum share, so it neither gets this permit nor earns a share of it
+                continue;
+            } else if (mostUrgent == null) {
+                mostUrgent = priority;
+            } else {
+                shareCredits[index] += minShares[index];
+                if (owed == null && shareCredits[index] >= PERMIT) {
+                    owed = priority;
+                }
+            }
+        }
+        if (owed == null) {
+            return mostUrgent;
+        }
+        shareCredits[owed.ordinal()] -= PERMIT;
+        return owed;
+    }
+
+    private Waiter dequeue(Deque<Waiter> queue) {
+        Waiter waiter = queue.poll();
+        queued[waiter.priority().ordinal()].decrementAndGet();
+        return waiter;
+    }
+
+    private void scheduleDispatch(long atNanos, long now) {
+        if (scheduledDispatch != null) {
+            if (scheduledDispatchNanos - atNanos <= 0) {
+                return;
+            }
+            scheduledDispatch.cancel(false);
+        }
+        scheduledDispatchNanos = atNanos;
+        scheduledDispatch = dispatcher.schedule((Runnable) this::dispatch, Math.max(0, atNanos - now), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * When the next permit is due, moving saved-up permits beyond a second's worth out of reach first.
+     */
+    private long nextPermitAt(long now) {
+        long earliest = now - Math.max(0, BURST_NANOS - intervalNanos());
+        if (nextPermitNanos - earliest < 0) {
+            nextPermitNanos = earliest;
+        }
+        return pausedUntilNanos - nextPermitNanos > 0 ? pausedUntilNanos : nextPermitNanos;
+    }
+
+    /**
+     * When a caller of {@code priority} may next have a permit, allowing for its maximum share.
+     */
+    private long nextPermitAt(UpstreamPriority priority, long now) {
+        long next = nextPermitAt(now);
+        if (maxShares[priority.ordinal()] >= 1) {
+            return next;
+        }
+        long nextShare = nextSharePermitAt(priority, now);
+        return nextShare - next > 0 ? nextShare : next;
+    }
+
+    /**
+     * When the next slot of a priority's maximum share is due, allowing up to a second's worth of its share
+     * at once, like {@link #nextPermitAt(long)}.
+     */
+    private long nextSharePermitAt(UpstreamPriority priority, long now) {
+        int index = priority.ordinal();
+        long earliest = now - Math.max(0, BURST_NANOS - shareIntervalNanos(priority));
+        if (nextSharePermitNanos[index] - earliest < 0) {
+            nextSharePermitNanos[index] = earliest;
+        }
+        return nextSharePermitNanos[index];
+    }
+
+    private long shareIntervalNanos(UpstreamPriority priority) {
+        return (long) (intervalNanos() / maxShares[priority.ordinal()]);
+    }
+
+    /**
+     * Adapts the rate to an answer of the upstream: backs off on 503, 429 or {@code Retry-After}, ramps up on
+     * any other answer below 500 and leaves it alone otherwise.
+     */
+    public void onResponse(int status, String retryAfter) {
+        Duration pause = parseRetryAfter(retryAfter);
+        if (status == 503 || status == 429 || pause != null) {
+            backOff(status, pause);
+        } else if (status < 500) {
+            rampUp();
+        }
+    }
+
+    private void backOff(int status, Duration pause) {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            if (now - lastBackOffNanos >= BACK_OFF_INTERVAL_NANOS) {
+                rate = Math.max(minRate, rate * decreaseFactor);
+                lastBackOffNanos = now;
+                // Permits saved up while the upstream looked healthy are dropped
+                if (nextPermitNanos - now < 0) {
+                    nextPermitNanos = now;
+                }
+                backOffs.increment();
+            }
+            if (pause != null) {
+                long pauseUntil = now + Math.min(pause.toNanos(), maxRetryAfterNanos);
+                if (pauseUntil - pausedUntilNanos > 0) {
+                    pausedUntilNanos = pauseUntil;
+                }
+                pauses.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.warn("Upstream throttled, backing off: upstream={}, status={}, retryAfter={}, rate={}", upstream, status, pause, rate);
+    }
+
+    private void rampUp() {
+        if (rate >= maxRate) {
+            return;
+        }
+        lock.lock();
+        try {
+            rate = Math.min(maxRate, rate + increase / rate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long intervalNanos() {
+        return (long) (NANOS_PER_SECOND / rate);
+    }
+
+    private <T> T withReservedPermit(Supplier<T> call) {
+        reservedPermit.set(Boolean.TRUE);
+        try {
+            return call.get();
+        } finally {
+            reservedPermit.remove();
+        }
+    }
+
+    private record Waiter(UpstreamPriority priority, long enqueuedNanos, CompletableFuture<Void> permit) {
+    }
+
+    private UpstreamThrottledException rejection() {
+        return new UpstreamThrottledException(upstream, "No permit for upstream " + upstream + " within "
+                + Duration.ofNanos(maxWaitNanos).toMillis() + " ms");
+    }
+
+    /**
+     * Reads a {@code Retry-After} value given either as delay-seconds or as an HTTP date; {@code null} if there
+     * is none or it cannot be read.
+     */
+    static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            // Not delay-seconds, so it should be a date
+        }
+        try {
+            Duration untilDate = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            return untilDate.isNegative() ? Duration.ZERO : untilDate;
+        } catch (DateTimeParseException e) {
+            logger.debug("Ignoring unreadable Retry-After header: retryAfter={}", retryAfter);
+            return null;
+        }
+    }
+}
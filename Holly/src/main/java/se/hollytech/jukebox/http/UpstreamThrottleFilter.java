@@ -0,0 +1,31 @@
+package se.hollytech.jukebox.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@code WebClient} counterpart of {@link UpstreamThrottleInterceptor}. The wait for a permit holds no
+ * thread. Its requests are all {@link UpstreamPriority#INTERACTIVE}: the reactive service only serves the
+ * single-artist endpoints, and cache refreshes go through the blocking service.
+ */
+public class UpstreamThrottleFilter implements ExchangeFilterFunction {
+
+    private final UpstreamThrottles throttles;
+
+    public UpstreamThrottleFilter(UpstreamThrottles throttles) {
+        this.throttles = throttles;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        UpstreamThrottle throttle = throttles.forUri(request.url());
+        return throttle.permit(UpstreamPriority.INTERACTIVE)
+                .then(Mono.defer(() -> next.exchange(request)))
+                .doOnNext(response -> throttle.onResponse(response.statusCode().value(),
+                        response.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER)));
+    }
+}
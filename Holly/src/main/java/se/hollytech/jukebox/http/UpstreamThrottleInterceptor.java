@@ -0,0 +1,33 @@
+package se.hollytech.jukebox.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Puts every {@code RestTemplate} request through the throttle of its upstream: waits for a permit, at the
+ * {@link UpstreamPriority} the calling thread is tagged with, before sending it and reports the status and
+ * {@code Retry-After} of the answer back. A request refused a permit fails with
+ * {@link UpstreamThrottledException} without being sent.
+ */
+public class UpstreamThrottleInterceptor implements ClientHttpRequestInterceptor {
+
+    private final UpstreamThrottles throttles;
+
+    public UpstreamThrottleInterceptor(UpstreamThrottles throttles) {
+        this.throttles = throttles;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        UpstreamThrottle throttle = throttles.forUri(request.getURI());
+        throttle.acquirePermission(UpstreamPriority.current());
+        ClientHttpResponse response = execution.execute(request, body);
+        throttle.onResponse(response.getStatusCode().value(), response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        return response;
+    }
+}
@@ -0,0 +1,64 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the state of every upstream throttle as {@code jukebox.http.throttle.*} meters: the permitted rate,
+ * the callers waiting for a permit and a histogram of the time they waited by priority, and counts of delayed
+ * and rejected calls, back-offs and {@code Retry-After} pauses.
+ */
+public class UpstreamThrottleMetrics implements MeterBinder {
+
+    private final UpstreamThrottles throttles;
+
+    public UpstreamThrottleMetrics(UpstreamThrottles throttles) {
+        this.throttles = throttles;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        throttles.getThrottles().forEach((upstream, throttle) -> {
+            Timer[] waits = new Timer[UpstreamPriority.values().length];
+            Gauge.builder("jukebox.http.throttle.rate", throttle, UpstreamThrottle::getRate)
+                    .description("Currently permitted requests per second")
+                    .baseUnit("requests/s")
+                    .tag("upstream", upstream)
+                    .register(registry);
+            for (UpstreamPriority priority : UpstreamPriority.values()) {
+                Gauge.builder("jukebox.http.throttle.queued", throttle, t -> t.getQueued(priority))
+                        .description("Callers waiting for a permit")
+                        .tag("upstream", upstream)
+                        .tag("priority", priority.tag())
+                        .register(registry);
+                waits[priority.ordinal()] = Timer.builder("jukebox.http.throttle.wait")
+                        .description("Time callers waited for the permits they were handed")
+                        .tag("upstream", upstream)
+                        .tag("priority", priority.tag())
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+            throttle.setWaitListener((priority, waitedNanos) ->
+                    waits[priority.ordinal()].record(waitedNanos, TimeUnit.NANOSECONDS));
+            eventCounter(registry, upstream, throttle, "delayed", UpstreamThrottle::getDelayed);
+            eventCounter(registry, upstream, throttle, "rejected", UpstreamThrottle::getRejected);
+            eventCounter(registry, upstream, throttle, "back-off", UpstreamThrottle::getBackOffs);
+            eventCounter(registry, upstream, throttle, "retry-after", UpstreamThrottle::getPauses);
+        });
+    }
+
+    private static void eventCounter(MeterRegistry registry, String upstream, UpstreamThrottle throttle, String event,
+                                     ToDoubleFunction<UpstreamThrottle> count) {
+        FunctionCounter.builder("jukebox.http.throttle.events", throttle, count)
+                .description("Calls delayed or rejected by the throttle, and back-offs and pauses of its rate")
+                .tag("upstream", upstream)
+                .tag("event", event)
+                .register(registry);
+    }
+}
@@ -0,0 +1,15 @@
+package se.hollytech.jukebox.http;
+
+public class UpstreamThrottledException extends RuntimeException {
+
+    private final String upstream;
+
+    public UpstreamThrottledException(String upstream, String message) {
+        super(message);
+        this.upstream = upstream;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+}
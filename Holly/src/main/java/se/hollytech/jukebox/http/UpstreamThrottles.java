@@ -0,0 +1,71 @@
+package se.hollytech.jukebox.http;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * One {@link UpstreamThrottle} per configured upstream, looked up by request host like the clients of
+ * {@link UpstreamClientHttpRequestFactory}; requests to any other host share the default throttle. The
+ * throttles share one dispatcher thread that hands out the permits callers queue for.
+ */
+public class UpstreamThrottles implements DisposableBean {
+
+    private final Map<String, UpstreamThrottle> throttles = new LinkedHashMap<>();
+    private final Map<String, UpstreamThrottle> throttlesByHost = new LinkedHashMap<>();
+    private final UpstreamThrottle defaultThrottle;
+    // Only starts its thread once some caller has to wait
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("upstream-throttle").daemon().factory());
+
+    public UpstreamThrottles(HttpClientProperties properties) {
+        properties.getUpstreams().forEach((name, upstream) -> {
+            UpstreamThrottle throttle = new UpstreamThrottle(name, upstream, properties.getThrottle(), dispatcher);
+            throttles.put(name, throttle);
+            if (upstream.getHost() != null) {
+                throttlesByHost.put(upstream.getHost().toLowerCase(), throttle);
+            }
+        });
+        defaultThrottle = new UpstreamThrottle(UpstreamClientHttpRequestFactory.DEFAULT_UPSTREAM, properties.getDefaults(),
+                properties.getThrottle(), dispatcher);
+        throttles.put(UpstreamClientHttpRequestFactory.DEFAULT_UPSTREAM, defaultThrottle);
+    }
+
+    /**
+     * Throttles that never make a caller wait, for running without upstream limits.
+     */
+    public static UpstreamThrottles disabled() {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.getDefaults().setMaxRate(Double.POSITIVE_INFINITY);
+        return new UpstreamThrottles(properties);
+    }
+
+    public UpstreamThrottle forUri(URI uri) {
+        String host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
+        return throttlesByHost.getOrDefault(host, defaultThrottle);
+    }
+
+    /**
+     * The throttle of the named upstream, or the default one if there is no such upstream.
+     */
+    public UpstreamThrottle get(String upstream) {
+        return throttles.getOrDefault(upstream, defaultThrottle);
+    }
+
+    /**
+     * Every throttle by upstream name, for metrics.
+     */
+    public Map<String, UpstreamThrottle> getThrottles() {
+        return Collections.unmodifiableMap(throttles);
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+    }
+}
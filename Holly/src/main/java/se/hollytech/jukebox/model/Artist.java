@@ -1,6 +1,169 @@
 package se.hollytech.jukebox.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An artist with its description and the albums that have cover art. {@code partial} is set when the
+ * request's latency budget ran out before every album or the description was resolved, or when one of
+ * those lookups failed, and is only written out when set.
+ * <p>
+ * Otherwise a plain value like a record, except that a long description is held deflated and inflated again
+ * whenever it is read. The description is usually the bulk of a cached artist, while it is only read to write
+ * a response, which for a cached artist mostly comes from the serialized response or the ETag anyway. The JSON
+ * form is the same as for the record this used to be.
+ */
+@JsonPropertyOrder({"name", "description", "mbid", "albums", "partial"})
+public final class Artist {
+
+    // Shorter descriptions do not shrink by enough to pay for inflating them on every read
+    static final int COMPRESS_FROM_BYTES = 512;
+
+    private final String name;
+    // The description as is, or its deflated UTF-8 bytes
+    private final Object description;
+    private final int descriptionBytes;
+    private final String mbid;
+    private final List<Album> albums;
+    private final boolean partial;
+
+    @JsonCreator
+    public Artist(@JsonProperty("name") String name, @JsonProperty("description") String description,
+                  @JsonProperty("mbid") String mbid, @JsonProperty("albums") List<Album> albums,
+                  @JsonProperty("partial") boolean partial) {
+        this.name = name;
+        this.mbid = mbid;
+        this.albums = albums;
+        this.partial = partial;
+        byte[] utf8 = description != null ? description.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] deflated = utf8 != null && utf8.length >= COMPRESS_FROM_BYTES ? deflate(utf8) : null;
+        if (deflated != null && deflated.length < utf8.length) {
+            this.description = deflated;
+            this.descriptionBytes = utf8.length;
+        } else {
+            this.description = description;
+            this.descriptionBytes = -1;
+        }
+    }
+
+    public Artist(String name, String description, String mbid, List<Album> albums) {
+        this(name, description, mbid, albums, false);
+    }
+
+    private Artist(Artist artist, List<Album> albums) {
+        this.name = artist.name;
+        this.description = artist.description;
+        this.descriptionBytes = artist.descriptionBytes;
+        this.mbid = artist.mbid;
+        this.albums = albums;
+        this.partial = artist.partial;
+    }
+
+    @JsonProperty
+    public String name() {
+        return name;
+    }
+
+    @JsonProperty
+    public String description() {
+        return description instanceof byte[] deflated ? inflate(deflated, descriptionBytes) : (String) description;
+    }
+
+    @JsonProperty
+    public String mbid() {
+        return mbid;
+    }
+
+    @JsonProperty
+    public List<Album> albums() {
+        return albums;
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean partial() {
+        return partial;
+    }
+
+    /**
+     * This artist with other albums, keeping the description in the form it is held in.
+     */
+    public Artist withAlbums(List<Album> albums) {
+        return new Artist(this, albums);
+    }
+
+    /**
+     * The length of the deflated description as held in memory, or -1 if the description is held as is.
+     */
+    public int deflatedDescriptionLength() {
+        return description instanceof byte[] deflated ? deflated.length : -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        // Equal descriptions are always held in the same form, so the held forms can be compared directly
+        return o instanceof Artist other
+                && partial == other.partial
+                && Objects.equals(name, other.name)
+                && Objects.deepEquals(description, other.description)
+                && Objects.equals(mbid, other.mbid)
+                && Objects.equals(albums, other.albums);
+    }
+
+    @Override
+    public int hashCode() {
+        int descriptionHash = description instanceof byte[] deflated ? Arrays.hashCode(deflated) : Objects.hashCode(description);
+        return Objects.hash(name, descriptionHash, mbid, albums, partial);
+    }
+
+    @Override
+    public String toString() {
+        return "Artist[name=" + name + ", description=" + description() + ", mbid=" + mbid + ", albums=" + albums
+                + ", partial=" + partial + "]";
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
 
-public record Artist(String name, String description, String mbid, List<Album> albums) {
-}
\ No newline at end of file
+    private static String inflate(byte[] deflated, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            byte[] bytes = new byte[length];
+            int inflated = 0;
+            while (inflated < length && !inflater.finished() && !inflater.needsInput()) {
+                inflated += inflater.inflate(bytes, inflated, length - inflated);
+            }
+            return new String(bytes, 0, inflated, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            // Only ever inflates what the constructor deflated
+            throw new IllegalStateException("Corrupt deflated description", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package se.hollytech.jukebox.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome for one key of a batch request: the artist when {@code status} is {@code OK}, otherwise
+ * an error message.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ArtistBatchItem(String key, Status status, Artist artist, String error) {
+
+    public enum Status {
+        OK, INVALID, NOT_FOUND, RATE_LIMITED, ERROR
+    }
+
+    public static ArtistBatchItem ok(String key, Artist artist) {
+        return new ArtistBatchItem(key, Status.OK, artist, null);
+    }
+
+    public static ArtistBatchItem failed(String key, Status status, String error) {
+        return new ArtistBatchItem(key, status, null, error);
+    }
+}
@@ -0,0 +1,69 @@
+package se.hollytech.jukebox.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the loads of cache misses as {@code jukebox.cache.loads}, tagged by cache and result ({@code success},
+ * {@code empty} when there was nothing to cache, or {@code failure}). {@link JukeboxService} loads misses
+ * outside the caches so that waiting callers are not pinned, which means Caffeine's own {@code cache.load}
+ * statistics only see its background refreshes.
+ */
+public class CacheLoadMetrics {
+
+    private final MeterRegistry registry;
+
+    public CacheLoadMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Metrics that record nothing, for services built outside the application context.
+     */
+    public static CacheLoadMetrics disabled() {
+        // A composite registry without registries only hands out no-op meters
+        return new CacheLoadMetrics(new CompositeMeterRegistry());
+    }
+
+    <V> V time(String cache, Supplier<V> load) {
+        long start = System.nanoTime();
+        String result = "failure";
+        try {
+            V value = load.get();
+            result = value != null ? "success" : "empty";
+            return value;
+        } finally {
+            record(cache, result, start);
+        }
+    }
+
+    /**
+     * Like {@link #time}, for a load that completes asynchronously; it is timed until the future completes.
+     */
+    <V> CompletableFuture<V> timeAsync(String cache, Supplier<CompletableFuture<V>> load) {
+        long start = System.nanoTime();
+        CompletableFuture<V> future;
+        try {
+            future = load.get();
+        } catch (RuntimeException e) {
+            record(cache, "failure", start);
+            throw e;
+        }
+        return future.whenComplete((value, error) ->
+                record(cache, error != null ? "failure" : value != null ? "success" : "empty", start));
+    }
+
+    private void record(String cache, String result, long start) {
+        Timer.builder("jukebox.cache.loads")
+                .description("Loads of cache misses from the persistent tier or the upstreams")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
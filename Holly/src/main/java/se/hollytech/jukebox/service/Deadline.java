@@ -0,0 +1,63 @@
+package se.hollytech.jukebox.service;
+
+import java.time.Duration;
+
+/**
+ * The point in time by which a request wants its answer, taken from its latency budget when it starts.
+ * Upstream calls that would only start after it are skipped, and stages still running when it passes are
+ * left out of the answer.
+ */
+final class Deadline {
+
+    static final Deadline NONE = new Deadline(0, false);
+
+    private final long atNanos;
+    private final boolean bounded;
+    private volatile boolean cutOff;
+
+    private Deadline(long atNanos, boolean bounded) {
+        this.atNanos = atNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * A deadline {@code budget} from now, or {@link #NONE} if the budget is {@code null}, zero or negative.
+     */
+    static Deadline after(Duration budget) {
+        if (budget == null || budget.isZero() || budget.isNegative()) {
+            return NONE;
+        }
+        return new Deadline(System.nanoTime() + budget.toNanos(), true);
+    }
+
+    boolean isBounded() {
+        return bounded;
+    }
+
+    boolean hasPassed() {
+        return bounded && System.nanoTime() - atNanos >= 0;
+    }
+
+    /**
+     * Whether an upstream call that is about to start should be skipped because the deadline has passed, in
+     * which case the answer is remembered to be incomplete.
+     */
+    boolean skips() {
+        if (hasPassed()) {
+            cutOff = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether any upstream call was skipped for this deadline.
+     */
+    boolean isCutOff() {
+        return cutOff;
+    }
+
+    long remainingNanos() {
+        return bounded ? Math.max(0, atNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,20 @@
+package se.hollytech.jukebox.service;
+
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.ArtistLookup;
+
+/**
+ * Receives the parts of a discography as {@link JukeboxService#streamArtistDiscography} resolves them.
+ * Albums and the description are delivered from upstream threads, possibly concurrently.
+ */
+public interface DiscographyListener {
+
+    void onArtist(ArtistLookup artist);
+
+    void onAlbum(Album album);
+
+    /**
+     * Called once per discography; {@code description} is {@code null} when the artist has none.
+     */
+    void onDescription(String description);
+}
@@ -3,186 +3,483 @@ package se.hollytech.jukebox.service;
 import se.hollytech.jukebox.model.Artist;
 import se.hollytech.jukebox.model.ArtistLookup;
 import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.ArtistBatchItem;
+import se.hollytech.jukebox.cache.PersistentCache;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.batch.MicroBatcher;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.http.HttpEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import se.hollytech.jukebox.http.UpstreamFanOut;
+import se.hollytech.jukebox.http.UpstreamHedging;
+import se.hollytech.jukebox.http.UpstreamPriority;
+import se.hollytech.jukebox.http.UpstreamThrottle;
+import se.hollytech.jukebox.http.UpstreamThrottledException;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.service.UpstreamResponseParser.ArtistDetailsResponse;
+import se.hollytech.jukebox.service.UpstreamResponseParser.JsonReader;
+import se.hollytech.jukebox.service.UpstreamResponseParser.ReleaseGroup;
+import se.hollytech.jukebox.service.UpstreamResponseParser.WikipediaExtracts;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class JukeboxService {
 
     private static final Logger logger = LoggerFactory.getLogger(JukeboxService.class);
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
-    private static final String MUSICBRAINZ_API_URL = "https://musicbrainz.org/ws/2/artist/";
-    private static final String COVER_ART_API_URL = "http://coverartarchive.org/release-group/";
-    private static final String WIKIPEDIA_API_URL = "https://en.wikipedia.org/w/api.php";
-    private static final String WIKIDATA_API_URL = "https://www.wikidata.org/w/api.php";
+    private final JsonFactory jsonFactory;
+    private final Executor upstreamExecutor;
+    private final UpstreamThrottle musicBrainzThrottle;
+    private final UpstreamHedging upstreamHedging;
+    private final CacheLoadMetrics cacheLoadMetrics;
+    private final Cache<String, ArtistLookup> artistLookupCache;
+    private final Cache<String, Artist> artistDetailsCache;
+    private final Cache<String, String> coverArtCache;
+    private final Cache<String, Boolean> artistNotFoundCache;
+    private final Cache<String, Boolean> missingCoverArtCache;
+    private final Cache<String, Boolean> missingDescriptionCache;
+    private final PersistentCache<ArtistLookup> persistentLookupCache;
+    private final PersistentCache<Artist> persistentDetailsCache;
+    private final MicroBatcher<String, String> wikipediaBatcher;
+    private final MicroBatcher<String, String> wikidataBatcher;
+    private final Map<String, CompletableFuture<ArtistLookup>> inFlightLookups = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Artist>> inFlightDetails = new ConcurrentHashMap<>();
+    // Loads within a latency budget, kept apart so that callers without one never get their partial answers
+    private final Map<String, CompletableFuture<Artist>> inFlightBudgetedDetails = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> inFlightCoverArt = new ConcurrentHashMap<>();
+    private static final int MAX_BATCH_SIZE = 100;
 
-    public JukeboxService(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    public JukeboxService(RestTemplate restTemplate, ObjectMapper objectMapper,
+                          @Qualifier("upstreamExecutor") Executor upstreamExecutor,
+                          UpstreamThrottles upstreamThrottles,
+                          CacheManager cacheManager,
+                          PersistentCacheManager persistentCacheManager,
+                          MicroBatchScheduler microBatchScheduler,
+                          UpstreamHedging upstreamHedging,
+                          CacheLoadMetrics cacheLoadMetrics) {
         this.restTemplate = restTemplate;
-        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.upstreamExecutor = upstreamExecutor;
+        this.musicBrainzThrottle = upstreamThrottles.forUri(UpstreamUrls.MUSICBRAINZ);
+        this.upstreamHedging = upstreamHedging;
+        this.cacheLoadMetrics = cacheLoadMetrics;
+        this.artistLookupCache = nativeCache(cacheManager, "artistLookupCache");
+        this.artistDetailsCache = nativeCache(cacheManager, "artistDetailsCache");
+        this.coverArtCache = nativeCache(cacheManager, "coverArtCache");
+        this.artistNotFoundCache = nativeCache(cacheManager, "artistNotFoundCache");
+        this.missingCoverArtCache = nativeCache(cacheManager, "missingCoverArtCache");
+        this.missingDescriptionCache = nativeCache(cacheManager, "missingDescriptionCache");
+        this.persistentLookupCache = persistentCacheManager.getCache("artistLookupCache", ArtistLookup.class);
+        this.persistentDetailsCache = sharingCoverArt(
+                persistentCacheManager.getCache("artistDetailsCache", Artist.class), coverArtCache);
+        this.wikipediaBatcher = microBatchScheduler.batcher("wikipedia", this::fetchWikipediaDescriptions);
+        this.wikidataBatcher = microBatchScheduler.batcher("wikidata", this::fetchEnwikiTitles);
     }
 
-    @Cacheable(value = "artistLookupCache", key = "#artistName.toLowerCase()")
-    @RateLimiter(name = "musicBrainzApi", fallbackMethod = "rateLimitFallback")
+    /**
+     * Resolves the MBID for an artist name through {@code artistLookupCache}, falling back to the persistent
+     * tier before MusicBrainz. Concurrent misses for the same name wait for a single load. Names MusicBrainz knows nothing about are remembered in
+     * {@code artistNotFoundCache} for a short while instead of being queried again.
+     */
     public ArtistLookup getArtistMbid(String artistName) {
         if (artistName == null || artistName.trim().isEmpty()) {
             logger.warn("Invalid artist name provided: artistName={}", artistName);
             throw new IllegalArgumentException("Artist name cannot be empty");
         }
+        String key = artistName.toLowerCase();
+        if (artistNotFoundCache.getIfPresent(key) != null) {
+            logger.debug("Artist known to be missing, skipping lookup: artistName={}", artistName);
+            throw new ArtistNotFoundException("No artists found for query: " + artistName);
+        }
+        try {
+            return getOrLoad("artistLookupCache", artistLookupCache, persistentLookupCache, inFlightLookups, key,
+                    k -> loadArtistMbid(artistName));
+        } catch (ArtistNotFoundException e) {
+            artistNotFoundCache.put(key, Boolean.TRUE);
+            throw e;
+        }
+    }
 
-        logger.info("Processing MBID lookup request: artistName={}", artistName);
+    /**
+     * Loads the MBID for an artist name from MusicBrainz, bypassing the caches, and writes it to the
+     * persistent tier. Used by the cache itself for misses and background refreshes.
+     */
+    public ArtistLookup loadArtistMbid(String artistName) {
+        ArtistLookup artistLookup = fetchArtistMbid(artistName);
+        persistentLookupCache.put(artistName.toLowerCase(), artistLookup);
+        return artistLookup;
+    }
 
-        String url = UriComponentsBuilder.fromHttpUrl(MUSICBRAINZ_API_URL)
-                .queryParam("query", "artist:" + artistName)
-                .queryParam("fmt", "json")
-                .toUriString();
+    private ArtistLookup fetchArtistMbid(String artistName) {
+        logger.info("Processing MBID lookup request: artistName={}", artistName);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "JukeboxApi/1.0 (your.email@example.com)");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        String url = UpstreamUrls.artistSearch(artistName);
 
         logger.debug("Calling MusicBrainz API for lookup: url={}", url);
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-        String jsonResponse = response.getBody();
-
-        if (jsonResponse == null || jsonResponse.contains("\"artists\":[]")) {
+        ArtistLookup artist = fetchMusicBrainz(url, UpstreamResponseParser::readFirstArtist);
+        if (artist == null) {
             logger.warn("No artists found: artistName={}", artistName);
             throw new ArtistNotFoundException("No artists found for query: " + artistName);
         }
+        if (artist.mbid().isEmpty() || artist.name().isEmpty()) {
+            logger.warn("Invalid artist data: artistName={}, mbid={}, name={}", artistName, artist.mbid(), artist.name());
+            throw new ArtistNotFoundException("Invalid artist data for query: " + artistName);
+        }
 
-        try {
-            logger.debug("Parsing MusicBrainz API response: artistName={}", artistName);
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            JsonNode artist = root.path("artists").get(0);
-            if (artist.isMissingNode()) {
-                logger.warn("No valid artist data in response: artistName={}", artistName);
-                throw new ArtistNotFoundException("No valid artist data found for query: " + artistName);
-            }
-
-            String mbid = artist.path("id").asText();
-            String name = artist.path("name").asText();
+        logger.info("Successfully retrieved MBID: artistName={}, mbid={}", artistName, artist.mbid());
+        return artist;
+    }
 
-            if (mbid.isEmpty() || name.isEmpty()) {
-                logger.warn("Invalid artist data: artistName={}, mbid={}, name={}", artistName, mbid, name);
-                throw new ArtistNotFoundException("Invalid artist data for query: " + artistName);
-            }
+    /**
+     * Resolves artist details through {@code artistDetailsCache}, falling back to the persistent tier
+     * before any upstream call. Concurrent misses for the same MBID wait for a single load, and MBIDs
+     * MusicBrainz has no data for are remembered in {@code artistNotFoundCache} like unknown names.
+     */
+    public Artist getArtistDetails(String mbid) {
+        return getArtistDetails(mbid, Deadline.NONE);
+    }
 
-            logger.info("Successfully retrieved MBID: artistName={}, mbid={}", artistName, mbid);
-            return new ArtistLookup(name, mbid);
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse MusicBrainz API response: artistName={}, error={}", artistName, e.getMessage(), e);
-            throw new MusicBrainzApiException("Failed to parse response from MusicBrainz API", e);
-        } catch (Exception e) {
-            logger.error("Failed to fetch artist MBID: artistName={}, error={}", artistName, e.getMessage(), e);
-            throw new MusicBrainzApiException("Failed to fetch artist MBID: " + e.getMessage(), e);
-        }
+    /**
+     * Like {@link #getArtistDetails(String)}, but a load answers within {@code budget} with whatever it has
+     * resolved by then: an artist marked {@link Artist#partial()}, without the description or the albums
+     * still outstanding. The MusicBrainz call is made whatever is left of the budget, since there is no answer
+     * without it; Wikipedia, Wikidata and cover art calls are skipped once it is spent. A partial artist is
+     * cached for {@code jukebox.cache.artist.partial-ttl} only and is not persisted, so a later request
+     * completes it.
+     * <p>
+     * A caller that finds a load for the MBID under way waits for it no longer than its own budget allows, and
+     * then answers from a load of its own. Loads within a budget are shared only with other callers that have
+     * one, so a caller without a budget never gets a partial answer cut short by someone else's.
+     */
+    public Artist getArtistDetails(String mbid, Duration budget) {
+        return getArtistDetails(mbid, Deadline.after(budget));
     }
 
-    @Cacheable(value = "artistDetailsCache", key = "#mbid")
-    @RateLimiter(name = "musicBrainzApi", fallbackMethod = "rateLimitDetailsFallback")
-    public Artist getArtistDetails(String mbid) {
+    private Artist getArtistDetails(String mbid, Deadline deadline) {
         if (mbid == null || mbid.trim().isEmpty()) {
             logger.warn("Invalid MBID provided: mbid={}", mbid);
             throw new IllegalArgumentException("MBID cannot be empty");
         }
-
-        logger.info("Processing artist details request: mbid={}", mbid);
-
-        String url = UriComponentsBuilder.fromHttpUrl(MUSICBRAINZ_API_URL + mbid)
-                .queryParam("fmt", "json")
-                .queryParam("inc", "url-rels+release-groups")
-                .toUriString();
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "JukeboxApi/1.0 (your.email@example.com)");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        logger.debug("Calling MusicBrainz API for details: url={}", url);
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-        String jsonResponse = response.getBody();
-
-        if (jsonResponse == null) {
-            logger.warn("No data returned for MBID: mbid={}", mbid);
+        if (artistNotFoundCache.getIfPresent(mbid) != null) {
+            logger.debug("Artist known to be missing, skipping details lookup: mbid={}", mbid);
             throw new ArtistNotFoundException("No data found for MBID: " + mbid);
         }
+        try {
+            if (!deadline.isBounded()) {
+                return getOrLoad("artistDetailsCache", artistDetailsCache, persistentDetailsCache, inFlightDetails, mbid,
+                        key -> loadArtistDetails(key, deadline));
+            }
+            // A load without a budget is under way: its complete answer is worth waiting for while the budget lasts
+            CompletableFuture<Artist> complete = inFlightDetails.get(mbid);
+            Artist artist = complete != null ? await(complete, deadline) : null;
+            if (artist != null) {
+                return artist;
+            }
+            return getOrLoad("artistDetailsCache", artistDetailsCache, persistentDetailsCache, inFlightBudgetedDetails, mbid,
+                    deadline, key -> loadArtistDetails(key, deadline));
+        } catch (ArtistNotFoundException e) {
+            artistNotFoundCache.put(mbid, Boolean.TRUE);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the cached value for {@code key}, or once for all concurrent callers promotes it from the
+     * persistent tier or loads it, and caches it unless it is {@code null}. Unlike
+     * {@link Cache#get(Object, Function)}, the load runs outside the cache's map locks, so a virtual thread
+     * waiting on an upstream call is not pinned to its carrier, and neither are the callers waiting for it.
+     * The load is timed in {@link CacheLoadMetrics} under {@code cacheName}.
+     */
+    private <V> V getOrLoad(String cacheName, Cache<String, V> cache, PersistentCache<V> persistent,
+                            Map<String, CompletableFuture<V>> inFlight, String key, Function<String, V> loader) {
+        return getOrLoad(cacheName, cache, persistent, inFlight, key, Deadline.NONE, loader);
+    }
 
+    /**
+     * Like {@link #getOrLoad(String, Cache, PersistentCache, Map, String, Function)}, but a caller waits for
+     * another caller's load only until {@code deadline}, and then loads the value itself without sharing it.
+     */
+    private <V> V getOrLoad(String cacheName, Cache<String, V> cache, PersistentCache<V> persistent,
+                            Map<String, CompletableFuture<V>> inFlight, String key, Deadline deadline,
+                            Function<String, V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> pending = inFlight.putIfAbsent(key, load);
+        if (pending != null) {
+            V shared = await(pending, deadline);
+            if (shared != null || !deadline.isBounded()) {
+                return shared;
+            }
+            logger.debug("Latency budget spent waiting for another load, loading without it: cache={}, key={}", cacheName, key);
+            return cacheLoadMetrics.time(cacheName, () -> store(cache, key, loader.apply(key)));
+        }
         try {
-            logger.debug("Parsing MusicBrainz API response for details: mbid={}", mbid);
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            String name = root.path("name").asText();
-            String responseMbid = root.path("id").asText();
-
-            if (responseMbid.isEmpty() || name.isEmpty()) {
-                logger.warn("Invalid artist data: mbid={}, name={}", mbid, name);
-                throw new ArtistNotFoundException("Invalid artist data for MBID: " + mbid);
+            // A load that finished between the cache miss and taking the slot has already cached its value
+            V value = cache.getIfPresent(key);
+            if (value == null) {
+                value = cacheLoadMetrics.time(cacheName, () -> {
+                    V promoted = promote(cache, persistent, key);
+                    if (promoted != null) {
+                        return promoted;
+                    }
+                    return store(cache, key, loader.apply(key));
+                });
             }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
 
-            // Extract Wikipedia page title
-            String wikipediaPageTitle = extractWikipediaPageTitle(root, mbid, name);
-            String description = wikipediaPageTitle != null ? fetchWikipediaDescription(wikipediaPageTitle) : null;
-            if (description == null) {
-                logger.debug("No Wikipedia description found: mbid={}, pageTitle={}", mbid, wikipediaPageTitle);
-            } else {
-                logger.debug("Wikipedia description retrieved: mbid={}, descriptionLength={}", mbid, description.length());
+    /**
+     * Waits for another caller's load, but only until {@code deadline}; {@code null} if that passes first.
+     */
+    private static <V> V await(CompletableFuture<V> pending, Deadline deadline) {
+        try {
+            if (!deadline.isBounded()) {
+                return pending.join();
+            }
+            // Times out a copy, which leaves the load itself to the callers still waiting for it
+            return pending.copy().orTimeout(deadline.remainingNanos(), TimeUnit.NANOSECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                return null;
             }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
 
-            // Parse release-groups for albums
-            List<Album> albums = new ArrayList<>();
-            JsonNode releaseGroups = root.path("release-groups");
-            logger.debug("Inspecting release-groups array: mbid={}, releaseGroupsCount={}", mbid, releaseGroups.isArray() ? releaseGroups.size() : 0);
-            if (!releaseGroups.isMissingNode() && releaseGroups.isArray()) {
-                for (JsonNode releaseGroup : releaseGroups) {
-                    String primaryType = releaseGroup.path("primary-type").asText();
-                    if ("Album".equalsIgnoreCase(primaryType)) {
-                        String albumId = releaseGroup.path("id").asText();
-                        String title = releaseGroup.path("title").asText();
-                        if (!albumId.isEmpty() && !title.isEmpty()) {
-                            logger.debug("Found album: mbid={}, albumId={}, title={}", mbid, albumId, title);
-                            String imageUrl = fetchCoverArt(albumId);
-                            if (imageUrl != null) {
-                                albums.add(new Album(title, albumId, imageUrl));
-                                logger.debug("Added album with cover art: mbid={}, albumId={}, title={}, image={}", mbid, albumId, title, imageUrl);
-                            } else {
-                                logger.debug("No cover art found for album: mbid={}, albumId={}, title={}", mbid, albumId, title);
+    /**
+     * Caches a loaded value unless it is {@code null}. Partial artist details do not replace complete ones
+     * that a load without a budget cached in the meantime.
+     */
+    private static <V> V store(Cache<String, V> cache, String key, V loaded) {
+        if (loaded != null) {
+            cache.asMap().merge(key, loaded, (current, fresh) ->
+                    fresh instanceof Artist artist && artist.partial() && current instanceof Artist old && !old.partial()
+                            ? current : fresh);
+        }
+        return loaded;
+    }
+
+    /**
+     * Like {@link #getOrLoad}, for a loader that completes asynchronously, without blocking the caller. It
+     * shares the in-flight loads of {@link #getOrLoad}, so a blocking and an asynchronous miss for the same
+     * key wait for a single load whichever started it.
+     */
+    private <V> CompletableFuture<V> getOrLoadAsync(String cacheName, Cache<String, V> cache, PersistentCache<V> persistent,
+                                                    Map<String, CompletableFuture<V>> inFlight, String key,
+                                                    Function<String, CompletableFuture<V>> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> pending = inFlight.putIfAbsent(key, load);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<V> loaded;
+        try {
+            // A load that finished between the cache miss and taking the slot has already cached its value
+            V value = cache.getIfPresent(key);
+            loaded = value != null ? CompletableFuture.completedFuture(value) : cacheLoadMetrics.timeAsync(cacheName, () -> {
+                V promoted = promote(cache, persistent, key);
+                return promoted != null ? CompletableFuture.completedFuture(promoted) : loader.apply(key)
+                        .thenApply(result -> {
+                            if (result != null) {
+                                cache.put(key, result);
                             }
-                        }
-                    }
-                }
+                            return result;
+                        });
+            });
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, error) -> {
+            inFlight.remove(key, load);
+            if (error != null) {
+                load.completeExceptionally(unwrap(error));
             } else {
-                logger.debug("No release-groups found in response: mbid={}", mbid);
+                load.complete(value);
             }
+        });
+        return load;
+    }
+
+    /**
+     * Loads artist details from MusicBrainz, Wikipedia and the Cover Art Archive, bypassing the details
+     * caches, and writes them to the persistent tier. Used by the cache itself for misses and background
+     * refreshes.
+     */
+    public Artist loadArtistDetails(String mbid) {
+        return loadArtistDetails(mbid, Deadline.NONE);
+    }
+
+    private Artist loadArtistDetails(String mbid, Deadline deadline) {
+        Artist artist = fetchArtistDetails(mbid, deadline);
+        if (!artist.partial()) {
+            persistentDetailsCache.put(mbid, artist);
+        }
+        return artist;
+    }
 
-            logger.info("Successfully retrieved artist details: mbid={}, name={}, descriptionLength={}, albumsCount={}",
-                    mbid, name, description != null ? description.length() : 0, albums.size());
-            return new Artist(name, description, mbid, Collections.unmodifiableList(albums));
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse MusicBrainz API response: mbid={}, error={}", mbid, e.getMessage(), e);
-            throw new MusicBrainzApiException("Failed to parse response from MusicBrainz API", e);
+    private Artist fetchArtistDetails(String mbid, Deadline deadline) {
+        ArtistDetailsResponse details = fetchArtistDetailsResponse(mbid);
+        try {
+            Artist artist = resolveArtist(details, mbid, deadline, album -> { }, description -> { }).join();
+            logger.info("Successfully retrieved artist details: mbid={}, name={}, descriptionLength={}, albumsCount={}, partial={}",
+                    mbid, artist.name(), artist.description() != null ? artist.description().length() : 0,
+                    artist.albums().size(), artist.partial());
+            return artist;
         } catch (Exception e) {
             logger.error("Failed to fetch artist details: mbid={}, error={}", mbid, e.getMessage(), e);
             throw new MusicBrainzApiException("Failed to fetch artist details: " + e.getMessage(), e);
         }
     }
 
-    @Cacheable(value = "artistDiscographyCache", key = "#artistName.toLowerCase()")
-    @RateLimiter(name = "musicBrainzApi", fallbackMethod = "rateLimitDiscographyFallback")
+    private ArtistDetailsResponse fetchArtistDetailsResponse(String mbid) {
+        logger.info("Processing artist details request: mbid={}", mbid);
+
+        String url = UpstreamUrls.artistDetails(mbid);
+
+        logger.debug("Calling MusicBrainz API for details: url={}", url);
+        ArtistDetailsResponse details = fetchMusicBrainz(url, UpstreamResponseParser::readArtistDetails);
+        if (details == null) {
+            logger.warn("No data returned for MBID: mbid={}", mbid);
+            throw new ArtistNotFoundException("No data found for MBID: " + mbid);
+        }
+        if (details.id().isEmpty() || details.name().isEmpty()) {
+            logger.warn("Invalid artist data: mbid={}, name={}", mbid, details.name());
+            throw new ArtistNotFoundException("Invalid artist data for MBID: " + mbid);
+        }
+        logger.debug("Parsed MusicBrainz details: mbid={}, albumsCount={}, wikipediaPageTitle={}, wikidataId={}",
+                mbid, details.albums().size(), details.wikipediaPageTitle(), details.wikidataId());
+        return details;
+    }
+
+    /**
+     * Resolves the description and the cover art of every album, handing each to its callback as soon as
+     * it is resolved, and completes with the assembled artist. If the deadline passes first, it completes
+     * then with what has been resolved so far, marked partial; the stages still running finish in the
+     * background and fill the cover art cache. A lookup that failed is left out and marks the artist partial
+     * too.
+     */
+    private CompletableFuture<Artist> resolveArtist(ArtistDetailsResponse details, String mbid, Deadline deadline,
+                                                    Consumer<Album> onAlbum, Consumer<String> onDescription) {
+        // The description and album branches do not depend on each other, so run them as concurrent stages
+        long stagesStart = System.nanoTime();
+        CompletableFuture<String> descriptionStage = supplyUpstream(() -> resolveDescription(details, mbid, deadline))
+                .thenCompose(Function.identity())
+                .whenComplete((description, error) -> {
+                    logStageTiming("description", mbid, stagesStart);
+                    // A failed lookup is reported as no description, and leaves the artist partial
+                    onDescription.accept(description);
+                });
+        List<CompletableFuture<Album>> albumStages = resolveAlbums(details.albums(), mbid, deadline, onAlbum);
+        CompletableFuture<Void> albumsStage = CompletableFuture.allOf(albumStages.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> logStageTiming("albums", mbid, stagesStart));
+
+        CompletableFuture<Void> stages = CompletableFuture.allOf(descriptionStage, albumsStage);
+        if (deadline.isBounded()) {
+            stages = stages.completeOnTimeout(null, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        }
+        return stages
+                // A failed stage is left out of the artist rather than failing it
+                .handle((ignored, error) -> assembleArtist(details, mbid, deadline, descriptionStage, albumStages))
+                .whenComplete((artist, error) -> logStageTiming("total", mbid, stagesStart));
+    }
+
+    /**
+     * Assembles the artist from the stages that have completed, in release-group order so the album list keeps
+     * the MusicBrainz ordering. It is partial if a stage is still running, failed, or skipped an upstream call.
+     */
+    private static Artist assembleArtist(ArtistDetailsResponse details, String mbid, Deadline deadline,
+                                         CompletableFuture<String> descriptionStage,
+                                         List<CompletableFuture<Album>> albumStages) {
+        boolean partial = deadline.isCutOff() || !isResolved(descriptionStage);
+        String description = isResolved(descriptionStage) ? descriptionStage.join() : null;
+        List<Album> albums = new ArrayList<>();
+        for (CompletableFuture<Album> albumStage : albumStages) {
+            if (!isResolved(albumStage)) {
+                partial = true;
+            } else if (albumStage.join() != null) {
+                albums.add(albumStage.join());
+            }
+        }
+        if (partial) {
+            logger.warn("Latency budget spent or lookups failed, answering with partial artist details: mbid={}, descriptionResolved={}, albumsResolved={}",
+                    mbid, isResolved(descriptionStage), albumStages.stream().filter(JukeboxService::isResolved).count());
+        }
+        return new Artist(details.name(), description, mbid, Collections.unmodifiableList(albums), partial);
+    }
+
+    private static boolean isResolved(CompletableFuture<?> stage) {
+        return stage.isDone() && !stage.isCompletedExceptionally();
+    }
+
+    /**
+     * Composes the discography from the name-to-MBID and MBID-to-details caches, so each stage is only
+     * loaded on its own cache miss and an artist is cached once whichever endpoint loaded it.
+     */
     public Artist getArtistDiscography(String artistName) {
+        return getArtistDiscography(artistName, Deadline.NONE);
+    }
+
+    /**
+     * Like {@link #getArtistDiscography(String)}, within {@code budget} as for
+     * {@link #getArtistDetails(String, Duration)}; the budget also covers the MBID lookup.
+     */
+    public Artist getArtistDiscography(String artistName, Duration budget) {
+        return getArtistDiscography(artistName, Deadline.after(budget));
+    }
+
+    private Artist getArtistDiscography(String artistName, Deadline deadline) {
         if (artistName == null || artistName.trim().isEmpty()) {
             logger.warn("Invalid artist name provided for discography: artistName={}", artistName);
             throw new IllegalArgumentException("Artist name cannot be empty");
@@ -190,253 +487,566 @@ public class JukeboxService {
 
         logger.info("Processing artist discography request: artistName={}", artistName);
 
-        // Step 1: Get MBID
+        // Step 1: Get MBID (artistLookupCache)
         logger.debug("Fetching MBID for artist: artistName={}", artistName);
         ArtistLookup artistLookup = getArtistMbid(artistName);
         String mbid = artistLookup.mbid();
         logger.debug("Retrieved MBID: artistName={}, mbid={}", artistName, mbid);
 
-        // Step 2: Get artist details using MBID
+        // Step 2: Get artist details using MBID (artistDetailsCache)
         logger.debug("Fetching artist details for: mbid={}", mbid);
-        Artist artist = getArtistDetails(mbid);
+        Artist artist = getArtistDetails(mbid, deadline);
         logger.info("Successfully retrieved artist discography: artistName={}, mbid={}, name={}, albumsCount={}",
                 artistName, mbid, artist.name(), artist.albums().size());
         return artist;
     }
 
-    private String extractWikipediaPageTitle(JsonNode root, String mbid, String artistName) {
-        JsonNode relations = root.path("relations");
-        logger.debug("Inspecting relations array for Wikipedia/Wikidata: mbid={}, relationsCount={}", mbid, relations.isArray() ? relations.size() : 0);
-        String wikidataId = null;
-
-        // First, try to find a direct Wikipedia relation
-        if (!relations.isMissingNode() && relations.isArray()) {
-            for (JsonNode relation : relations) {
-                String type = relation.path("type").asText();
-                JsonNode urlNode = relation.path("url");
-                String resource = urlNode.path("resource").asText();
-                logger.debug("Processing relation: mbid={}, type={}, resource={}", mbid, type, resource);
-                if ("wikipedia".equalsIgnoreCase(type) && !resource.isEmpty()) {
-                    try {
-                        String pageTitle = resource.substring(resource.lastIndexOf("/") + 1);
-                        logger.debug("Found Wikipedia page title from MusicBrainz: mbid={}, pageTitle={}", mbid, pageTitle);
-                        return pageTitle;
-                    } catch (Exception e) {
-                        logger.error("Failed to parse Wikipedia page title from resource: mbid={}, resource={}, error={}", mbid, resource, e.getMessage());
-                    }
-                }
-                if ("wikidata".equalsIgnoreCase(type) && !resource.isEmpty()) {
-                    try {
-                        wikidataId = resource.substring(resource.lastIndexOf("/") + 1);
-                        logger.debug("Found Wikidata ID: mbid={}, wikidataId={}", mbid, wikidataId);
-                    } catch (Exception e) {
-                        logger.error("Failed to parse Wikidata ID from resource: mbid={}, resource={}, error={}", mbid, resource, e.getMessage());
+    /**
+     * Streams the discography of an artist to {@code listener}: the name and MBID once the lookup is
+     * resolved, then each album once its cover art is and the description once it is, in whichever order
+     * they arrive. Cached details are replayed at once, and so are details loaded by another caller once that
+     * load completes; a fresh load is stored in the details caches when it completes. The lookup runs on the
+     * calling thread, so an unknown artist fails the call itself, while later failures complete the returned
+     * future exceptionally.
+     */
+    public CompletableFuture<Artist> streamArtistDiscography(String artistName, DiscographyListener listener) {
+        if (artistName == null || artistName.trim().isEmpty()) {
+            logger.warn("Invalid artist name provided for discography stream: artistName={}", artistName);
+            throw new IllegalArgumentException("Artist name cannot be empty");
+        }
+
+        logger.info("Processing artist discography stream request: artistName={}", artistName);
+        ArtistLookup artistLookup = getArtistMbid(artistName);
+        String mbid = artistLookup.mbid();
+        listener.onArtist(artistLookup);
+
+        AtomicBoolean streamed = new AtomicBoolean();
+        return getArtistDetailsAsync(mbid, key -> {
+                    streamed.set(true);
+                    return loadArtistDetailsAsync(key, listener::onAlbum, listener::onDescription);
+                })
+                .thenApply(artist -> {
+                    if (!streamed.get()) {
+                        logger.debug("Replaying discography: artistName={}, mbid={}", artistName, mbid);
+                        artist.albums().forEach(listener::onAlbum);
+                        listener.onDescription(artist.description());
                     }
-                }
-            }
-        } else {
-            logger.debug("No relations found in response: mbid={}", mbid);
+                    logger.info("Successfully streamed artist discography: artistName={}, mbid={}, albumsCount={}",
+                            artistName, mbid, artist.albums().size());
+                    return artist;
+                });
+    }
+
+    /**
+     * Resolves the details for a batch of MBIDs in one call. Duplicates are resolved once, cached entries are
+     * answered straight away and misses are loaded concurrently, each with its own status so a failure does not
+     * fail the batch. Items keep the order in which their MBIDs first appear.
+     */
+    public List<ArtistBatchItem> getArtistDetailsBatch(List<String> mbids) {
+        return resolveBatch(mbids, Function.identity(), this::getArtistDetailsAsync);
+    }
+
+    /**
+     * Resolves the discographies for a batch of artist names in one call, like {@link #getArtistDetailsBatch}.
+     * Names are matched case-insensitively, as in {@code artistLookupCache}.
+     */
+    public List<ArtistBatchItem> getArtistDiscographyBatch(List<String> artistNames) {
+        return resolveBatch(artistNames, String::toLowerCase,
+                artistName -> getArtistMbidAsync(artistName).thenCompose(lookup -> getArtistDetailsAsync(lookup.mbid())));
+    }
+
+    private List<ArtistBatchItem> resolveBatch(List<String> keys, Function<String, String> normalizer,
+                                               Function<String, CompletableFuture<Artist>> resolver) {
+        if (keys == null || keys.isEmpty()) {
+            logger.warn("Empty batch request");
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        Map<String, String> uniqueKeys = new LinkedHashMap<>();
+        for (String key : keys) {
+            String trimmed = key != null ? key.trim() : "";
+            uniqueKeys.putIfAbsent(normalizer.apply(trimmed), trimmed);
+        }
+        if (uniqueKeys.size() > MAX_BATCH_SIZE) {
+            logger.warn("Batch request too large: size={}, maxSize={}", uniqueKeys.size(), MAX_BATCH_SIZE);
+            throw new IllegalArgumentException("Batch cannot contain more than " + MAX_BATCH_SIZE + " distinct entries");
         }
 
-        // If no direct Wikipedia relation, use Wikidata to get the page title
-        if (wikidataId != null) {
-            String pageTitle = fetchWikipediaPageTitleFromWikidata(wikidataId, mbid);
-            if (pageTitle != null) {
-                logger.debug("Retrieved Wikipedia page title from Wikidata: mbid={}, wikidataId={}, pageTitle={}", mbid, wikidataId, pageTitle);
-                return pageTitle;
+        // Start every miss before waiting on any, so they share the upstream executor instead of running one by one;
+        // they give way to interactive calls for the same upstreams
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Artist>> futures = new LinkedHashMap<>();
+        for (String key : uniqueKeys.values()) {
+            futures.put(key, key.isEmpty()
+                    ? CompletableFuture.failedFuture(new IllegalArgumentException("Batch entry cannot be empty"))
+                    : UpstreamPriority.BATCH.call(() -> resolver.apply(key)));
+        }
+        List<ArtistBatchItem> items = new ArrayList<>(futures.size());
+        futures.forEach((key, future) -> items.add(toBatchItem(key, future)));
+
+        logger.info("Resolved artist batch: requested={}, distinct={}, ok={}, elapsedMs={}", keys.size(), items.size(),
+                items.stream().filter(item -> item.status() == ArtistBatchItem.Status.OK).count(),
+                (System.nanoTime() - start) / 1_000_000);
+        return items;
+    }
+
+    private ArtistBatchItem toBatchItem(String key, CompletableFuture<Artist> future) {
+        try {
+            return ArtistBatchItem.ok(key, future.join());
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            ArtistBatchItem.Status status;
+            if (cause instanceof ArtistNotFoundException) {
+                status = ArtistBatchItem.Status.NOT_FOUND;
+            } else if (cause instanceof IllegalArgumentException) {
+                status = ArtistBatchItem.Status.INVALID;
+            } else if (cause instanceof UpstreamThrottledException || cause.getCause() instanceof UpstreamThrottledException) {
+                status = ArtistBatchItem.Status.RATE_LIMITED;
+            } else {
+                logger.error("Failed to resolve batch entry: key={}, error={}", key, cause.getMessage(), cause);
+                status = ArtistBatchItem.Status.ERROR;
             }
+            return ArtistBatchItem.failed(key, status, cause.getMessage());
         }
+    }
 
-        logger.debug("No Wikipedia page title found: mbid={}, artistName={}", mbid, artistName);
-        return null;
+    /**
+     * Resolves an MBID like {@link #getArtistMbid} without blocking a thread, sharing its caches and in-flight
+     * loads.
+     */
+    private CompletableFuture<ArtistLookup> getArtistMbidAsync(String artistName) {
+        String key = artistName.toLowerCase();
+        if (artistNotFoundCache.getIfPresent(key) != null) {
+            return CompletableFuture.failedFuture(new ArtistNotFoundException("No artists found for query: " + artistName));
+        }
+        return getOrLoadAsync("artistLookupCache", artistLookupCache, persistentLookupCache, inFlightLookups, key,
+                k -> scheduleMusicBrainzCall(() -> loadArtistMbid(artistName)))
+                .whenComplete((artistLookup, error) -> {
+                    if (error != null && unwrap(error) instanceof ArtistNotFoundException) {
+                        artistNotFoundCache.put(key, Boolean.TRUE);
+                    }
+                });
     }
 
-    @RateLimiter(name = "wikidataApi", fallbackMethod = "wikidataFallback")
-    private String fetchWikipediaPageTitleFromWikidata(String wikidataId, String mbid) {
-        String url = UriComponentsBuilder.fromHttpUrl(WIKIDATA_API_URL)
-                .queryParam("action", "wbgetentities")
-                .queryParam("ids", wikidataId)
-                .queryParam("format", "json")
-                .queryParam("props", "sitelinks")
-                .toUriString();
+    private CompletableFuture<Artist> getArtistDetailsAsync(String mbid) {
+        return getArtistDetailsAsync(mbid, key -> loadArtistDetailsAsync(key, album -> { }, description -> { }));
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "JukeboxApi/1.0 (your.email@example.com)");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+    /**
+     * Resolves artist details like {@link #getArtistDetails(String)} without blocking a thread, sharing its
+     * caches and in-flight loads; {@code loader} only runs if this call starts the load.
+     */
+    private CompletableFuture<Artist> getArtistDetailsAsync(String mbid, Function<String, CompletableFuture<Artist>> loader) {
+        if (artistNotFoundCache.getIfPresent(mbid) != null) {
+            return CompletableFuture.failedFuture(new ArtistNotFoundException("No data found for MBID: " + mbid));
+        }
+        return getOrLoadAsync("artistDetailsCache", artistDetailsCache, persistentDetailsCache, inFlightDetails, mbid, loader)
+                .whenComplete((artist, error) -> {
+                    if (error != null && unwrap(error) instanceof ArtistNotFoundException) {
+                        artistNotFoundCache.put(mbid, Boolean.TRUE);
+                    }
+                });
+    }
 
-        try {
-            logger.debug("Calling Wikidata API: url={}", url);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            String jsonResponse = response.getBody();
+    /**
+     * Loads artist details without blocking a thread on any stage, handing albums and the description to the
+     * callbacks as they resolve, and writes them to the persistent tier unless they are partial.
+     */
+    private CompletableFuture<Artist> loadArtistDetailsAsync(String mbid, Consumer<Album> onAlbum,
+                                                             Consumer<String> onDescription) {
+        return scheduleMusicBrainzCall(() -> fetchArtistDetailsResponse(mbid))
+                .thenCompose(details -> resolveArtist(details, mbid, Deadline.NONE, onAlbum, onDescription))
+                .thenApply(artist -> {
+                    if (!artist.partial()) {
+                        persistentDetailsCache.put(mbid, artist);
+                    }
+                    return artist;
+                });
+    }
 
-            if (jsonResponse == null) {
-                logger.debug("No Wikidata data returned: wikidataId={}", wikidataId);
-                return null;
-            }
+    /**
+     * Runs a MusicBrainz call on the upstream executor once the MusicBrainz throttle has a permit for it, at
+     * the priority of the calling thread. Waiting for the permit does not hold a thread. Fails with
+     * {@link UpstreamThrottledException} if no permit frees up within the throttle's {@code max-wait}.
+     */
+    private <T> CompletableFuture<T> scheduleMusicBrainzCall(Supplier<T> call) {
+        return musicBrainzThrottle.schedule(call, upstreamExecutor, UpstreamPriority.current());
+    }
+
+    /**
+     * Runs a task on the upstream executor at the priority of the calling thread, counting its upstream
+     * requests in the calling thread's {@link UpstreamFanOut}.
+     */
+    private <T> CompletableFuture<T> supplyUpstream(Supplier<T> task) {
+        UpstreamPriority priority = UpstreamPriority.current();
+        Supplier<T> counted = UpstreamFanOut.propagate(task);
+        return CompletableFuture.supplyAsync(() -> priority.call(counted), upstreamExecutor);
+    }
 
-            logger.debug("Wikidata API raw response: wikidataId={}, response={}", wikidataId, jsonResponse);
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Resolves the Wikipedia description, remembering artists without one in {@code missingDescriptionCache}.
+     * A refused permit or a failed Wikidata or Wikipedia call fails every lookup of its micro-batch and fails
+     * the returned future rather than being cached as a miss. No thread waits for the micro-batches, so
+     * their loaders can share the upstream executor with the callers.
+     */
+    private CompletableFuture<String> resolveDescription(ArtistDetailsResponse details, String mbid, Deadline deadline) {
+        if (missingDescriptionCache.getIfPresent(mbid) != null) {
+            logger.debug("Artist known to have no Wikipedia description, skipping lookup: mbid={}", mbid);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (deadline.skips()) {
+            logger.debug("Latency budget spent, skipping description lookup: mbid={}", mbid);
+            return CompletableFuture.completedFuture(null);
+        }
+        // The Wikipedia lookup starts on whichever thread completes the Wikidata one, so it is tagged explicitly
+        UpstreamPriority priority = UpstreamPriority.current();
+        return resolveWikipediaPageTitle(details, mbid).thenCompose(wikipediaPageTitle -> {
+            if (wikipediaPageTitle != null && deadline.skips()) {
+                logger.debug("Latency budget spent, skipping Wikipedia lookup: mbid={}, pageTitle={}", mbid, wikipediaPageTitle);
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<String> extract = wikipediaPageTitle != null
+                    ? priority.call(() -> fetchWikipediaDescription(wikipediaPageTitle))
+                    : CompletableFuture.completedFuture(null);
+            return extract.thenApply(description -> {
+                if (description == null) {
+                    logger.debug("No Wikipedia description found: mbid={}, pageTitle={}", mbid, wikipediaPageTitle);
+                    missingDescriptionCache.put(mbid, Boolean.TRUE);
+                } else {
+                    logger.debug("Wikipedia description retrieved: mbid={}, descriptionLength={}", mbid, description.length());
+                }
+                return description;
+            });
+        });
+    }
 
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            JsonNode rentity = root.path("entities").path(wikidataId).path("sitelinks").path("enwiki");
-            if (!rentity.isMissingNode()) {
-                String pageTitle = rentity.path("title").asText();
-                if (!pageTitle.isEmpty()) {
-                    logger.debug("Found Wikipedia page title from Wikidata: wikidataId={}, pageTitle={}", wikidataId, pageTitle);
-                    return pageTitle;
+    /**
+     * Starts resolving the cover art of every album concurrently; each stage completes with the album, or
+     * {@code null} if it has no cover art, and fails if its lookup failed.
+     */
+    private List<CompletableFuture<Album>> resolveAlbums(List<ReleaseGroup> releaseGroups, String mbid, Deadline deadline,
+                                                         Consumer<Album> onAlbum) {
+        List<CompletableFuture<Album>> albumFutures = new ArrayList<>();
+        for (ReleaseGroup releaseGroup : releaseGroups) {
+            logger.debug("Found album: mbid={}, albumId={}, title={}", mbid, releaseGroup.id(), releaseGroup.title());
+            albumFutures.add(supplyUpstream(() -> {
+                Album album = resolveAlbum(mbid, releaseGroup.id(), releaseGroup.title(), deadline);
+                if (album != null) {
+                    onAlbum.accept(album);
                 }
+                return album;
+            }));
+        }
+        return albumFutures;
+    }
+
+    private void logStageTiming(String stage, String mbid, long startNanos) {
+        logger.info("Artist details stage completed: mbid={}, stage={}, elapsedMs={}",
+                mbid, stage, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private CompletableFuture<String> resolveWikipediaPageTitle(ArtistDetailsResponse details, String mbid) {
+        // A direct Wikipedia relation wins; otherwise use Wikidata to get the page title
+        if (details.wikipediaPageTitle() != null) {
+            logger.debug("Found Wikipedia page title from MusicBrainz: mbid={}, pageTitle={}", mbid, details.wikipediaPageTitle());
+            return CompletableFuture.completedFuture(details.wikipediaPageTitle());
+        }
+        if (details.wikidataId() == null) {
+            logger.debug("No Wikipedia page title found: mbid={}, artistName={}", mbid, details.name());
+            return CompletableFuture.completedFuture(null);
+        }
+        return fetchWikipediaPageTitleFromWikidata(details.wikidataId(), mbid).thenApply(pageTitle -> {
+            if (pageTitle != null) {
+                logger.debug("Retrieved Wikipedia page title from Wikidata: mbid={}, wikidataId={}, pageTitle={}",
+                        mbid, details.wikidataId(), pageTitle);
+            } else {
+                logger.debug("No Wikipedia page title found: mbid={}, artistName={}", mbid, details.name());
             }
-            logger.debug("No English Wikipedia page title found in Wikidata: wikidataId={}", wikidataId);
-            return null;
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse Wikidata API response: wikidataId={}, error={}", wikidataId, e.getMessage(), e);
-            return null;
-        } catch (Exception e) {
-            logger.error("Failed to fetch Wikidata page title: wikidataId={}, error={}", wikidataId, e.getMessage(), e);
-            return null;
+            return pageTitle;
+        });
+    }
+
+    private CompletableFuture<String> fetchWikipediaPageTitleFromWikidata(String wikidataId, String mbid) {
+        // Sitelink lookups of concurrent requests are sent to Wikidata together
+        return wikidataBatcher.load(wikidataId).thenApply(pageTitle -> {
+            if (pageTitle == null) {
+                logger.debug("No English Wikipedia page title found in Wikidata: wikidataId={}, mbid={}", wikidataId, mbid);
+            }
+            return pageTitle;
+        });
+    }
+
+    private Map<String, String> fetchEnwikiTitles(Set<String> wikidataIds) {
+        String url = UpstreamUrls.wikidataSitelinks(wikidataIds);
+
+        try {
+            logger.debug("Calling Wikidata API: wikidataIds={}, url={}", wikidataIds.size(), url);
+            Map<String, String> pageTitles = fetchJson(url, UpstreamResponseParser::readEnwikiTitles);
+            logger.debug("Found Wikipedia page titles from Wikidata: wikidataIds={}, found={}", wikidataIds.size(),
+                    pageTitles != null ? pageTitles.size() : 0);
+            return pageTitles != null ? pageTitles : Map.of();
+        } catch (UpstreamThrottledException e) {
+            logger.warn("Rate limit exceeded for Wikidata API: wikidataIds={}, error={}", wikidataIds, e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Failed to fetch Wikidata page titles: wikidataIds={}, error={}", wikidataIds, e.getMessage(), e);
+            throw e;
         }
     }
 
-    @RateLimiter(name = "wikipediaApi", fallbackMethod = "wikipediaFallback")
-    private String fetchWikipediaDescription(String pageTitle) {
+    private CompletableFuture<String> fetchWikipediaDescription(String pageTitle) {
         if (pageTitle == null || pageTitle.trim().isEmpty()) {
             logger.warn("Invalid Wikipedia page title: pageTitle={}", pageTitle);
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
         // Normalize pageTitle: replace spaces with underscores to match Wikipedia URL format
         String normalizedPageTitle = pageTitle.replace(" ", "_");
         logger.debug("Normalized pageTitle: original={}, normalized={}", pageTitle, normalizedPageTitle);
 
-        // Use the normalized pageTitle directly, as it's URL-safe for Wikipedia
-        String url = UriComponentsBuilder.fromHttpUrl(WIKIPEDIA_API_URL)
-                .queryParam("action", "query")
-                .queryParam("prop", "extracts")
-                .queryParam("exintro", "true")
-                .queryParam("explaintext", "false")
-                .queryParam("redirects", "true")
-                .queryParam("titles", normalizedPageTitle)
-                .queryParam("format", "json")
-                .toUriString();
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "JukeboxApi/1.0 (your.email@example.com)");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        // Extracts for concurrent requests are sent to Wikipedia together
+        return wikipediaBatcher.load(normalizedPageTitle).thenApply(extract -> {
+            if (extract != null) {
+                logger.debug("Found Wikipedia description: pageTitle={}, extractLength={}", pageTitle, extract.length());
+            } else {
+                logger.debug("No valid Wikipedia description found: pageTitle={}", pageTitle);
+            }
+            return extract;
+        });
+    }
 
-        try {
-            logger.debug("Calling Wikipedia API: pageTitle={}, normalizedPageTitle={}, url={}", pageTitle, normalizedPageTitle, url);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            String jsonResponse = response.getBody();
+    private Map<String, String> fetchWikipediaDescriptions(Set<String> normalizedPageTitles) {
+        String url = UpstreamUrls.wikipediaExtracts(normalizedPageTitles);
 
-            if (jsonResponse == null) {
-                logger.debug("No Wikipedia data returned: pageTitle={}", pageTitle);
-                return null;
-            }
+        try {
+            logger.debug("Calling Wikipedia API: pageTitles={}, url={}", normalizedPageTitles.size(), url);
+            WikipediaExtracts extracts = upstreamHedging.call(UpstreamUrls.WIKIPEDIA,
+                    () -> fetchJson(url, UpstreamResponseParser::readExtracts));
+            return extracts != null ? extracts.extractsFor(normalizedPageTitles) : Map.of();
+        } catch (UpstreamThrottledException e) {
+            logger.warn("Rate limit exceeded for Wikipedia API: pageTitles={}, error={}", normalizedPageTitles, e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Failed to fetch Wikipedia descriptions: pageTitles={}, error={}", normalizedPageTitles, e.getMessage(), e);
+            throw e;
+        }
+    }
 
-            logger.debug("Wikipedia API raw response: pageTitle={}, response={}", pageTitle, jsonResponse);
-
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            JsonNode pages = root.path("query").path("pages");
-            logger.debug("Wikipedia response pages: pageTitle={}, pagesCount={}", pageTitle, pages.size());
-            if (!pages.isMissingNode() && pages.isObject()) {
-                for (JsonNode page : pages) {
-                    String pageId = page.path("pageid").asText();
-                    String title = page.path("title").asText();
-                    String extract = page.path("extract").asText();
-                    logger.debug("Processing page: pageTitle={}, pageId={}, title={}, extractLength={}",
-                            pageTitle, pageId, title, extract.length());
-                    if (!extract.isEmpty() && !extract.equals("null")) {
-                        logger.debug("Found Wikipedia description: pageTitle={}, extractLength={}", pageTitle, extract.length());
-                        return extract;
-                    }
-                }
-            }
-            logger.debug("No valid Wikipedia description found: pageTitle={}", pageTitle);
-            return null;
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse Wikipedia API response: pageTitle={}, error={}", pageTitle, e.getMessage(), e);
+    private Album resolveAlbum(String mbid, String albumId, String title, Deadline deadline) {
+        String imageUrl = resolveCoverArt(albumId, deadline);
+        if (imageUrl == null) {
+            logger.debug("No cover art found for album: mbid={}, albumId={}, title={}", mbid, albumId, title);
             return null;
-        } catch (Exception e) {
-            logger.error("Failed to fetch Wikipedia description: pageTitle={}, error={}", pageTitle, e.getMessage(), e);
+        }
+        logger.debug("Added album with cover art: mbid={}, albumId={}, title={}, image={}", mbid, albumId, title, imageUrl);
+        return new Album(title, albumId, imageUrl);
+    }
+
+    /**
+     * Resolves the front cover image of a release group through {@code coverArtCache}, which is keyed by
+     * release-group ID and shared by every artist. Release groups without a front cover are remembered in
+     * the short-lived {@code missingCoverArtCache} instead. Once the deadline has passed only the caches are
+     * consulted. A refused permit or a failed call says nothing about the release group, so it is not cached
+     * as a miss but thrown, which leaves the album out and marks the artist partial.
+     */
+    private String resolveCoverArt(String releaseGroupId, Deadline deadline) {
+        if (missingCoverArtCache.getIfPresent(releaseGroupId) != null) {
+            logger.debug("Release group known to have no cover art, skipping lookup: releaseGroupId={}", releaseGroupId);
             return null;
         }
+        return getOrLoad("coverArtCache", coverArtCache, PersistentCache.disabled(), inFlightCoverArt, releaseGroupId, id -> {
+            if (deadline.skips()) {
+                logger.debug("Latency budget spent, skipping cover art lookup: releaseGroupId={}", id);
+                return null;
+            }
+            String imageUrl;
+            try {
+                imageUrl = fetchCoverArt(id);
+            } catch (UpstreamThrottledException e) {
+                logger.warn("Rate limit exceeded for Cover Art Archive API: releaseGroupId={}, error={}", id, e.getMessage());
+                throw e;
+            }
+            if (imageUrl == null) {
+                missingCoverArtCache.put(id, Boolean.TRUE);
+            }
+            return imageUrl;
+        });
     }
 
-    @RateLimiter(name = "coverArtApi", fallbackMethod = "coverArtFallback")
     private String fetchCoverArt(String releaseGroupId) {
-        String url = COVER_ART_API_URL + releaseGroupId;
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "JukeboxApi/1.0 (your.email@example.com)");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
+        String url = UpstreamUrls.coverArt(releaseGroupId);
         try {
             logger.debug("Calling Cover Art Archive API: url={}", url);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            String jsonResponse = response.getBody();
-
-            if (jsonResponse == null) {
-                logger.debug("No cover art data returned: releaseGroupId={}", releaseGroupId);
-                return null;
-            }
-
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            JsonNode images = root.path("images");
-            if (!images.isMissingNode() && images.isArray()) {
-                for (JsonNode image : images) {
-                    if (image.path("front").asBoolean()) {
-                        String imageUrl = image.path("image").asText();
-                        logger.debug("Found cover art: releaseGroupId={}, imageUrl={}", releaseGroupId, imageUrl);
-                        return imageUrl;
-                    }
-                }
+            // Idempotent and prone to a long latency tail, so a slow lookup may be hedged
+            String imageUrl = upstreamHedging.call(UpstreamUrls.COVER_ART,
+                    () -> fetchJson(url, UpstreamResponseParser::readFrontImage));
+            if (imageUrl != null) {
+                logger.debug("Found cover art: releaseGroupId={}, imageUrl={}", releaseGroupId, imageUrl);
+                return imageUrl;
             }
             logger.debug("No front cover art found: releaseGroupId={}", releaseGroupId);
             return null;
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse Cover Art Archive response: releaseGroupId={}, error={}", releaseGroupId, e.getMessage());
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("No cover art found: releaseGroupId={}", releaseGroupId);
             return null;
-        } catch (Exception e) {
+        } catch (RestClientException e) {
             logger.error("Failed to fetch cover art: releaseGroupId={}, error={}", releaseGroupId, e.getMessage());
-            return null;
+            throw e;
         }
     }
 
-    private String coverArtFallback(String releaseGroupId, Throwable t) {
-        logger.warn("Rate limit exceeded for Cover Art Archive API: releaseGroupId={}, error={}", releaseGroupId, t.getMessage());
-        return null;
+    /**
+     * Calls MusicBrainz and reads the response with {@code reader}, reporting a refused permit and unparseable
+     * responses as {@link MusicBrainzApiException}. Transport errors are passed on as they are.
+     */
+    private <T> T fetchMusicBrainz(String url, JsonReader<T> reader) {
+        try {
+            return fetchJson(url, reader);
+        } catch (UpstreamThrottledException e) {
+            logger.warn("Rate limit exceeded for MusicBrainz API: url={}, error={}", url, e.getMessage());
+            throw new MusicBrainzApiException("Rate limit exceeded for MusicBrainz API, please try again later", e);
+        } catch (ResourceAccessException e) {
+            if (e.getCause() instanceof JsonProcessingException parseError) {
+                logger.error("Failed to parse MusicBrainz API response: url={}, error={}", url, parseError.getMessage(), parseError);
+                throw new MusicBrainzApiException("Failed to parse response from MusicBrainz API", parseError);
+            }
+            throw e;
+        }
     }
 
-    private String wikipediaFallback(String pageTitle, Throwable t) {
-        logger.warn("Rate limit exceeded for Wikipedia API: pageTitle={}, error={}", pageTitle, t.getMessage());
-        return null;
+    /**
+     * GETs {@code url} and hands the response stream to {@code reader}, so the body is parsed as it arrives
+     * instead of being buffered as a string and a tree first. Returns {@code null} for an empty body. Whatever
+     * the reader leaves unread is drained, so the connection can go back to the pool.
+     */
+    private <T> T fetchJson(String url, JsonReader<T> reader) {
+        return restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().set(HttpHeaders.USER_AGENT, UpstreamUrls.USER_AGENT),
+                response -> {
+                    InputStream body = response.getBody();
+                    try (JsonParser parser = jsonFactory.createParser(body)) {
+                        T result = parser.nextToken() != null ? reader.read(parser) : null;
+                        StreamUtils.drain(body);
+                        return result;
+                    }
+                });
     }
 
-    private String wikidataFallback(String wikidataId, String mbid, Throwable t) {
-        logger.warn("Rate limit exceeded for Wikidata API: wikidataId={}, mbid={}, error={}", wikidataId, mbid, t.getMessage());
-        return null;
+    public void evictArtistDetailsCache(String mbid) {
+        artistDetailsCache.invalidate(mbid);
+        persistentDetailsCache.invalidate(mbid);
+        logger.info("Evicted artist details cache: mbid={}", mbid);
     }
 
-    public ArtistLookup rateLimitFallback(String artistName, Throwable t) {
-        logger.warn("Rate limit exceeded for MusicBrainz API lookup: artistName={}, error={}", artistName, t.getMessage());
-        throw new MusicBrainzApiException("Rate limit exceeded for MusicBrainz API, please try again later", t);
+    /**
+     * The discography is composed from the lookup and details caches, so evicting it drops the
+     * name-to-MBID entry and the details of the artist it pointed to.
+     */
+    public void evictArtistDiscographyCache(String artistName) {
+        String key = artistName.toLowerCase();
+        ArtistLookup artistLookup = artistLookupCache.getIfPresent(key);
+        if (artistLookup == null) {
+            artistLookup = persistentLookupCache.get(key);
+        }
+        artistLookupCache.invalidate(key);
+        persistentLookupCache.invalidate(key);
+        if (artistLookup != null) {
+            artistDetailsCache.invalidate(artistLookup.mbid());
+            persistentDetailsCache.invalidate(artistLookup.mbid());
+        }
+        logger.info("Evicted artist discography cache: artistName={}, mbid={}", artistName,
+                artistLookup != null ? artistLookup.mbid() : null);
     }
 
-    public Artist rateLimitDetailsFallback(String mbid, Throwable t) {
-        logger.warn("Rate limit exceeded for MusicBrainz API details: mbid={}, error={}", mbid, t.getMessage());
-        throw new MusicBrainzApiException("Rate limit exceeded for MusicBrainz API, please try again later", t);
+    public void evictArtistLookupCache(String artistName) {
+        artistLookupCache.invalidate(artistName.toLowerCase());
+        persistentLookupCache.invalidate(artistName.toLowerCase());
+        logger.info("Evicted artist lookup cache: artistName={}", artistName);
     }
 
-    @CacheEvict(value = "artistDetailsCache", key = "#mbid")
-    public void evictArtistDetailsCache(String mbid) {
-        logger.info("Evicted artist details cache: mbid={}", mbid);
+    /**
+     * {@code persistent} with the cover art URLs of the artists it returns replaced by the equal strings in
+     * {@code coverArtCache}, which is seeded with those it does not hold yet. An artist built from upstream
+     * responses already shares its URLs with {@code coverArtCache}; without this, every artist read back from
+     * the persistent tier would hold its own copy of URLs that differ only in their last segment.
+     */
+    static PersistentCache<Artist> sharingCoverArt(PersistentCache<Artist> persistent, Cache<String, String> coverArtCache) {
+        return new PersistentCache<>() {
+            @Override
+            public Entry<Artist> getEntry(String key) {
+                Entry<Artist> entry = persistent.getEntry(key);
+                if (entry == null || entry.value().albums() == null) {
+                    return entry;
+                }
+                List<Album> albums = new ArrayList<>(entry.value().albums().size());
+                for (Album album : entry.value().albums()) {
+                    String cached = album.id() != null && album.image() != null
+                            ? coverArtCache.asMap().putIfAbsent(album.id(), album.image()) : null;
+                    albums.add(cached != null && cached.equals(album.image()) ? new Album(album.title(), album.id(), cached) : album);
+                }
+                return new Entry<>(entry.value().withAlbums(Collections.unmodifiableList(albums)), entry.writtenAt());
+            }
+
+            @Override
+            public void put(String key, Artist value) {
+                persistent.put(key, value);
+            }
+
+            @Override
+            public void invalidate(String key) {
+                persistent.invalidate(key);
+            }
+
+            @Override
+            public void clear() {
+                persistent.clear();
+            }
+        };
     }
 
-    @CacheEvict(value = "artistDiscographyCache", key = "#artistName.toLowerCase()")
-    public void evictArtistDiscographyCache(String artistName) {
-        logger.info("Evicted artist discography cache: mbid={}", artistName);
+    /**
+     * Puts the persistent entry for {@code key} into {@code cache} as if it had been cached when it was
+     * persisted: it expires as much earlier as the entry is old, and one older than the soft TTL is refreshed
+     * in the background right away. Returns the value now cached, or {@code null} if there is no entry or it
+     * is past the cache's hard TTL, so that a persisted value is never served as fresher than it is.
+     */
+    static <V> V promote(Cache<String, V> cache, PersistentCache<V> persistent, String key) {
+        PersistentCache.Entry<V> entry = persistent.getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        V current = cache.asMap().putIfAbsent(key, entry.value());
+        if (current != null) {
+            return current;
+        }
+        long ageNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - entry.writtenAt()));
+        Policy<String, V> policy = cache.policy();
+        Optional<Policy.VarExpiration<String, V>> expiry = policy.expireVariably();
+        if (expiry.isPresent()) {
+            // Just created, so the entry's expiry is the hard TTL
+            OptionalLong hardTtlNanos = expiry.get().getExpiresAfter(key, TimeUnit.NANOSECONDS);
+            long remainingNanos = hardTtlNanos.orElse(Long.MAX_VALUE) - ageNanos;
+            if (remainingNanos <= 0) {
+                cache.asMap().remove(key, entry.value());
+                return null;
+            }
+            expiry.get().setExpiresAfter(key, remainingNanos, TimeUnit.NANOSECONDS);
+        }
+        if (cache instanceof LoadingCache<String, V> loadingCache && policy.refreshAfterWrite()
+                .filter(refresh -> ageNanos >= refresh.getRefreshesAfter(TimeUnit.NANOSECONDS)).isPresent()) {
+            loadingCache.refresh(key);
+        }
+        return entry.value();
     }
 
-    @CacheEvict(value = "artistLookupCache", key = "#artistName.toLowerCase()")
-    public void evictArtistLookupCache(String artistName) {
-        logger.info("Evicted artist details cache: mbid={}", artistName);
+    @SuppressWarnings("unchecked")
+    static <V> Cache<String, V> nativeCache(CacheManager cacheManager, String name) {
+        if (!(cacheManager.getCache(name) instanceof CaffeineCache caffeineCache)) {
+            throw new IllegalStateException("Cache must be a Caffeine cache: " + name);
+        }
+        return (Cache<String, V>) (Cache<?, ?>) caffeineCache.getNativeCache();
     }
 }
\ No newline at end of file
@@ -0,0 +1,384 @@
+package se.hollytech.jukebox.service;
+
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.cache.PersistentCache;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.batch.MicroBatcher;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import se.hollytech.jukebox.http.UpstreamThrottledException;
+import se.hollytech.jukebox.service.UpstreamResponseParser.ArtistDetailsResponse;
+import se.hollytech.jukebox.service.UpstreamResponseParser.JsonReader;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking counterpart of the MBID, details and discography lookups of {@link JukeboxService}, used
+ * with {@code jukebox.service.mode=reactive}. Every upstream call is a {@link WebClient} exchange, and the
+ * client waits for throttle permits on a timer, so no thread is held while a request waits on either. The
+ * caches and the persistent tier are shared with {@link JukeboxService}, which keeps serving the streaming
+ * and batch endpoints and the background refreshes.
+ */
+@Service
+@ConditionalOnProperty(name = "jukebox.service.mode", havingValue = "reactive")
+public class ReactiveJukeboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveJukeboxService.class);
+    private final WebClient webClient;
+    private final JsonFactory jsonFactory;
+    private final int maxConcurrency;
+    private final Cache<String, ArtistLookup> artistLookupCache;
+    private final Cache<String, Artist> artistDetailsCache;
+    private final Cache<String, String> coverArtCache;
+    private final Cache<String, Boolean> artistNotFoundCache;
+    private final Cache<String, Boolean> missingCoverArtCache;
+    private final Cache<String, Boolean> missingDescriptionCache;
+    private final PersistentCache<ArtistLookup> persistentLookupCache;
+    private final PersistentCache<Artist> persistentDetailsCache;
+    private final MicroBatcher<String, String> wikipediaBatcher;
+    private final MicroBatcher<String, String> wikidataBatcher;
+    private final Map<String, Mono<ArtistLookup>> inFlightLookups = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Artist>> inFlightDetails = new ConcurrentHashMap<>();
+
+    public ReactiveJukeboxService(@Qualifier("upstreamWebClient") WebClient webClient, ObjectMapper objectMapper,
+                                  @Value("${jukebox.upstream.max-concurrency:8}") int maxConcurrency,
+                                  CacheManager cacheManager,
+                                  PersistentCacheManager persistentCacheManager,
+                                  MicroBatchScheduler microBatchScheduler) {
+        this.webClient = webClient;
+        this.jsonFactory = objectMapper.getFactory();
+        this.maxConcurrency = maxConcurrency;
+        this.artistLookupCache = JukeboxService.nativeCache(cacheManager, "artistLookupCache");
+        this.artistDetailsCache = JukeboxService.nativeCache(cacheManager, "artistDetailsCache");
+        this.coverArtCache = JukeboxService.nativeCache(cacheManager, "coverArtCache");
+        this.artistNotFoundCache = JukeboxService.nativeCache(cacheManager, "artistNotFoundCache");
+        this.missingCoverArtCache = JukeboxService.nativeCache(cacheManager, "missingCoverArtCache");
+        this.missingDescriptionCache = JukeboxService.nativeCache(cacheManager, "missingDescriptionCache");
+        this.persistentLookupCache = persistentCacheManager.getCache("artistLookupCache", ArtistLookup.class);
+        this.persistentDetailsCache = JukeboxService.sharingCoverArt(
+                persistentCacheManager.getCache("artistDetailsCache", Artist.class), coverArtCache);
+        this.wikipediaBatcher = microBatchScheduler.asyncBatcher("wikipedia", titles -> fetchWikipediaDescriptions(titles).toFuture());
+        this.wikidataBatcher = microBatchScheduler.asyncBatcher("wikidata", ids -> fetchEnwikiTitles(ids).toFuture());
+    }
+
+    /**
+     * Resolves the MBID for an artist name through the same cache tiers as {@link JukeboxService#getArtistMbid}.
+     * Concurrent misses for the same name share a single load.
+     */
+    public Mono<ArtistLookup> getArtistMbid(String artistName) {
+        if (artistName == null || artistName.trim().isEmpty()) {
+            logger.warn("Invalid artist name provided: artistName={}", artistName);
+            return Mono.error(new IllegalArgumentException("Artist name cannot be empty"));
+        }
+        String key = artistName.toLowerCase();
+        if (artistNotFoundCache.getIfPresent(key) != null) {
+            logger.debug("Artist known to be missing, skipping lookup: artistName={}", artistName);
+            return Mono.error(new ArtistNotFoundException("No artists found for query: " + artistName));
+        }
+        ArtistLookup cached = artistLookupCache.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return inFlightLookups.computeIfAbsent(key, k -> promoted(artistLookupCache, persistentLookupCache, k)
+                .switchIfEmpty(Mono.defer(() -> fetchArtistMbid(artistName))
+                        .doOnNext(artistLookup -> persist(persistentLookupCache, k, artistLookup))
+                        .doOnNext(artistLookup -> artistLookupCache.put(k, artistLookup)))
+                .doOnError(ArtistNotFoundException.class, e -> artistNotFoundCache.put(k, Boolean.TRUE))
+                .doFinally(signal -> inFlightLookups.remove(k))
+                .cache());
+    }
+
+    private Mono<ArtistLookup> fetchArtistMbid(String artistName) {
+        logger.info("Processing MBID lookup request: artistName={}", artistName);
+
+        String url = UpstreamUrls.artistSearch(artistName);
+
+        logger.debug("Calling MusicBrainz API for lookup: url={}", url);
+        return fetchMusicBrainz(url, UpstreamResponseParser::readFirstArtist)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.warn("No artists found: artistName={}", artistName);
+                    return new ArtistNotFoundException("No artists found for query: " + artistName);
+                }))
+                .handle((artist, sink) -> {
+                    if (artist.mbid().isEmpty() || artist.name().isEmpty()) {
+                        logger.warn("Invalid artist data: artistName={}, mbid={}, name={}", artistName, artist.mbid(), artist.name());
+                        sink.error(new ArtistNotFoundException("Invalid artist data for query: " + artistName));
+                        return;
+                    }
+                    logger.info("Successfully retrieved MBID: artistName={}, mbid={}", artistName, artist.mbid());
+                    sink.next(artist);
+                });
+    }
+
+    /**
+     * Resolves artist details through the same cache tiers as {@link JukeboxService#getArtistDetails}.
+     * Concurrent misses for the same MBID share a single load, and MBIDs MusicBrainz has no data for are
+     * remembered in {@code artistNotFoundCache} like unknown names.
+     */
+    public Mono<Artist> getArtistDetails(String mbid) {
+        if (mbid == null || mbid.trim().isEmpty()) {
+            logger.warn("Invalid MBID provided: mbid={}", mbid);
+            return Mono.error(new IllegalArgumentException("MBID cannot be empty"));
+        }
+        if (artistNotFoundCache.getIfPresent(mbid) != null) {
+            logger.debug("Artist known to be missing, skipping details lookup: mbid={}", mbid);
+            return Mono.error(new ArtistNotFoundException("No data found for MBID: " + mbid));
+        }
+        Artist cached = artistDetailsCache.getIfPresent(mbid);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return inFlightDetails.computeIfAbsent(mbid, key -> promoted(artistDetailsCache, persistentDetailsCache, key)
+                .switchIfEmpty(Mono.defer(() -> fetchArtistDetails(key))
+                        .doOnNext(artist -> {
+                            if (!artist.partial()) {
+                                persist(persistentDetailsCache, key, artist);
+                            }
+                        })
+                        .doOnNext(artist -> artistDetailsCache.put(key, artist)))
+                .doOnError(ArtistNotFoundException.class, e -> artistNotFoundCache.put(key, Boolean.TRUE))
+                .doFinally(signal -> inFlightDetails.remove(key))
+                .cache());
+    }
+
+    private Mono<Artist> fetchArtistDetails(String mbid) {
+        logger.info("Processing artist details request: mbid={}", mbid);
+
+        String url = UpstreamUrls.artistDetails(mbid);
+
+        logger.debug("Calling MusicBrainz API for details: url={}", url);
+        return fetchMusicBrainz(url, UpstreamResponseParser::readArtistDetails)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.warn("No data returned for MBID: mbid={}", mbid);
+                    return new ArtistNotFoundException("No data found for MBID: " + mbid);
+                }))
+                .flatMap(details -> {
+                    if (details.id().isEmpty() || details.name().isEmpty()) {
+                        logger.warn("Invalid artist data: mbid={}, name={}", mbid, details.name());
+                        return Mono.error(new ArtistNotFoundException("Invalid artist data for MBID: " + mbid));
+                    }
+                    return resolveArtist(details, mbid);
+                });
+    }
+
+    /**
+     * Resolves the description and the cover art of every album concurrently and assembles the artist. A
+     * lookup that failed is left out and marks the artist partial.
+     */
+    private Mono<Artist> resolveArtist(ArtistDetailsResponse details, String mbid) {
+        long start = System.nanoTime();
+        AtomicBoolean unresolved = new AtomicBoolean();
+        Mono<Optional<String>> description = resolveDescription(details, mbid, unresolved)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+        Mono<List<Album>> albums = Flux.fromIterable(details.albums())
+                // flatMapSequential keeps the MusicBrainz ordering while fetching up to maxConcurrency at once
+                .flatMapSequential(releaseGroup -> resolveCoverArt(releaseGroup.id(), unresolved)
+                        .map(imageUrl -> new Album(releaseGroup.title(), releaseGroup.id(), imageUrl)), maxConcurrency)
+                .collectList()
+                .map(Collections::unmodifiableList);
+
+        return Mono.zip(description, albums)
+                .map(resolved -> new Artist(details.name(), resolved.getT1().orElse(null), mbid, resolved.getT2(),
+                        unresolved.get()))
+                .doOnNext(artist -> logger.info("Successfully retrieved artist details: mbid={}, name={}, descriptionLength={}, albumsCount={}, partial={}, elapsedMs={}",
+                        mbid, artist.name(), artist.description() != null ? artist.description().length() : 0,
+                        artist.albums().size(), artist.partial(), (System.nanoTime() - start) / 1_000_000))
+                .onErrorMap(e -> !(e instanceof MusicBrainzApiException), e -> {
+                    logger.error("Failed to fetch artist details: mbid={}, error={}", mbid, e.getMessage(), e);
+                    return new MusicBrainzApiException("Failed to fetch artist details: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Composes the discography from the lookup and details, as {@link JukeboxService#getArtistDiscography} does.
+     */
+    public Mono<Artist> getArtistDiscography(String artistName) {
+        if (artistName == null || artistName.trim().isEmpty()) {
+            logger.warn("Invalid artist name provided for discography: artistName={}", artistName);
+            return Mono.error(new IllegalArgumentException("Artist name cannot be empty"));
+        }
+
+        logger.info("Processing artist discography request: artistName={}", artistName);
+        return getArtistMbid(artistName)
+                .flatMap(artistLookup -> getArtistDetails(artistLookup.mbid()))
+                .doOnNext(artist -> logger.info("Successfully retrieved artist discography: artistName={}, mbid={}, name={}, albumsCount={}",
+                        artistName, artist.mbid(), artist.name(), artist.albums().size()));
+    }
+
+    /**
+     * Resolves the description as the blocking service does. A failed Wikidata or Wikipedia call is not
+     * cached as a miss but sets {@code unresolved}.
+     */
+    private Mono<String> resolveDescription(ArtistDetailsResponse details, String mbid, AtomicBoolean unresolved) {
+        if (missingDescriptionCache.getIfPresent(mbid) != null) {
+            logger.debug("Artist known to have no Wikipedia description, skipping lookup: mbid={}", mbid);
+            return Mono.empty();
+        }
+        return resolveWikipediaPageTitle(details)
+                // Extracts for concurrent requests are sent to Wikipedia together
+                .flatMap(pageTitle -> Mono.fromFuture(() -> wikipediaBatcher.load(pageTitle.replace(" ", "_"))))
+                .doOnNext(description -> logger.debug("Wikipedia description retrieved: mbid={}, descriptionLength={}", mbid, description.length()))
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    logger.debug("No Wikipedia description found: mbid={}", mbid);
+                    missingDescriptionCache.put(mbid, Boolean.TRUE);
+                }))
+                .onErrorResume(e -> {
+                    unresolved.set(true);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> resolveWikipediaPageTitle(ArtistDetailsResponse details) {
+        // A direct Wikipedia relation wins; otherwise use Wikidata to get the page title
+        if (details.wikipediaPageTitle() != null) {
+            return Mono.just(details.wikipediaPageTitle());
+        }
+        if (details.wikidataId() != null) {
+            return Mono.fromFuture(() -> wikidataBatcher.load(details.wikidataId()));
+        }
+        return Mono.empty();
+    }
+
+    private Mono<Map<String, String>> fetchEnwikiTitles(Set<String> wikidataIds) {
+        String url = UpstreamUrls.wikidataSitelinks(wikidataIds);
+        logger.debug("Calling Wikidata API: wikidataIds={}, url={}", wikidataIds.size(), url);
+        return fetchJson(url, UpstreamResponseParser::readEnwikiTitles)
+                .defaultIfEmpty(Map.of())
+                .doOnError(e -> {
+                    if (e instanceof UpstreamThrottledException) {
+                        logger.warn("Rate limit exceeded for Wikidata API: wikidataIds={}, error={}", wikidataIds, e.getMessage());
+                    } else {
+                        logger.error("Failed to fetch Wikidata page titles: wikidataIds={}, error={}", wikidataIds, e.getMessage(), e);
+                    }
+                });
+    }
+
+    private Mono<Map<String, String>> fetchWikipediaDescriptions(Set<String> normalizedPageTitles) {
+        String url = UpstreamUrls.wikipediaExtracts(normalizedPageTitles);
+        logger.debug("Calling Wikipedia API: pageTitles={}, url={}", normalizedPageTitles.size(), url);
+        return fetchJson(url, UpstreamResponseParser::readExtracts)
+                .map(extracts -> extracts.extractsFor(normalizedPageTitles))
+                .defaultIfEmpty(Map.of())
+                .doOnError(e -> {
+                    if (e instanceof UpstreamThrottledException) {
+                        logger.warn("Rate limit exceeded for Wikipedia API: pageTitles={}, error={}", normalizedPageTitles, e.getMessage());
+                    } else {
+                        logger.error("Failed to fetch Wikipedia descriptions: pageTitles={}, error={}", normalizedPageTitles, e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * Resolves a front cover through {@code coverArtCache} and {@code missingCoverArtCache}, like the blocking
+     * service. Running out of permits or a failed call says nothing about the release group, so neither is
+     * cached as a miss; both set {@code unresolved} instead.
+     */
+    private Mono<String> resolveCoverArt(String releaseGroupId, AtomicBoolean unresolved) {
+        if (missingCoverArtCache.getIfPresent(releaseGroupId) != null) {
+            logger.debug("Release group known to have no cover art, skipping lookup: releaseGroupId={}", releaseGroupId);
+            return Mono.empty();
+        }
+        String cached = coverArtCache.getIfPresent(releaseGroupId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        String url = UpstreamUrls.coverArt(releaseGroupId);
+        logger.debug("Calling Cover Art Archive API: url={}", url);
+        return fetchJson(url, UpstreamResponseParser::readFrontImage)
+                .doOnNext(imageUrl -> coverArtCache.put(releaseGroupId, imageUrl))
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    logger.debug("No front cover art found: releaseGroupId={}", releaseGroupId);
+                    missingCoverArtCache.put(releaseGroupId, Boolean.TRUE);
+                }))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    logger.debug("No cover art found: releaseGroupId={}", releaseGroupId);
+                    missingCoverArtCache.put(releaseGroupId, Boolean.TRUE);
+                    return Mono.empty();
+                })
+                .onErrorResume(UpstreamThrottledException.class, e -> {
+                    logger.warn("Rate limit exceeded for Cover Art Archive API: releaseGroupId={}, error={}", releaseGroupId, e.getMessage());
+                    unresolved.set(true);
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    logger.error("Failed to fetch cover art: releaseGroupId={}, error={}", releaseGroupId, e.getMessage());
+                    unresolved.set(true);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Calls MusicBrainz, reporting a refused throttle permit and unparseable responses as
+     * {@link MusicBrainzApiException}. Transport errors are passed on as they are.
+     */
+    private <T> Mono<T> fetchMusicBrainz(String url, JsonReader<T> reader) {
+        return fetchJson(url, reader)
+                .onErrorMap(UpstreamThrottledException.class, e -> {
+                    logger.warn("Rate limit exceeded for MusicBrainz API: url={}, error={}", url, e.getMessage());
+                    return new MusicBrainzApiException("Rate limit exceeded for MusicBrainz API, please try again later", e);
+                })
+                .onErrorMap(JsonProcessingException.class, e -> {
+                    logger.error("Failed to parse MusicBrainz API response: url={}, error={}", url, e.getMessage(), e);
+                    return new MusicBrainzApiException("Failed to parse response from MusicBrainz API", e);
+                });
+    }
+
+    /**
+     * GETs {@code url} and reads the body with {@code reader} once it has arrived. The body is collected as
+     * the raw bytes the connection delivered, with no string or tree in between. Completes empty for an
+     * empty body or a {@code null} result.
+     */
+    private <T> Mono<T> fetchJson(String url, JsonReader<T> reader) {
+        return webClient.get()
+                .uri(URI.create(url))
+                .header(HttpHeaders.USER_AGENT, UpstreamUrls.USER_AGENT)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(DataBufferUtils::join)
+                .flatMap(body -> {
+                    try (JsonParser parser = jsonFactory.createParser(body.asInputStream(true))) {
+                        return Mono.justOrEmpty(parser.nextToken() != null ? reader.read(parser) : null);
+                    } catch (IOException e) {
+                        return Mono.error(e);
+                    }
+                });
+    }
+
+    private static <V> Mono<V> promoted(Cache<String, V> cache, PersistentCache<V> persistent, String key) {
+        // The persistent tier does file I/O, so it is read off the event loop
+        return Mono.fromCallable(() -> JukeboxService.promote(cache, persistent, key)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static <V> void persist(PersistentCache<V> cache, String key, V value) {
+        Schedulers.boundedElastic().schedule(() -> cache.put(key, value));
+    }
+}
@@ -0,0 +1,374 @@
+package se.hollytech.jukebox.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import se.hollytech.jukebox.model.ArtistLookup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pulls the fields the service uses out of upstream JSON responses token by token, skipping everything
+ * else, so a response is never held as a string or a tree. Every method expects the parser positioned on
+ * the first token of the document and returns {@code null} when the document has a different shape.
+ */
+final class UpstreamResponseParser {
+
+    /**
+     * The parts of a MusicBrainz artist lookup ({@code inc=url-rels+release-groups}) used for details.
+     */
+    record ArtistDetailsResponse(String id, String name, String wikipediaPageTitle, String wikidataId,
+                                 List<ReleaseGroup> albums) {
+    }
+
+    record ReleaseGroup(String id, String title) {
+    }
+
+    /**
+     * The non-empty extracts of a Wikipedia {@code prop=extracts} query by page title, with the title
+     * normalizations and redirects Wikipedia applied to the requested titles.
+     */
+    record WikipediaExtracts(Map<String, String> normalized, Map<String, String> redirects,
+                             Map<String, String> extractsByTitle) {
+
+        /**
+         * The extract of the page a requested title ended up at after normalization and redirects.
+         */
+        String extractFor(String requestedTitle) {
+            String title = normalized.getOrDefault(requestedTitle, requestedTitle.replace('_', ' '));
+            return extractsByTitle.get(redirects.getOrDefault(title, title));
+        }
+
+        String firstExtract() {
+            return extractsByTitle.isEmpty() ? null : extractsByTitle.values().iterator().next();
+        }
+
+        /**
+         * The extracts of the requested titles, by requested title. A single title can only be answered by
+         * the page it resolved to, so it gets the first extract whatever that page's title.
+         */
+        Map<String, String> extractsFor(Collection<String> requestedTitles) {
+            Map<String, String> extracts = new HashMap<>();
+            for (String requestedTitle : requestedTitles) {
+                String extract = requestedTitles.size() == 1 ? firstExtract() : extractFor(requestedTitle);
+                if (extract != null) {
+                    extracts.put(requestedTitle, extract);
+                }
+            }
+            return extracts;
+        }
+    }
+
+    /**
+     * Reads a value from a parser positioned on the first token of a response.
+     */
+    @FunctionalInterface
+    interface JsonReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    private UpstreamResponseParser() {
+    }
+
+    /**
+     * Reads the first entry of a MusicBrainz artist search; the remaining matches are skipped.
+     */
+    static ArtistLookup readFirstArtist(JsonParser parser) throws IOException {
+        if (!toField(parser, "artists") || parser.currentToken() != JsonToken.START_ARRAY
+                || parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        String id = "";
+        String name = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = text(parser);
+                case "name" -> name = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new ArtistLookup(name, id);
+    }
+
+    static ArtistDetailsResponse readArtistDetails(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        String id = "";
+        String name = "";
+        String wikipediaPageTitle = null;
+        String wikidataId = null;
+        List<ReleaseGroup> albums = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = text(parser);
+                case "name" -> name = text(parser);
+                case "relations" -> {
+                    for (String[] relation : readRelations(parser)) {
+                        String type = relation[0];
+                        String resource = relation[1];
+                        if (resource.isEmpty()) {
+                            continue;
+                        }
+                        // A direct Wikipedia link wins over Wikidata, which is only used as a fallback
+                        if ("wikipedia".equalsIgnoreCase(type) && wikipediaPageTitle == null) {
+                            wikipediaPageTitle = lastPathSegment(resource);
+                        } else if ("wikidata".equalsIgnoreCase(type)) {
+                            wikidataId = lastPathSegment(resource);
+                        }
+                    }
+                }
+                case "release-groups" -> readAlbums(parser, albums);
+                default -> parser.skipChildren();
+            }
+        }
+        return new ArtistDetailsResponse(id, name, wikipediaPageTitle, wikidataId, Collections.unmodifiableList(albums));
+    }
+
+    /**
+     * Reads the image URL of the first front cover in a Cover Art Archive listing.
+     */
+    static String readFrontImage(JsonParser parser) throws IOException {
+        if (!toField(parser, "images") || parser.currentToken() != JsonToken.START_ARRAY) {
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            boolean front = false;
+            String image = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "front" -> front = parser.getValueAsBoolean();
+                    case "image" -> image = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (front) {
+                return image;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the English Wikipedia page titles from a Wikidata {@code wbgetentities} sitelinks response, by
+     * entity ID; entities without one are left out.
+     */
+    static Map<String, String> readEnwikiTitles(JsonParser parser) throws IOException {
+        Map<String, String> titles = new HashMap<>();
+        if (!toField(parser, "entities") || parser.currentToken() != JsonToken.START_OBJECT) {
+            return titles;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String id = parser.currentName();
+            parser.nextToken();
+            String title = readEntityEnwikiTitle(parser);
+            if (title != null && !title.isEmpty()) {
+                titles.put(id, title);
+            }
+        }
+        return titles;
+    }
+
+    /**
+     * Reads the extracts of a Wikipedia {@code prop=extracts} query for one or more titles.
+     */
+    static WikipediaExtracts readExtracts(JsonParser parser) throws IOException {
+        if (!toField(parser, "query") || parser.currentToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        Map<String, String> normalized = new HashMap<>();
+        Map<String, String> redirects = new HashMap<>();
+        Map<String, String> extracts = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "normalized" -> readTitleMappings(parser, normalized);
+                case "redirects" -> readTitleMappings(parser, redirects);
+                case "pages" -> readPageExtracts(parser, extracts);
+                default -> parser.skipChildren();
+            }
+        }
+        return new WikipediaExtracts(normalized, redirects, extracts);
+    }
+
+    /**
+     * Moves from the start of an object to the value of {@code name}, skipping the fields before it.
+     */
+    private static boolean toField(JsonParser parser, String name) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean match = name.equals(parser.currentName());
+            parser.nextToken();
+            if (match) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static List<String[]> readRelations(JsonParser parser) throws IOException {
+        List<String[]> relations = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return relations;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String type = "";
+            String resource = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("type".equals(field)) {
+                    type = text(parser);
+                } else if ("url".equals(field) && toField(parser, "resource")) {
+                    resource = text(parser);
+                    skipRestOfObject(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            // Only the relation types used for the description are kept
+            if ("wikipedia".equalsIgnoreCase(type) || "wikidata".equalsIgnoreCase(type)) {
+                relations.add(new String[]{type, resource});
+            }
+        }
+        return relations;
+    }
+
+    private static void readAlbums(JsonParser parser, List<ReleaseGroup> albums) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String id = "";
+            String title = "";
+            String primaryType = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = text(parser);
+                    case "title" -> title = text(parser);
+                    case "primary-type" -> primaryType = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if ("Album".equalsIgnoreCase(primaryType) && !id.isEmpty() && !title.isEmpty()) {
+                albums.add(new ReleaseGroup(id, title));
+            }
+        }
+    }
+
+    private static String readEntityEnwikiTitle(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String title = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (!"sitelinks".equals(field) || parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String site = parser.currentName();
+                parser.nextToken();
+                if ("enwiki".equals(site) && toField(parser, "title")) {
+                    title = text(parser);
+                    skipRestOfObject(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return title;
+    }
+
+    private static void readTitleMappings(JsonParser parser, Map<String, String> mappings) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String from = "";
+            String to = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "from" -> from = text(parser);
+                    case "to" -> to = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!from.isEmpty() && !to.isEmpty()) {
+                mappings.put(from, to);
+            }
+        }
+    }
+
+    private static void readPageExtracts(JsonParser parser, Map<String, String> extracts) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String title = "";
+            String extract = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "title" -> title = text(parser);
+                    case "extract" -> extract = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!extract.isEmpty() && !extract.equals("null")) {
+                extracts.putIfAbsent(title, extract);
+            }
+        }
+    }
+
+    private static void skipRestOfObject(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        if (parser.currentToken().isScalarValue()) {
+            return parser.getValueAsString("");
+        }
+        parser.skipChildren();
+        return "";
+    }
+
+    private static String lastPathSegment(String resource) {
+        return resource.substring(resource.lastIndexOf('/') + 1);
+    }
+}
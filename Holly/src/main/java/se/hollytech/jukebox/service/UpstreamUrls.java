@@ -0,0 +1,68 @@
+package se.hollytech.jukebox.service;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.Collection;
+
+/**
+ * The upstream URLs used by both service implementations.
+ */
+final class UpstreamUrls {
+
+    static final String USER_AGENT = "JukeboxApi/1.0 (your.email@example.com)";
+    private static final String MUSICBRAINZ_API_URL = "https://musicbrainz.org/ws/2/artist/";
+    private static final String COVER_ART_API_URL = "http://coverartarchive.org/release-group/";
+    private static final String WIKIPEDIA_API_URL = "https://en.wikipedia.org/w/api.php";
+    private static final String WIKIDATA_API_URL = "https://www.wikidata.org/w/api.php";
+    static final URI MUSICBRAINZ = URI.create(MUSICBRAINZ_API_URL);
+    static final URI COVER_ART = URI.create(COVER_ART_API_URL);
+    static final URI WIKIPEDIA = URI.create(WIKIPEDIA_API_URL);
+
+    private UpstreamUrls() {
+    }
+
+    static String artistSearch(String artistName) {
+        return UriComponentsBuilder.fromHttpUrl(MUSICBRAINZ_API_URL)
+                .queryParam("query", "artist:" + artistName)
+                .queryParam("fmt", "json")
+                .toUriString();
+    }
+
+    static String artistDetails(String mbid) {
+        return UriComponentsBuilder.fromHttpUrl(MUSICBRAINZ_API_URL + mbid)
+                .queryParam("fmt", "json")
+                .queryParam("inc", "url-rels+release-groups")
+                .toUriString();
+    }
+
+    static String coverArt(String releaseGroupId) {
+        return COVER_ART_API_URL + releaseGroupId;
+    }
+
+    static String wikidataSitelinks(Collection<String> wikidataIds) {
+        return UriComponentsBuilder.fromHttpUrl(WIKIDATA_API_URL)
+                .queryParam("action", "wbgetentities")
+                .queryParam("ids", String.join("|", wikidataIds))
+                .queryParam("format", "json")
+                .queryParam("props", "sitelinks")
+                .queryParam("sitefilter", "enwiki")
+                .toUriString();
+    }
+
+    /**
+     * Expects page titles with spaces already replaced by underscores, which are URL-safe for Wikipedia.
+     */
+    static String wikipediaExtracts(Collection<String> normalizedPageTitles) {
+        return UriComponentsBuilder.fromHttpUrl(WIKIPEDIA_API_URL)
+                .queryParam("action", "query")
+                .queryParam("prop", "extracts")
+                .queryParam("exintro", "true")
+                .queryParam("explaintext", "false")
+                .queryParam("redirects", "true")
+                .queryParam("titles", String.join("|", normalizedPageTitles))
+                .queryParam("format", "json")
+                .queryParam("exlimit", "max")
+                .toUriString();
+    }
+}
@@ -0,0 +1,172 @@
+package se.hollytech.jukebox.warmup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import se.hollytech.jukebox.http.UpstreamPriority;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.service.JukeboxService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Warms {@code artistLookupCache} and {@code artistDetailsCache} from a seed list once the application has
+ * started, through the same service paths as live requests. The warm-up runs on its own thread at background
+ * priority, and while it runs every upstream throttle holds background calls to
+ * {@code jukebox.warmup.rate-limit-share} of its current rate. Each call is charged when it takes its permit,
+ * so artists that are already cached, cover art that is cached and lookups that are never made cost nothing,
+ * and the warm-up slows down when an upstream backs off and gives way to live requests.
+ */
+public class CacheWarmer implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+    private static final Pattern MBID = Pattern.compile("[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}");
+
+    public enum State { DISABLED, PENDING, RUNNING, COMPLETED, FAILED }
+
+    private final JukeboxService jukeboxService;
+    private final WarmupProperties properties;
+    private final UpstreamThrottles throttles;
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile State state;
+    private volatile Thread worker;
+
+    public CacheWarmer(JukeboxService jukeboxService, WarmupProperties properties, UpstreamThrottles throttles) {
+        if (properties.getSeedFile() != null && !(properties.getRateLimitShare() > 0 && properties.getRateLimitShare() <= 1)) {
+            throw new IllegalArgumentException("Invalid warm-up rate limit share: " + properties.getRateLimitShare());
+        }
+        this.jukeboxService = jukeboxService;
+        this.properties = properties;
+        this.throttles = throttles;
+        this.state = properties.getSeedFile() != null ? State.PENDING : State.DISABLED;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (state == State.PENDING) {
+            worker = Thread.ofPlatform().name("cache-warmup").daemon().start(this::run);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getWarmed() {
+        return warmed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Ready once the configured fraction of the seed list is warm, or once the warm-up has finished or
+     * cannot run, so a bad seed list never keeps the service out of rotation.
+     */
+    public boolean isReady() {
+        return switch (state) {
+            case DISABLED, COMPLETED, FAILED -> true;
+            case PENDING -> properties.getReadyFraction() <= 0;
+            case RUNNING -> warmed.get() >= Math.ceil(properties.getReadyFraction() * total.get());
+        };
+    }
+
+    void run() {
+        List<String> seeds;
+        try {
+            seeds = readSeeds();
+        } catch (IOException e) {
+            logger.error("Failed to read warm-up seed file: seedFile={}, error={}", properties.getSeedFile(), e.getMessage());
+            state = State.FAILED;
+            return;
+        }
+        total.set(seeds.size());
+        state = State.RUNNING;
+        logger.info("Cache warm-up started: artists={}, rateLimitShare={}", seeds.size(), properties.getRateLimitShare());
+        long start = System.nanoTime();
+        limitBackgroundShare(properties.getRateLimitShare());
+        try {
+            for (String seed : seeds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    logger.info("Cache warm-up stopped: warmed={}, failed={}, total={}", warmed.get(), failed.get(), total.get());
+                    return;
+                }
+                try {
+                    Artist artist = UpstreamPriority.BACKGROUND.call(() -> warm(seed));
+                    if (artist.partial()) {
+                        // Only cached for the partial TTL and never persisted, so it is not warm
+                        failed.incrementAndGet();
+                        logger.warn("Cache warm-up got partial details for artist: seed={}, mbid={}", seed, artist.mbid());
+                    } else {
+                        warmed.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    logger.warn("Cache warm-up failed for artist: seed={}, error={}", seed, e.getMessage());
+                }
+            }
+        } finally {
+            limitBackgroundShare(1);
+        }
+        state = State.COMPLETED;
+        logger.info("Cache warm-up completed: warmed={}, failed={}, total={}, elapsedMs={}",
+                warmed.get(), failed.get(), total.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Artist warm(String seed) {
+        String mbid = MBID.matcher(seed).matches() ? seed : jukeboxService.getArtistMbid(seed).mbid();
+        // Cached entries, persisted ones included, are answered without upstream calls and promoted to memory
+        return jukeboxService.getArtistDetails(mbid);
+    }
+
+    /**
+     * Holds the background calls of every upstream to {@code share} of its throttle's rate; 1 lifts the limit.
+     */
+    private void limitBackgroundShare(double share) {
+        throttles.getThrottles().values().forEach(throttle -> throttle.setMaxShare(UpstreamPriority.BACKGROUND, share));
+    }
+
+    private List<String> readSeeds() throws IOException {
+        // Keyed case-insensitively, like the lookup cache, so duplicates are only warmed once
+        Map<String, String> seeds = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(properties.getSeedFile().getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String seed = line.trim();
+                if (!seed.isEmpty() && !seed.startsWith("#")) {
+                    seeds.putIfAbsent(seed.toLowerCase(), seed);
+                }
+            }
+        }
+        return new ArrayList<>(seeds.values());
+    }
+
+}
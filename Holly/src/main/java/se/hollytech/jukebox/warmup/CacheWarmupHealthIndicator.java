@@ -0,0 +1,31 @@
+package se.hollytech.jukebox.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Reports the warm-up progress and holds the readiness group out of service until enough of the seed
+ * list is warm.
+ */
+public class CacheWarmupHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmer cacheWarmer;
+    private final WarmupProperties properties;
+
+    public CacheWarmupHealthIndicator(CacheWarmer cacheWarmer, WarmupProperties properties) {
+        this.cacheWarmer = cacheWarmer;
+        this.properties = properties;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = cacheWarmer.isReady() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("state", cacheWarmer.getState())
+                .withDetail("total", cacheWarmer.getTotal())
+                .withDetail("warmed", cacheWarmer.getWarmed())
+                .withDetail("failed", cacheWarmer.getFailed())
+                .withDetail("readyFraction", properties.getReadyFraction())
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package se.hollytech.jukebox.warmup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes warm-up progress as {@code jukebox.cache.warmup.artists} gauges, tagged by outcome.
+ */
+public class CacheWarmupMetrics implements MeterBinder {
+
+    private final CacheWarmer cacheWarmer;
+
+    public CacheWarmupMetrics(CacheWarmer cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "total", "Artists in the seed list", CacheWarmer::getTotal);
+        gauge(registry, "warmed", "Seed artists loaded into the caches", CacheWarmer::getWarmed);
+        gauge(registry, "failed", "Seed artists that could not be loaded", CacheWarmer::getFailed);
+    }
+
+    private void gauge(MeterRegistry registry, String outcome, String description, ToDoubleFunction<CacheWarmer> value) {
+        Gauge.builder("jukebox.cache.warmup.artists", cacheWarmer, value)
+                .description(description)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,50 @@
+package se.hollytech.jukebox.warmup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+/**
+ * Startup cache warm-up settings, bound from {@code jukebox.warmup.*}. Warm-up runs only when
+ * {@code seedFile} is set.
+ */
+@ConfigurationProperties(prefix = "jukebox.warmup")
+public class WarmupProperties {
+
+    /**
+     * Artist names or MBIDs, one per line; blank lines and lines starting with {@code #} are skipped.
+     */
+    private Resource seedFile;
+    /**
+     * Share of each upstream throttle's current rate that background calls may use while the warm-up runs,
+     * above 0 and at most 1.
+     */
+    private double rateLimitShare = 0.2;
+    /**
+     * Share of the seed list that must be warm before the service reports ready, between 0 and 1.
+     */
+    private double readyFraction = 0.8;
+
+    public Resource getSeedFile() {
+        return seedFile;
+    }
+
+    public void setSeedFile(Resource seedFile) {
+        this.seedFile = seedFile;
+    }
+
+    public double getRateLimitShare() {
+        return rateLimitShare;
+    }
+
+    public void setRateLimitShare(double rateLimitShare) {
+        this.rateLimitShare = rateLimitShare;
+    }
+
+    public double getReadyFraction() {
+        return readyFraction;
+    }
+
+    public void setReadyFraction(double readyFraction) {
+        this.readyFraction = readyFraction;
+    }
+}
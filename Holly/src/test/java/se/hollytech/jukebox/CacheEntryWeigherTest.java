@@ -0,0 +1,127 @@
+package se.hollytech.jukebox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheEntryWeigherTest {
+
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+
+    private final CacheEntryWeigher weigher = new CacheEntryWeigher();
+
+    @Test
+    void weigh_ArtistWithDescriptionAndAlbums_OutweighsLookupByFarAndCountsEveryString() {
+        Artist artist = artist(25, text(16_000));
+        int lookup = weigher.weigh("electric light orchestra", new ArtistLookup("Electric Light Orchestra", MBID));
+        int details = weigher.weigh(MBID, artist);
+
+        assertTrue(details > 50 * lookup, details + " vs " + lookup);
+        assertTrue(details > artist.deflatedDescriptionLength() + 25 * "https://coverartarchive.org/release/x/front.jpg".length());
+    }
+
+    @Test
+    void weigh_LongDescription_WeighsDeflatedFormAndReadsItBackUnchanged() throws Exception {
+        String description = "<p>Electric Light Orchestra are an English rock band.</p>".repeat(200);
+        Artist artist = artist(3, description);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertTrue(artist.deflatedDescriptionLength() > 0);
+        assertTrue(weigher.weigh(MBID, artist) < description.length(), "weight: " + weigher.weigh(MBID, artist));
+        assertEquals(description, artist.description());
+        assertEquals(artist, objectMapper.readValue(objectMapper.writeValueAsString(artist), Artist.class));
+        assertEquals(objectMapper.writeValueAsString(new Artist("Electric Light Orchestra", description, MBID, List.of())),
+                "{\"name\":\"Electric Light Orchestra\",\"description\":\"" + description + "\",\"mbid\":\"" + MBID + "\",\"albums\":[]}");
+    }
+
+    @Test
+    void weigh_ShortDescription_HoldsItAsIs() {
+        Artist artist = artist(3, "British rock band");
+
+        assertEquals(-1, artist.deflatedDescriptionLength());
+        assertEquals("British rock band", artist.description());
+    }
+
+    @Test
+    void weigh_TextOutsideLatin1_CountsTwoBytesPerCharacter() {
+        long latin1 = CacheEntryWeigher.estimate("Électriq ".repeat(100));
+        long utf16 = CacheEntryWeigher.estimate("Электрик ".repeat(100));
+
+        // 900 more bytes, less the alignment padding of the shorter array
+        assertEquals(900, utf16 - latin1, 8);
+    }
+
+    @Test
+    void weigh_NegativeEntry_WeighsKeyAndOverheadOnly() {
+        assertEquals(CacheEntryWeigher.ENTRY_OVERHEAD + CacheEntryWeigher.estimate(MBID), weigher.weigh(MBID, Boolean.TRUE));
+    }
+
+    @Test
+    void maximumWeight_SameBudget_HoldsManyLookupsButFewLargeArtists() {
+        Cache<Object, Object> lookups = weighedCache(500_000);
+        Cache<Object, Object> artists = weighedCache(500_000);
+        for (int i = 0; i < 1000; i++) {
+            lookups.put("lookup-" + i, new ArtistLookup("Artist " + i, MBID));
+        }
+        for (int i = 0; i < 100; i++) {
+            artists.put("artist-" + i, artist(25, text(26_000)));
+        }
+
+        assertEquals(1000, CacheMemoryMetrics.entries(lookups));
+        assertTrue(CacheMemoryMetrics.entries(artists) <= 25, "entries: " + CacheMemoryMetrics.entries(artists));
+        assertTrue(CacheMemoryMetrics.weightedSize(artists) <= 500_000);
+    }
+
+    @Test
+    void bindTo_Caches_PublishesEntriesAndEstimatedBytesPerCache() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        Cache<Object, Object> details = Caffeine.newBuilder().maximumWeight(1_000_000).weigher(new CacheEntryWeigher()).build();
+        cacheManager.registerCustomCache("artistDetailsCache", details);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new CacheMemoryMetrics(cacheManager).bindTo(registry);
+
+        Artist artist = artist(3, "British rock band");
+        details.put(MBID, artist);
+
+        assertEquals(1, registry.get("jukebox.cache.entries").tag("cache", "artistDetailsCache").gauge().value());
+        assertEquals(weigher.weigh(MBID, artist),
+                registry.get("jukebox.cache.size").tag("cache", "artistDetailsCache").gauge().value());
+    }
+
+    private static Cache<Object, Object> weighedCache(long maximumWeight) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new CacheEntryWeigher())
+                .executor(Runnable::run)
+                .build();
+    }
+
+    private static Artist artist(int albumCount, String description) {
+        List<Album> albums = new ArrayList<>();
+        for (int i = 0; i < albumCount; i++) {
+            albums.add(new Album("Album " + i, "release-group-" + i,
+                    "https://coverartarchive.org/release/" + i + "/front.jpg"));
+        }
+        return new Artist("Electric Light Orchestra", description, MBID, albums);
+    }
+
+    // Text that deflates poorly, so that a description of this length stays about as large when held deflated
+    private static String text(int length) {
+        byte[] bytes = new byte[length * 3 / 4];
+        new Random(42).nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,149 @@
+package se.hollytech.jukebox.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import se.hollytech.jukebox.http.UpstreamPriority;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatcherTest {
+
+    private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+    private final Function<Set<String>, Map<String, String>> upperCaseLoader = keys -> {
+        batches.add(Set.copyOf(keys));
+        return keys.stream().filter(key -> !key.startsWith("missing")).collect(Collectors.toMap(key -> key, String::toUpperCase));
+    };
+    private final ExecutorService loaderExecutor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "loader"));
+    private MicroBatchScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.destroy();
+        }
+        loaderExecutor.shutdownNow();
+    }
+
+    @Test
+    void load_WithinWindow_SendsOneBatch() {
+        MicroBatcher<String, String> batcher = batcher(Duration.ofMillis(50), 50);
+
+        CompletableFuture<String> elo = batcher.load("elo");
+        CompletableFuture<String> queen = batcher.load("queen");
+        CompletableFuture<String> eloAgain = batcher.load("elo");
+        CompletableFuture<String> missing = batcher.load("missing-artist");
+
+        assertEquals("ELO", elo.join());
+        assertEquals("QUEEN", queen.join());
+        assertSame(elo, eloAgain);
+        assertNull(missing.join());
+        assertEquals(List.of(Set.of("elo", "queen", "missing-artist")), batches);
+    }
+
+    @Test
+    void load_MaxSizeReached_SendsBatchWithoutWaitingForWindow() throws Exception {
+        MicroBatcher<String, String> batcher = batcher(Duration.ofHours(1), 2);
+
+        CompletableFuture<String> first = batcher.load("a");
+        CompletableFuture<String> second = batcher.load("b");
+        CompletableFuture<String> third = batcher.load("c");
+
+        assertEquals("A", first.get(5, TimeUnit.SECONDS));
+        assertEquals("B", second.get(5, TimeUnit.SECONDS));
+        assertFalse(third.isDone());
+        assertEquals(List.of(Set.of("a", "b")), batches);
+    }
+
+    @Test
+    void load_LoaderFails_FailsEveryKeyOfBatch() {
+        MicroBatchProperties properties = new MicroBatchProperties();
+        properties.setWindow(Duration.ofMillis(20));
+        scheduler = new MicroBatchScheduler(properties, loaderExecutor);
+        MicroBatcher<String, String> batcher = scheduler.batcher("failing", keys -> {
+            throw new IllegalStateException("upstream unavailable");
+        });
+
+        CompletableFuture<String> first = batcher.load("a");
+        CompletableFuture<String> second = batcher.load("b");
+
+        CompletionException error = assertThrows(CompletionException.class, first::join);
+        assertEquals("upstream unavailable", error.getCause().getMessage());
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    void load_BlockingLoader_RunsOnLoaderExecutorAtMostUrgentCallerPriority() {
+        MicroBatchProperties properties = new MicroBatchProperties();
+        properties.setWindow(Duration.ofMillis(20));
+        scheduler = new MicroBatchScheduler(properties, loaderExecutor);
+        List<String> sends = new CopyOnWriteArrayList<>();
+        MicroBatcher<String, String> batcher = scheduler.batcher("test", keys -> {
+            sends.add(Thread.currentThread().getName() + ":" + UpstreamPriority.current());
+            return upperCaseLoader.apply(keys);
+        });
+
+        CompletableFuture<String> background = UpstreamPriority.BACKGROUND.call(() -> batcher.load("elo"));
+        CompletableFuture<String> batch = UpstreamPriority.BATCH.call(() -> batcher.load("queen"));
+        assertEquals("ELO", background.join());
+        assertEquals("QUEEN", batch.join());
+        CompletableFuture<String> backgroundOnly = UpstreamPriority.BACKGROUND.call(() -> batcher.load("abba"));
+        assertEquals("ABBA", backgroundOnly.join());
+
+        assertEquals(List.of("loader:BATCH", "loader:BACKGROUND"), sends);
+    }
+
+    @Test
+    void load_Disabled_LoadsEachKeyOnCallingThread() {
+        Map<String, Thread> threads = new HashMap<>();
+        MicroBatcher<String, String> batcher = MicroBatchScheduler.disabled().batcher("test", keys -> {
+            keys.forEach(key -> threads.put(key, Thread.currentThread()));
+            return upperCaseLoader.apply(keys);
+        });
+
+        CompletableFuture<String> elo = batcher.load("elo");
+        CompletableFuture<String> queen = batcher.load("queen");
+
+        assertTrue(elo.isDone() && queen.isDone());
+        assertEquals("ELO", elo.join());
+        assertEquals(List.of(Set.of("elo"), Set.of("queen")), batches);
+        assertEquals(Thread.currentThread(), threads.get("queen"));
+    }
+
+    @Test
+    void load_AsyncLoader_CompletesWhenLoaderCompletes() {
+        MicroBatchProperties properties = new MicroBatchProperties();
+        properties.setWindow(Duration.ofMillis(20));
+        scheduler = new MicroBatchScheduler(properties, loaderExecutor);
+        CompletableFuture<Map<String, String>> response = new CompletableFuture<>();
+        MicroBatcher<String, String> batcher = scheduler.asyncBatcher("async", keys -> response);
+
+        CompletableFuture<String> elo = batcher.load("elo");
+        CompletableFuture<String> queen = batcher.load("queen");
+        response.complete(Map.of("elo", "ELO"));
+
+        assertEquals("ELO", elo.join());
+        assertNull(queen.join());
+    }
+
+    private MicroBatcher<String, String> batcher(Duration window, int maxSize) {
+        MicroBatchProperties properties = new MicroBatchProperties();
+        properties.setWindow(window);
+        properties.getMaxSize().put("test", maxSize);
+        scheduler = new MicroBatchScheduler(properties, loaderExecutor);
+        return scheduler.batcher("test", upperCaseLoader);
+    }
+}
@@ -0,0 +1,206 @@
+package se.hollytech.jukebox.cache;
+
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePersistentCacheTest {
+
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+    private static final Artist ARTIST = new Artist("Electric Light Orchestra", "English rock band", MBID,
+            List.of(new Album("Out of the Blue", "rg-1", "http://coverartarchive.org/release/1/front.jpg")));
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void get_AfterReopen_ReturnsStoredValue() throws IOException {
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            cache.put(MBID, ARTIST);
+        }
+
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            assertEquals(ARTIST, cache.get(MBID));
+            assertNull(cache.get("unknown"));
+        }
+    }
+
+    @Test
+    void getEntry_AfterReopen_ReturnsWriteTime() throws IOException {
+        long before = System.currentTimeMillis();
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            cache.put(MBID, ARTIST);
+        }
+        long after = System.currentTimeMillis();
+
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            PersistentCache.Entry<Artist> entry = cache.getEntry(MBID);
+            assertEquals(ARTIST, entry.value());
+            assertTrue(entry.writtenAt() >= before && entry.writtenAt() <= after);
+        }
+    }
+
+    @Test
+    void invalidate_AfterReopen_StaysRemoved() throws IOException {
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            cache.put(MBID, ARTIST);
+            cache.invalidate(MBID);
+            assertNull(cache.get(MBID));
+        }
+
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            assertNull(cache.get(MBID));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    void get_ExpiredEntry_ReturnsNull() throws Exception {
+        try (FilePersistentCache<Artist> cache = open(Duration.ofMillis(50), 100, 1 << 20)) {
+            cache.put(MBID, ARTIST);
+            Thread.sleep(100);
+
+            assertNull(cache.get(MBID));
+        }
+    }
+
+    @Test
+    void open_TornLastRecord_KeepsEarlierEntries() throws IOException {
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            cache.put(MBID, ARTIST);
+            cache.put("other", ARTIST);
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("artists.data"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            assertEquals(ARTIST, cache.get(MBID));
+            assertNull(cache.get("other"));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void put_BeyondMaximumEntries_CompactsKeepingNewestEntries() throws IOException {
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 10, 1 << 20)) {
+            for (int i = 0; i < 25; i++) {
+                cache.put("artist-" + i, ARTIST);
+            }
+
+            assertTrue(cache.size() <= 10);
+            assertEquals(ARTIST, cache.get("artist-24"));
+            assertNull(cache.get("artist-0"));
+        }
+    }
+
+    @Test
+    void open_MoreEntriesThanMaximum_KeepsNewestEntries() throws IOException {
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, 1 << 20)) {
+            for (int i = 0; i < 25; i++) {
+                cache.put("artist-" + i, ARTIST);
+            }
+        }
+
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 10, 1 << 20)) {
+            assertTrue(cache.size() >= 5 && cache.size() <= 10, "size " + cache.size());
+            assertEquals(ARTIST, cache.get("artist-24"));
+            assertNull(cache.get("artist-0"));
+            cache.put("artist-25", ARTIST);
+            assertEquals(ARTIST, cache.get("artist-25"));
+        }
+    }
+
+    @Test
+    void put_SameKeyRepeatedly_CompactsSupersededRecords() throws IOException {
+        long maximumFileSize = 4096;
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 100, maximumFileSize)) {
+            for (int i = 0; i < 200; i++) {
+                cache.put(MBID, ARTIST);
+            }
+
+            assertTrue(cache.fileSize() <= maximumFileSize);
+            assertEquals(1, cache.size());
+            assertEquals(ARTIST, cache.get(MBID));
+        }
+    }
+
+    @Test
+    void put_FileFullWhileCompactionPending_SkipsNewEntriesUntilCompacted() throws IOException {
+        List<Runnable> compactions = new ArrayList<>();
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 10, 1 << 20, compactions::add)) {
+            for (int i = 0; i < 12; i++) {
+                cache.put("artist-" + i, ARTIST);
+            }
+
+            // Compaction is left to the executor, once, and the writer does not wait for it
+            assertEquals(1, compactions.size());
+            assertEquals(10, cache.size());
+            assertNull(cache.get("artist-11"));
+            cache.invalidate("artist-9");
+            assertNull(cache.get("artist-9"));
+
+            compactions.get(0).run();
+            cache.put("artist-11", ARTIST);
+
+            // The newest half of the limit, then the entry that now fits
+            assertEquals(5 + 1, cache.size());
+            assertEquals(ARTIST, cache.get("artist-11"));
+            assertNull(cache.get("artist-9"));
+            assertNull(cache.get("artist-0"));
+        }
+    }
+
+    @Test
+    void compact_WritesWhileCopying_KeepsThemAfterSwap() throws Exception {
+        List<Runnable> compactions = new ArrayList<>();
+        Artist renamed = new Artist("ELO", null, MBID, List.of());
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 1000, 1 << 20, compactions::add)) {
+            for (int i = 0; i <= 1000; i++) {
+                cache.put("artist-" + i, ARTIST);
+            }
+            Thread compaction = new Thread(compactions.get(0));
+            compaction.start();
+            for (int i = 900; i < 1000; i++) {
+                if (i % 2 == 0) {
+                    cache.invalidate("artist-" + i);
+                } else {
+                    cache.put("artist-" + i, renamed);
+                }
+            }
+            compaction.join();
+
+            for (int i = 900; i < 1000; i++) {
+                assertEquals(i % 2 == 0 ? null : renamed, cache.get("artist-" + i), "artist-" + i);
+            }
+        }
+        try (FilePersistentCache<Artist> cache = open(Duration.ofHours(1), 1000, 1 << 20)) {
+            for (int i = 900; i < 1000; i++) {
+                assertEquals(i % 2 == 0 ? null : renamed, cache.get("artist-" + i), "artist-" + i);
+            }
+        }
+    }
+
+    private FilePersistentCache<Artist> open(Duration ttl, int maximumEntries, long maximumFileSize) throws IOException {
+        return open(ttl, maximumEntries, maximumFileSize, Runnable::run);
+    }
+
+    private FilePersistentCache<Artist> open(Duration ttl, int maximumEntries, long maximumFileSize, Executor compactionExecutor)
+            throws IOException {
+        return new FilePersistentCache<>("artists", directory.resolve("artists.data"), Artist.class, new SmileMapper(),
+                ttl, maximumEntries, maximumFileSize, compactionExecutor);
+    }
+}
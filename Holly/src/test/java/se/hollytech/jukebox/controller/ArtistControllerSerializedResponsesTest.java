@@ -0,0 +1,123 @@
+package se.hollytech.jukebox.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.JukeboxService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ArtistController.class, properties = {
+        "jukebox.cache.serialized-responses.enabled=true", "server.compression.min-response-size=1KB"})
+class ArtistControllerSerializedResponsesTest {
+
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private JukeboxService jukeboxService;
+
+    @Test
+    void getArtistDetails_SmallArtist_WritesSameJsonAsJacksonUncompressed() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", "British rock band", MBID,
+                List.of(new Album("Eldorado", "album-1", "http://coverartarchive.org/eldorado.jpg")));
+        when(jukeboxService.getArtistDetails(MBID, Duration.ofSeconds(5))).thenReturn(artist);
+
+        byte[] body = mockMvc.perform(get("/api/artist/details").param("mbid", MBID)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(artist), body);
+    }
+
+    @Test
+    void getArtistDetails_LargeArtist_SendsGzipOnlyWhenAccepted() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", "British rock band. ".repeat(100), MBID, List.of());
+        when(jukeboxService.getArtistDetails(any(), any())).thenReturn(artist);
+        byte[] json = objectMapper.writeValueAsBytes(artist);
+        String eTag = artistETag(artist);
+
+        byte[] compressed = mockMvc.perform(get("/api/artist/details").param("mbid", MBID)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag.substring(0, eTag.length() - 1) + "--gzip\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(json, gunzip(compressed));
+
+        byte[] plain = mockMvc.perform(get("/api/artist/details").param("mbid", MBID)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(json, plain);
+    }
+
+    @Test
+    void getArtistDiscography_IfNoneMatchesEitherEncoding_Returns304WithoutBody() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", "British rock band. ".repeat(100), MBID, List.of());
+        when(jukeboxService.getArtistDiscography(any(), any())).thenReturn(artist);
+        String eTag = artistETag(artist);
+        String gzipETag = eTag.substring(0, eTag.length() - 1) + "--gzip\"";
+
+        for (String ifNoneMatch : List.of(eTag, gzipETag, "\"other\", W/" + eTag)) {
+            mockMvc.perform(get("/api/artist/discography").param("artistName", "Electric Light Orchestra")
+                            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                            .header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, gzipETag))
+                    .andExpect(content().string(""));
+        }
+    }
+
+    @Test
+    void getArtistMbid_Success_WritesLookupJson() throws Exception {
+        ArtistLookup lookup = new ArtistLookup("Electric Light Orchestra", MBID);
+        when(jukeboxService.getArtistMbid("Electric Light Orchestra")).thenReturn(lookup);
+
+        mockMvc.perform(get("/api/artist/mbid").param("artistName", "Electric Light Orchestra"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name").value("Electric Light Orchestra"))
+                .andExpect(jsonPath("$.mbid").value(MBID));
+    }
+
+    private static String artistETag(Artist artist) {
+        return new ArtistETags().of(artist);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
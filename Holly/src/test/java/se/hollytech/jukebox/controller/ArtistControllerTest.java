@@ -8,17 +8,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistBatchItem;
 import se.hollytech.jukebox.model.ArtistLookup;
 import se.hollytech.jukebox.model.Album;
 import se.hollytech.jukebox.service.ArtistNotFoundException;
+import se.hollytech.jukebox.service.DiscographyListener;
 import se.hollytech.jukebox.service.JukeboxService;
 import se.hollytech.jukebox.service.MusicBrainzApiException;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,6 +38,8 @@ class ArtistControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(5);
+
     @MockBean
     private JukeboxService jukeboxService;
 
@@ -81,7 +92,7 @@ class ArtistControllerTest {
                 new Album("Eldorado", "c2e4b8f1-2a4e-4d10-a46a-e9e041da8eb3", "http://coverartarchive.org/release-group/c2e4b8f1-2a4e-4d10-a46a-e9e041da8eb3/front")
         );
         Artist artist = new Artist("Electric Light Orchestra", "<p>ELO is...</p>", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", albums);
-        when(jukeboxService.getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e")).thenReturn(artist);
+        when(jukeboxService.getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", DEFAULT_BUDGET)).thenReturn(artist);
 
         mockMvc.perform(get("/api/artist/details")
                         .param("mbid", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e")
@@ -92,12 +103,86 @@ class ArtistControllerTest {
                 .andExpect(jsonPath("$.description").value("<p>ELO is...</p>"))
                 .andExpect(jsonPath("$.albums[0].title").value("Eldorado"));
 
-        verify(jukeboxService).getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e");
+        verify(jukeboxService).getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", DEFAULT_BUDGET);
+    }
+
+    @Test
+    void getArtistDetails_BudgetRanOut_ReturnsPartialArtistWithHeader() throws Exception {
+        Artist partial = new Artist("Electric Light Orchestra", null, "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", List.of(), true);
+        when(jukeboxService.getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", Duration.ofMillis(1500))).thenReturn(partial);
+
+        mockMvc.perform(get("/api/artist/details")
+                        .param("mbid", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e")
+                        .param("budget", "1500ms"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ArtistController.PARTIAL_HEADER, "true"))
+                .andExpect(jsonPath("$.partial").value(true))
+                .andExpect(jsonPath("$.albums").isEmpty());
+    }
+
+    @Test
+    void getArtistDetails_CompleteArtist_OmitsPartialMarker() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", null, "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", List.of());
+        when(jukeboxService.getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", Duration.ZERO)).thenReturn(artist);
+
+        mockMvc.perform(get("/api/artist/details")
+                        .param("mbid", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e")
+                        .param("budget", "0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ArtistController.PARTIAL_HEADER))
+                .andExpect(jsonPath("$.partial").doesNotExist());
+    }
+
+    @Test
+    void getArtistDetails_IfNoneMatchesETag_Returns304WithoutBody() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", "<p>ELO is...</p>", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", List.of());
+        when(jukeboxService.getArtistDetails("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", DEFAULT_BUDGET)).thenReturn(artist);
+
+        String eTag = mockMvc.perform(get("/api/artist/details")
+                        .param("mbid", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/artist/details")
+                        .param("mbid", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e")
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getArtistDiscography_ArtistChanged_ReturnsNewBodyForOldETag() throws Exception {
+        Artist before = new Artist("Electric Light Orchestra", null, "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", List.of());
+        Artist after = new Artist("Electric Light Orchestra", "<p>ELO is...</p>", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", List.of());
+        when(jukeboxService.getArtistDiscography("Electric Light Orchestra", DEFAULT_BUDGET)).thenReturn(before, after);
+
+        String eTag = mockMvc.perform(get("/api/artist/discography")
+                        .param("artistName", "Electric Light Orchestra"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/artist/discography")
+                        .param("artistName", "Electric Light Orchestra")
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(jsonPath("$.description").value("<p>ELO is...</p>"));
+    }
+
+    @Test
+    void getArtistDetails_InvalidBudget_Returns400() throws Exception {
+        mockMvc.perform(get("/api/artist/details")
+                        .param("mbid", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e")
+                        .param("budget", "soon"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jukeboxService);
     }
 
     @Test
     void getArtistDetails_ArtistNotFound_Returns404() throws Exception {
-        when(jukeboxService.getArtistDetails("invalid-mbid"))
+        when(jukeboxService.getArtistDetails("invalid-mbid", DEFAULT_BUDGET))
                 .thenThrow(new ArtistNotFoundException("No data found for MBID: invalid-mbid"));
 
         mockMvc.perform(get("/api/artist/details")
@@ -105,7 +190,7 @@ class ArtistControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
 
-        verify(jukeboxService).getArtistDetails("invalid-mbid");
+        verify(jukeboxService).getArtistDetails("invalid-mbid", DEFAULT_BUDGET);
     }
 
     @ParameterizedTest
@@ -115,7 +200,7 @@ class ArtistControllerTest {
                 new Album("Eldorado", "c2e4b8f1-2a4e-4d10-a46a-e9e041da8eb3", "http://coverartarchive.org/release-group/c2e4b8f1-2a4e-4d10-a46a-e9e041da8eb3/front")
         );
         Artist artist = new Artist(artistName, "<p>" + artistName + " is...</p>", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", albums);
-        when(jukeboxService.getArtistDiscography(artistName)).thenReturn(artist);
+        when(jukeboxService.getArtistDiscography(artistName, DEFAULT_BUDGET)).thenReturn(artist);
 
         mockMvc.perform(get("/api/artist/discography")
                         .param("artistName", artistName)
@@ -126,12 +211,12 @@ class ArtistControllerTest {
                 .andExpect(jsonPath("$.description").value("<p>" + artistName + " is...</p>"))
                 .andExpect(jsonPath("$.albums[0].title").value("Eldorado"));
 
-        verify(jukeboxService).getArtistDiscography(artistName);
+        verify(jukeboxService).getArtistDiscography(artistName, DEFAULT_BUDGET);
     }
 
     @Test
     void getArtistDiscography_ArtistNotFound_Returns404() throws Exception {
-        when(jukeboxService.getArtistDiscography("NonExistentBand"))
+        when(jukeboxService.getArtistDiscography("NonExistentBand", DEFAULT_BUDGET))
                 .thenThrow(new ArtistNotFoundException("No artists found for query: NonExistentBand"));
 
         mockMvc.perform(get("/api/artist/discography")
@@ -139,12 +224,12 @@ class ArtistControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
 
-        verify(jukeboxService).getArtistDiscography("NonExistentBand");
+        verify(jukeboxService).getArtistDiscography("NonExistentBand", DEFAULT_BUDGET);
     }
 
     @Test
     void getArtistDiscography_ApiError_Returns429() throws Exception {
-        when(jukeboxService.getArtistDiscography("Electric Light Orchestra"))
+        when(jukeboxService.getArtistDiscography("Electric Light Orchestra", DEFAULT_BUDGET))
                 .thenThrow(new MusicBrainzApiException("Rate limit exceeded", new Exception("API error")));
 
         mockMvc.perform(get("/api/artist/discography")
@@ -154,7 +239,96 @@ class ArtistControllerTest {
                 .andExpect(jsonPath("$.error").value("Too Many Requests"))
                 .andExpect(jsonPath("$.message").value("Rate limit exceeded"));
 
-        verify(jukeboxService).getArtistDiscography("Electric Light Orchestra");
+        verify(jukeboxService).getArtistDiscography("Electric Light Orchestra", DEFAULT_BUDGET);
+    }
+
+    @Test
+    void streamArtistDiscography_Success_StreamsEventsInOrder() throws Exception {
+        Album album = new Album("Eldorado", "c2e4b8f1-2a4e-4d10-a46a-e9e041da8eb3", "http://coverartarchive.org/release-group/c2e4b8f1-2a4e-4d10-a46a-e9e041da8eb3/front");
+        Artist artist = new Artist("Electric Light Orchestra", "<p>ELO is...</p>", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", List.of(album));
+        when(jukeboxService.streamArtistDiscography(eq("Electric Light Orchestra"), any())).thenAnswer(invocation -> {
+            DiscographyListener listener = invocation.getArgument(1);
+            listener.onArtist(new ArtistLookup(artist.name(), artist.mbid()));
+            listener.onAlbum(album);
+            listener.onDescription(artist.description());
+            return CompletableFuture.completedFuture(artist);
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/artist/discography/stream")
+                        .param("artistName", "Electric Light Orchestra")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertTrue(body.indexOf("event:artist") < body.indexOf("event:album"));
+        assertTrue(body.indexOf("event:album") < body.indexOf("event:description"));
+        assertTrue(body.indexOf("event:description") < body.indexOf("event:complete"));
+        assertTrue(body.contains("\"mbid\":\"0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e\""));
+        assertTrue(body.contains("\"title\":\"Eldorado\""));
+        assertTrue(body.contains("{\"albumsCount\":1}"));
+    }
+
+    @Test
+    void streamArtistDiscography_LoadFails_StreamsErrorEvent() throws Exception {
+        when(jukeboxService.streamArtistDiscography(eq("Electric Light Orchestra"), any())).thenAnswer(invocation -> {
+            DiscographyListener listener = invocation.getArgument(1);
+            listener.onArtist(new ArtistLookup("Electric Light Orchestra", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e"));
+            return CompletableFuture.failedFuture(new MusicBrainzApiException("Failed to fetch artist details", new Exception("API error")));
+        });
+
+        String body = mockMvc.perform(get("/api/artist/discography/stream")
+                        .param("artistName", "Electric Light Orchestra")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.contains("event:error"));
+        assertTrue(body.contains("Failed to fetch artist details"));
+        assertFalse(body.contains("event:complete"));
+    }
+
+    @Test
+    void streamArtistDiscography_ArtistNotFound_Returns404() throws Exception {
+        when(jukeboxService.streamArtistDiscography(eq("NonExistentBand"), any()))
+                .thenThrow(new ArtistNotFoundException("No artists found for query: NonExistentBand"));
+
+        mockMvc.perform(get("/api/artist/discography/stream")
+                        .param("artistName", "NonExistentBand")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getArtistDetailsBatch_Success_ReturnsPerItemStatus() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", "<p>ELO is...</p>", "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", Collections.emptyList());
+        when(jukeboxService.getArtistDetailsBatch(List.of("0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e", "invalid-mbid")))
+                .thenReturn(List.of(ArtistBatchItem.ok(artist.mbid(), artist),
+                        ArtistBatchItem.failed("invalid-mbid", ArtistBatchItem.Status.NOT_FOUND, "No data found for MBID: invalid-mbid")));
+
+        mockMvc.perform(post("/api/artist/details/batch")
+                        .content("[\"0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e\", \"invalid-mbid\"]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[0].artist.name").value("Electric Light Orchestra"))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].key").value("invalid-mbid"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[1].artist").doesNotExist());
+    }
+
+    @Test
+    void getArtistDiscographyBatch_EmptyBatch_Returns400() throws Exception {
+        when(jukeboxService.getArtistDiscographyBatch(List.of()))
+                .thenThrow(new IllegalArgumentException("Batch cannot be empty"));
+
+        mockMvc.perform(post("/api/artist/discography/batch")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Batch cannot be empty"));
     }
 
     @Test
@@ -0,0 +1,41 @@
+package se.hollytech.jukebox.controller;
+
+import org.junit.jupiter.api.Test;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtistETagsTest {
+
+    private final ArtistETags eTags = new ArtistETags();
+
+    @Test
+    void of_SameCachedArtist_ComputesTagOnce() {
+        Artist artist = new Artist("ABBA", "<p>ABBA are...</p>", "abba-mbid", List.of(new Album("Arrival", "arrival", "http://img/arrival.jpg")));
+
+        assertSame(eTags.of(artist), eTags.of(artist));
+    }
+
+    @Test
+    void of_EqualContent_GivesEqualTags() {
+        Artist artist = new Artist("ABBA", "<p>ABBA are...</p>", "abba-mbid", List.of(new Album("Arrival", "arrival", "http://img/arrival.jpg")));
+        Artist reloaded = new Artist("ABBA", "<p>ABBA are...</p>", "abba-mbid", List.of(new Album("Arrival", "arrival", "http://img/arrival.jpg")));
+
+        assertEquals(eTags.of(artist), eTags.of(reloaded));
+        assertTrue(eTags.of(artist).matches("\"[A-Za-z0-9_-]{22}\""));
+    }
+
+    @Test
+    void of_AnyFieldDiffers_GivesDifferentTags() {
+        Artist artist = new Artist("ABBA", "ab", "abba-mbid", List.of());
+
+        assertNotEquals(eTags.of(artist), eTags.of(new Artist("ABBA", "a", "abba-mbid", List.of())));
+        assertNotEquals(eTags.of(artist), eTags.of(new Artist("ABBA", null, "abba-mbid", List.of())));
+        assertNotEquals(eTags.of(artist), eTags.of(new Artist("ABBA", "ab", "abba-mbid", List.of(), true)));
+        assertNotEquals(eTags.of(artist), eTags.of(new Artist("ABBA", "ab", "abba-mbid",
+                List.of(new Album("Arrival", "arrival", null)))));
+    }
+}
@@ -0,0 +1,103 @@
+package se.hollytech.jukebox.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.ArtistNotFoundException;
+import se.hollytech.jukebox.service.JukeboxService;
+import se.hollytech.jukebox.service.MusicBrainzApiException;
+import se.hollytech.jukebox.service.ReactiveJukeboxService;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = ReactiveArtistController.class, properties = "jukebox.service.mode=reactive")
+class ReactiveArtistControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private JukeboxService jukeboxService;
+
+    @MockBean
+    private ReactiveJukeboxService reactiveJukeboxService;
+
+    @Test
+    void getArtistMbid_Success_ReturnsArtistLookup() throws Exception {
+        when(reactiveJukeboxService.getArtistMbid("Electric Light Orchestra"))
+                .thenReturn(Mono.just(new ArtistLookup("Electric Light Orchestra", "elo-mbid")));
+
+        MvcResult result = mockMvc.perform(get("/api/artist/mbid").param("artistName", "Electric Light Orchestra"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Electric Light Orchestra"))
+                .andExpect(jsonPath("$.mbid").value("elo-mbid"));
+        verifyNoInteractions(jukeboxService);
+    }
+
+    @Test
+    void getArtistDiscography_Success_ReturnsArtist() throws Exception {
+        Artist artist = new Artist("Electric Light Orchestra", "<p>ELO is...</p>", "elo-mbid",
+                List.of(new Album("Eldorado", "album1", "http://img/1.jpg")));
+        when(reactiveJukeboxService.getArtistDiscography("Electric Light Orchestra")).thenReturn(Mono.just(artist));
+
+        MvcResult result = mockMvc.perform(get("/api/artist/discography").param("artistName", "Electric Light Orchestra"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mbid").value("elo-mbid"))
+                .andExpect(jsonPath("$.albums[0].title").value("Eldorado"));
+    }
+
+    @Test
+    void getArtistDiscography_ArtistNotFound_Returns404() throws Exception {
+        when(reactiveJukeboxService.getArtistDiscography("NonExistentBand"))
+                .thenReturn(Mono.error(new ArtistNotFoundException("No artists found for query: NonExistentBand")));
+
+        MvcResult result = mockMvc.perform(get("/api/artist/discography").param("artistName", "NonExistentBand"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getArtistDetails_RateLimited_Returns429() throws Exception {
+        when(reactiveJukeboxService.getArtistDetails("elo-mbid"))
+                .thenReturn(Mono.error(new MusicBrainzApiException("Rate limit exceeded for MusicBrainz API, please try again later",
+                        new Exception("API error"))));
+
+        MvcResult result = mockMvc.perform(get("/api/artist/details").param("mbid", "elo-mbid"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.error").value("Too Many Requests"));
+    }
+
+    @Test
+    void evictArtistDetailsCache_IsServedBySharedEndpoint() throws Exception {
+        mockMvc.perform(delete("/api/artist/details/cache").param("mbid", "elo-mbid"))
+                .andExpect(status().isOk());
+
+        verify(jukeboxService).evictArtistDetailsCache("elo-mbid");
+    }
+}
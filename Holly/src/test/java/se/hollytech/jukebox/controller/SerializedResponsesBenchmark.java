@@ -0,0 +1,107 @@
+package se.hollytech.jukebox.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.service.JukeboxService;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares cache-hit throughput and bytes allocated per artist details request when every hit is serialized
+ * by Jackson with writing the stored bytes of {@link SerializedResponses}. The service returns the same
+ * artist instance on every call, as the details cache does. Run with {@code gradle benchmark}; it is excluded
+ * from the regular test task.
+ */
+@Tag("benchmark")
+class SerializedResponsesBenchmark {
+
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+    private static final int ALBUMS = 40;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 5_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void storedBytesAllocateLessThanSerializingEachHit() throws Exception {
+        JukeboxService jukeboxService = mock(JukeboxService.class);
+        when(jukeboxService.getArtistDetails(any(), any())).thenReturn(artist());
+        MockMvc serializing = mockMvc(jukeboxService, false);
+        MockMvc stored = mockMvc(jukeboxService, true);
+        RequestBuilder request = get("/api/artist/details").param("mbid", MBID);
+        RequestBuilder gzipRequest = get("/api/artist/details").param("mbid", MBID)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        assertArrayEquals(body(serializing, request), body(stored, request));
+
+        Result jackson = measure(serializing, request);
+        Result json = measure(stored, request);
+        Result gzip = measure(stored, gzipRequest);
+
+        System.out.printf("Artist details of %,d bytes (%,d gzipped) per cache hit: Jackson %,d B/op %,.0f ops/s, "
+                        + "stored JSON %,d B/op %,.0f ops/s, stored gzip %,d B/op %,.0f ops/s%n",
+                body(stored, request).length, body(stored, gzipRequest).length, jackson.bytesPerRequest(),
+                jackson.requestsPerSecond(), json.bytesPerRequest(), json.requestsPerSecond(), gzip.bytesPerRequest(),
+                gzip.requestsPerSecond());
+        assertTrue(json.bytesPerRequest() < jackson.bytesPerRequest());
+    }
+
+    private MockMvc mockMvc(JukeboxService jukeboxService, boolean serializedResponses) {
+        return MockMvcBuilders.standaloneSetup(new ArtistController(jukeboxService, Duration.ofSeconds(5), objectMapper,
+                serializedResponses, true, DataSize.ofKilobytes(2))).build();
+    }
+
+    private static byte[] body(MockMvc mockMvc, RequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private record Result(long bytesPerRequest, double requestsPerSecond) {
+    }
+
+    private Result measure(MockMvc mockMvc, RequestBuilder request) throws Exception {
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            assertEquals(200, mockMvc.perform(request).andReturn().getResponse().getStatus());
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            assertEquals(200, mockMvc.perform(request).andReturn().getResponse().getStatus());
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result((threadBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS,
+                MEASURED_ITERATIONS * 1e9 / elapsed);
+    }
+
+    /**
+     * An artist with a Wikipedia-length description and a long discography.
+     */
+    private static Artist artist() {
+        List<Album> albums = new ArrayList<>();
+        for (int i = 0; i < ALBUMS; i++) {
+            albums.add(new Album("Album number " + i, "album-" + i,
+                    "https://coverartarchive.org/release-group/album-" + i + "/front-500.jpg"));
+        }
+        String description = "Electric Light Orchestra (ELO) are an English rock band formed in Birmingham in 1970. "
+                .repeat(40);
+        return new Artist("Electric Light Orchestra", description, MBID, List.copyOf(albums));
+    }
+}
@@ -0,0 +1,76 @@
+package se.hollytech.jukebox.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+import se.hollytech.jukebox.http.HttpClientProperties;
+import se.hollytech.jukebox.http.UpstreamRequestMetrics;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.JukeboxService;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UpstreamFanOutInterceptorTest {
+
+    private static final String MUSICBRAINZ_URL = "https://musicbrainz.org/ws/2/artist/?query=artist:ELO&fmt=json";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JukeboxService jukeboxService = mock(JukeboxService.class);
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(List.of(
+                new UpstreamRequestMetrics(new UpstreamThrottles(new HttpClientProperties()), new SimpleMeterRegistry())));
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        ArtistController controller = new ArtistController(jukeboxService, Duration.ofSeconds(5), new ObjectMapper(),
+                false, false, DataSize.ofKilobytes(2));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addMappedInterceptors(new String[]{"/api/artist/**"}, new UpstreamFanOutInterceptor(registry))
+                .build();
+    }
+
+    @Test
+    void afterCompletion_UpstreamCallsAndCacheHits_RecordsRequestsPerApiRequest() throws Exception {
+        server.expect(ExpectedCount.twice(), requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        when(jukeboxService.getArtistMbid(any())).thenAnswer(invocation -> {
+            restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+            restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+            return new ArtistLookup("ELO", "elo-mbid");
+        }).thenReturn(new ArtistLookup("ELO", "elo-mbid"));
+
+        mockMvc.perform(get("/api/artist/mbid").param("artistName", "ELO")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/artist/mbid").param("artistName", "ELO")).andExpect(status().isOk());
+
+        server.verify();
+        DistributionSummary summary = registry.get("jukebox.api.upstream.requests")
+                .tags("endpoint", "/api/artist/mbid", "method", "GET").summary();
+        assertEquals(2, summary.count());
+        assertEquals(2, summary.totalAmount());
+        assertEquals(2, summary.max());
+    }
+}
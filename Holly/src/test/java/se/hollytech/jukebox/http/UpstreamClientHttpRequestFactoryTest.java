@@ -0,0 +1,83 @@
+package se.hollytech.jukebox.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamClientHttpRequestFactoryTest {
+
+    private HttpServer server;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        port = server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void createRequest_ConfiguredAndOtherHosts_RouteToUpstreamAndDefaultClients() throws Exception {
+        HttpClientProperties properties = new HttpClientProperties();
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("LocalHost");
+        properties.getUpstreams().put("musicbrainz", musicBrainz);
+        UpstreamClientHttpRequestFactory factory = new UpstreamClientHttpRequestFactory(properties);
+        try {
+            URI upstreamUri = URI.create("http://localhost:" + port + "/ws/2/artist");
+            URI otherUri = URI.create("http://127.0.0.1:" + port + "/other");
+
+            send(factory, upstreamUri);
+            assertEquals(1, factory.getClients().get("musicbrainz").getDestinations().size());
+            assertTrue(factory.getClients().get(UpstreamClientHttpRequestFactory.DEFAULT_UPSTREAM).getDestinations().isEmpty());
+
+            send(factory, otherUri);
+            assertEquals(1, factory.getClients().get("musicbrainz").getDestinations().size());
+            assertEquals(1, factory.getClients().get(UpstreamClientHttpRequestFactory.DEFAULT_UPSTREAM).getDestinations().size());
+
+            assertEquals("musicbrainz", factory.upstreamFor(upstreamUri));
+            assertEquals(UpstreamClientHttpRequestFactory.DEFAULT_UPSTREAM, factory.upstreamFor(otherUri));
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void constructor_LaterUpstreamInvalid_StopsClientsAlreadyStarted() {
+        HttpClientProperties properties = new HttpClientProperties();
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("localhost");
+        properties.getUpstreams().put("musicbrainz", musicBrainz);
+        properties.getUpstreams().put("coverartarchive", new HttpClientProperties.Upstream());
+
+        // Virtual thread mode names the client's pool threads after the upstream
+        assertThrows(IllegalArgumentException.class, () -> new UpstreamClientHttpRequestFactory(properties, true));
+
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.isAlive() && thread.getName().startsWith("http-client-musicbrainz")));
+    }
+
+    private static void send(UpstreamClientHttpRequestFactory factory, URI uri) throws Exception {
+        try (ClientHttpResponse response = factory.createRequest(uri, HttpMethod.GET).execute()) {
+            assertEquals(204, response.getStatusCode().value());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamHedgeTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void call_FirstAttemptAnswersInTime_SendsNoHedge() {
+        UpstreamHedge hedge = hedge(settings(1.0));
+
+        assertEquals("cover", hedge.call(() -> "cover"));
+
+        assertEquals(1, hedge.getCalls());
+        assertEquals(0, hedge.getHedged());
+    }
+
+    @Test
+    void call_FirstAttemptSlow_ReturnsHedgeResult() {
+        UpstreamHedge hedge = hedge(settings(1.0));
+
+        long start = System.nanoTime();
+        String result = hedge.call(slowFirstAttempt("slow", "hedge"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("hedge", result);
+        assertTrue(elapsedMillis < 1000, "Should not wait for the first attempt, took " + elapsedMillis + " ms");
+        assertEquals(1, hedge.getHedged());
+        assertEquals(1, hedge.getHedgeWins());
+    }
+
+    @Test
+    void call_HedgesOverMaxShare_WaitsForFirstAttempt() {
+        UpstreamHedge hedge = hedge(settings(0.5));
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<String> slow = () -> {
+            attempts.incrementAndGet();
+            sleep(100);
+            return "cover";
+        };
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("cover", hedge.call(slow));
+        }
+
+        // Every second call earns half a hedge
+        assertEquals(4, hedge.getCalls());
+        assertEquals(2, hedge.getHedged());
+        assertEquals(6, attempts.get());
+    }
+
+    @Test
+    void call_UpstreamHasCallersWaitingForPermits_SendsNoHedge() {
+        HttpClientProperties.Upstream limits = new HttpClientProperties.Upstream();
+        limits.setMaxRate(1);
+        limits.setMaxWait(Duration.ofSeconds(10));
+        UpstreamThrottle throttle = new UpstreamThrottle("coverartarchive", limits, new HttpClientProperties.Throttle(),
+                Executors.newSingleThreadScheduledExecutor());
+        throttle.request(UpstreamPriority.INTERACTIVE);
+        throttle.request(UpstreamPriority.INTERACTIVE);
+        assertEquals(1, throttle.getQueued());
+        UpstreamHedge hedge = new UpstreamHedge("coverartarchive", settings(1.0), throttle, executor);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("cover", hedge.call(() -> {
+            attempts.incrementAndGet();
+            sleep(100);
+            return "cover";
+        }));
+
+        assertEquals(0, hedge.getHedged());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void call_BothAttemptsFail_ThrowsFirstAttemptError() {
+        UpstreamHedge hedge = hedge(settings(1.0));
+        AtomicInteger attempts = new AtomicInteger();
+
+        ResourceAccessException error = assertThrows(ResourceAccessException.class, () -> hedge.call(() -> {
+            int attempt = attempts.incrementAndGet();
+            sleep(attempt == 1 ? 100 : 0);
+            throw new ResourceAccessException("attempt " + attempt);
+        }));
+
+        assertEquals("attempt 1", error.getMessage());
+        assertEquals(1, hedge.getHedged());
+        assertEquals(0, hedge.getHedgeWins());
+    }
+
+    @Test
+    void call_EnoughSamples_DelaysHedgeByPercentileOfLatencies() {
+        HttpClientProperties.Hedge settings = settings(1.0);
+        settings.setMinSamples(20);
+        settings.setPercentile(0.9);
+        settings.setMinDelay(Duration.ofMillis(1));
+        AtomicLong clock = new AtomicLong();
+        UpstreamHedge hedge = new UpstreamHedge("coverartarchive", settings, UpstreamThrottles.disabled().get("coverartarchive"),
+                executor, clock::get);
+
+        // Attempts of 1 to 20 ms, as told by the clock
+        for (int i = 1; i <= 20; i++) {
+            long latency = TimeUnit.MILLISECONDS.toNanos(i);
+            hedge.call(() -> clock.addAndGet(latency));
+        }
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(18), hedge.getDelayNanos());
+    }
+
+    @Test
+    void bindTo_CallsHedged_PublishesHedgeRateAndWinRate() {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.getHedge().setEnabled(true);
+        properties.getHedge().setInitialDelay(Duration.ofMillis(20));
+        properties.getHedge().setMaxShare(1.0);
+        UpstreamHedging hedging = new UpstreamHedging(properties, UpstreamThrottles.disabled(), false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new UpstreamHedgeMetrics(hedging).bindTo(registry);
+        UpstreamHedge hedge = hedging.getHedges().get("coverartarchive");
+
+        hedge.call(() -> "fast");
+        hedge.call(slowFirstAttempt("slow", "hedge"));
+
+        assertEquals(0.5, registry.get("jukebox.http.hedge.rate").tag("upstream", "coverartarchive").gauge().value());
+        assertEquals(1.0, registry.get("jukebox.http.hedge.win-rate").tag("upstream", "coverartarchive").gauge().value());
+        assertEquals(2, registry.get("jukebox.http.hedge.events").tag("upstream", "coverartarchive")
+                .tag("event", "call").functionCounter().count());
+        assertNull(hedging.getHedges().get("musicbrainz"));
+        hedging.destroy();
+    }
+
+    private UpstreamHedge hedge(HttpClientProperties.Hedge settings) {
+        return new UpstreamHedge("coverartarchive", settings, UpstreamThrottles.disabled().get("coverartarchive"), executor);
+    }
+
+    private static HttpClientProperties.Hedge settings(double maxShare) {
+        HttpClientProperties.Hedge settings = new HttpClientProperties.Hedge();
+        settings.setEnabled(true);
+        settings.setInitialDelay(Duration.ofMillis(20));
+        settings.setMaxShare(maxShare);
+        return settings;
+    }
+
+    /**
+     * An attempt that blocks the first time it runs until the test ends, and answers at once after that.
+     */
+    private Supplier<String> slowFirstAttempt(String first, String later) {
+        AtomicInteger attempts = new AtomicInteger();
+        return () -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return first;
+            }
+            return later;
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class UpstreamRequestMetricsTest {
+
+    private static final String MUSICBRAINZ_URL = "https://musicbrainz.org/ws/2/artist/elo-mbid?fmt=json";
+    private static final String COVER_ART_URL = "https://coverartarchive.org/release-group/rg-1";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        HttpClientProperties properties = new HttpClientProperties();
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("musicbrainz.org");
+        properties.getUpstreams().put("musicbrainz", musicBrainz);
+        HttpClientProperties.Upstream coverArt = new HttpClientProperties.Upstream();
+        coverArt.setHost("coverartarchive.org");
+        properties.getUpstreams().put("coverartarchive", coverArt);
+        restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(List.of(new UpstreamRequestMetrics(new UpstreamThrottles(properties), registry)));
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void intercept_Responses_TimedByUpstreamAndOutcome() {
+        server.expect(requestTo(MUSICBRAINZ_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(COVER_ART_URL)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+        restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(COVER_ART_URL, String.class));
+
+        server.verify();
+        assertEquals(2, timer("musicbrainz", "success").count());
+        assertEquals(1, timer("coverartarchive", "server-error").count());
+        assertNull(registry.find("jukebox.http.requests").tags("upstream", "coverartarchive", "outcome", "success").timer());
+    }
+
+    @Test
+    void intercept_InsideFanOut_CountsRequestsOfTheCallerAndItsPropagatedTasks() throws Exception {
+        server.expect(requestTo(MUSICBRAINZ_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(COVER_ART_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        AtomicInteger requests = new AtomicInteger();
+
+        Supplier<String> coverArt = UpstreamFanOut.call(requests, () -> {
+            restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+            return UpstreamFanOut.propagate(() -> restTemplate.getForObject(COVER_ART_URL, String.class));
+        });
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            CompletableFuture.supplyAsync(coverArt, executor).get();
+        }
+        // Outside the count
+        restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+
+        server.verify();
+        assertEquals(2, requests.get());
+        assertEquals(3, registry.find("jukebox.http.requests").timers().stream().mapToLong(Timer::count).sum());
+    }
+
+    private Timer timer(String upstream, String outcome) {
+        Timer timer = registry.find("jukebox.http.requests").tags("upstream", upstream, "outcome", outcome).timer();
+        assertNotNull(timer);
+        return timer;
+    }
+}
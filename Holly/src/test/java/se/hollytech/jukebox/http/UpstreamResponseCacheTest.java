@@ -0,0 +1,187 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class UpstreamResponseCacheTest {
+
+    private static final String MUSICBRAINZ_URL = "https://musicbrainz.org/ws/2/artist/elo-mbid?fmt=json";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final HttpClientProperties.ResponseCache settings = new HttpClientProperties.ResponseCache();
+    private UpstreamThrottles throttles;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+    private UpstreamResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("musicbrainz.org");
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.getUpstreams().put("musicbrainz", musicBrainz);
+        throttles = new UpstreamThrottles(properties);
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void intercept_FreshResponse_AnswersWithoutCallingUpstreamOrThrottle() {
+        createCache();
+        server.expect(ExpectedCount.once(), requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess("{\"name\":\"ELO\"}", MediaType.APPLICATION_JSON).header(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+
+        assertEquals("{\"name\":\"ELO\"}", get());
+        clock.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertEquals("{\"name\":\"ELO\"}", get());
+
+        server.verify();
+        assertCounts(1, 0, 1);
+        assertEquals(1, throttles.get("musicbrainz").getGranted(UpstreamPriority.INTERACTIVE));
+    }
+
+    @Test
+    void intercept_ExpiredResponseWithETag_RevalidatesWithIfNoneMatch() {
+        createCache();
+        server.expect(requestTo(MUSICBRAINZ_URL)).andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withSuccess("{\"name\":\"ELO\"}", MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.CACHE_CONTROL, "max-age=60").header(HttpHeaders.ETAG, "\"v1\""));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED).header(HttpHeaders.CACHE_CONTROL, "max-age=120"));
+
+        get();
+        clock.addAndGet(Duration.ofSeconds(61).toNanos());
+        assertEquals("{\"name\":\"ELO\"}", get());
+        // The 304 renewed the freshness to 120 seconds
+        clock.addAndGet(Duration.ofSeconds(100).toNanos());
+        assertEquals("{\"name\":\"ELO\"}", get());
+
+        server.verify();
+        assertCounts(1, 1, 1);
+    }
+
+    @Test
+    void intercept_ResponseWithLastModifiedOnly_RevalidatesEveryTimeWithIfModifiedSince() {
+        createCache();
+        server.expect(requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess("{\"name\":\"ELO\"}", MediaType.APPLICATION_JSON).header(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED));
+        server.expect(ExpectedCount.twice(), requestTo(MUSICBRAINZ_URL)).andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        get();
+        assertEquals("{\"name\":\"ELO\"}", get());
+        assertEquals("{\"name\":\"ELO\"}", get());
+
+        server.verify();
+        assertCounts(0, 2, 1);
+    }
+
+    @Test
+    void intercept_ResourceChanged_StoresNewResponse() {
+        createCache();
+        server.expect(requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess("{\"name\":\"ELO\"}", MediaType.APPLICATION_JSON).header(HttpHeaders.ETAG, "\"v1\""));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withSuccess("{\"name\":\"Electric Light Orchestra\"}", MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.ETAG, "\"v2\""));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v2\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        get();
+        assertEquals("{\"name\":\"Electric Light Orchestra\"}", get());
+        assertEquals("{\"name\":\"Electric Light Orchestra\"}", get());
+
+        server.verify();
+        assertCounts(0, 1, 2);
+    }
+
+    @Test
+    void intercept_NoStoreOrNoValidator_IsNotStored() {
+        createCache();
+        server.expect(requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.CACHE_CONTROL, "no-store, max-age=60").header(HttpHeaders.ETAG, "\"v1\""));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(MUSICBRAINZ_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        get();
+        get();
+        get();
+
+        server.verify();
+        assertCounts(0, 0, 3);
+        assertEquals(0, cache.getEntries());
+    }
+
+    @Test
+    void intercept_ResponseOverMaximumEntrySize_PassesThroughWholeBody() {
+        settings.setMaximumEntrySize(DataSize.ofBytes(8));
+        createCache();
+        String body = "{\"name\":\"Electric Light Orchestra\"}";
+        server.expect(ExpectedCount.twice(), requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON).header(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+
+        assertEquals(body, get());
+        assertEquals(body, get());
+
+        server.verify();
+        assertEquals(0, cache.getEntries());
+    }
+
+    @Test
+    void bindTo_Requests_PublishesCountsPerUpstreamAndSize() {
+        createCache();
+        server.expect(ExpectedCount.once(), requestTo(MUSICBRAINZ_URL))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON).header(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new UpstreamResponseCacheMetrics(cache).bindTo(registry);
+
+        get();
+        get();
+
+        assertEquals(1, registry.get("jukebox.http.cache.requests").tag("upstream", "musicbrainz").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, registry.get("jukebox.http.cache.requests").tag("upstream", "musicbrainz").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(1, registry.get("jukebox.http.cache.entries").gauge().value());
+        assertTrue(registry.get("jukebox.http.cache.size").gauge().value() > 0);
+    }
+
+    private void createCache() {
+        // Stores are weighed on the calling thread, so the size gauges see them right away
+        cache = new UpstreamResponseCache(settings, throttles, clock::get, Runnable::run);
+        restTemplate.getInterceptors().add(cache);
+        restTemplate.getInterceptors().add(new UpstreamThrottleInterceptor(throttles));
+    }
+
+    private String get() {
+        return restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+    }
+
+    private void assertCounts(long hits, long revalidations, long misses) {
+        UpstreamResponseCache.Counters counters = cache.getCounters("musicbrainz");
+        assertEquals(hits, counters.getHits(), "hits");
+        assertEquals(revalidations, counters.getRevalidations(), "revalidations");
+        assertEquals(misses, counters.getMisses(), "misses");
+    }
+}
@@ -0,0 +1,309 @@
+package se.hollytech.jukebox.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class UpstreamThrottleTest {
+
+    private static final String MUSICBRAINZ_URL = "https://musicbrainz.org/ws/2/artist/elo-mbid?fmt=json";
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void request_AfterIdleSpell_GrantsOneSecondOfPermitsThenQueues() {
+        UpstreamThrottle throttle = throttle(4, 1, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(throttle.request(UpstreamPriority.INTERACTIVE).isDone());
+        }
+        CompletableFuture<Void> queued = throttle.request(UpstreamPriority.INTERACTIVE);
+        assertFalse(queued.isDone());
+        assertEquals(1, throttle.getQueued());
+
+        advance(throttle, Duration.ofMillis(250));
+        assertTrue(queued.isDone());
+        assertEquals(1, throttle.getDelayed());
+        assertEquals(5, throttle.getGranted(UpstreamPriority.INTERACTIVE));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), throttle.getWaitedNanos(UpstreamPriority.INTERACTIVE));
+    }
+
+    @Test
+    void request_WaitLongerThanMaxWait_Refuses() {
+        UpstreamThrottle throttle = throttle(1, 1, Duration.ZERO);
+
+        assertTrue(throttle.request(UpstreamPriority.INTERACTIVE).isDone());
+        assertTrue(throttle.request(UpstreamPriority.INTERACTIVE).isCompletedExceptionally());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertFalse(throttle.request(UpstreamPriority.INTERACTIVE).isCompletedExceptionally());
+        assertEquals(1, throttle.getRejected());
+        assertEquals(0, throttle.getQueued());
+    }
+
+    @Test
+    void dispatch_WaitRunsOut_RefusesQueuedCaller() {
+        UpstreamThrottle throttle = throttle(1, 1, Duration.ofMillis(1500));
+        throttle.request(UpstreamPriority.INTERACTIVE);
+        CompletableFuture<Void> background = throttle.request(UpstreamPriority.BACKGROUND);
+        CompletableFuture<Void> interactive = throttle.request(UpstreamPriority.INTERACTIVE);
+
+        advance(throttle, Duration.ofSeconds(1));
+        assertTrue(interactive.isDone());
+        advance(throttle, Duration.ofMillis(501));
+
+        ExecutionException refused = assertThrows(ExecutionException.class, background::get);
+        assertInstanceOf(UpstreamThrottledException.class, refused.getCause());
+        assertEquals(0, throttle.getQueued());
+        assertEquals(1, throttle.getRejected());
+    }
+
+    @Test
+    void dispatch_InteractiveCallWaiting_GetsNextPermitBeforeEarlierBatchAndBackgroundCalls() {
+        UpstreamThrottle throttle = throttle(1, 1, Duration.ofSeconds(10));
+        throttle.request(UpstreamPriority.BACKGROUND);
+        CompletableFuture<Void> background = throttle.request(UpstreamPriority.BACKGROUND);
+        CompletableFuture<Void> batch = throttle.request(UpstreamPriority.BATCH);
+        CompletableFuture<Void> interactive = throttle.request(UpstreamPriority.INTERACTIVE);
+
+        advance(throttle, Duration.ofSeconds(1));
+        assertTrue(interactive.isDone());
+        assertFalse(batch.isDone());
+
+        advance(throttle, Duration.ofSeconds(1));
+        assertTrue(batch.isDone());
+        assertFalse(background.isDone());
+
+        advance(throttle, Duration.ofSeconds(1));
+        assertTrue(background.isDone());
+    }
+
+    @Test
+    void dispatch_InteractiveCallsAlwaysWaiting_KeepsMinimumSharesForBatchAndBackgroundCalls() {
+        UpstreamThrottle throttle = throttle(10, 1, Duration.ofHours(1));
+        // The first ten use up the burst allowance
+        for (int i = 0; i < 10 + 40; i++) {
+            throttle.request(UpstreamPriority.INTERACTIVE);
+        }
+        for (int i = 0; i < 10; i++) {
+            throttle.request(UpstreamPriority.BATCH);
+            throttle.request(UpstreamPriority.BACKGROUND);
+        }
+        for (int i = 0; i < 40; i++) {
+            advance(throttle, Duration.ofMillis(100));
+        }
+
+        // Every fifth permit goes to batch calls, every tenth to background calls, once they have earned it
+        assertEquals(10 + 29, throttle.getGranted(UpstreamPriority.INTERACTIVE));
+        assertEquals(8, throttle.getGranted(UpstreamPriority.BATCH));
+        assertEquals(3, throttle.getGranted(UpstreamPriority.BACKGROUND));
+        assertEquals(2, throttle.getQueued(UpstreamPriority.BATCH));
+        assertEquals(7, throttle.getQueued(UpstreamPriority.BACKGROUND));
+        // Batch calls got permits 5, 10, ... 40, handed out 100 ms apart
+        assertEquals(Duration.ofMillis(500 + 1000 + 1500 + 2000 + 2500 + 3000 + 3500 + 4000).toNanos(),
+                throttle.getWaitedNanos(UpstreamPriority.BATCH));
+    }
+
+    @Test
+    void dispatch_MaxShare_PacesPriorityAtItsShareWhileOthersGetSpareRate() {
+        UpstreamThrottle throttle = throttle(10, 1, Duration.ofHours(1));
+        throttle.setMaxShare(UpstreamPriority.BACKGROUND, 0.5);
+        // A second's worth of its share at once after the idle spell, then one every 200 ms
+        for (int i = 0; i < 10; i++) {
+            throttle.request(UpstreamPriority.BACKGROUND);
+        }
+        assertEquals(5, throttle.getGranted(UpstreamPriority.BACKGROUND));
+
+        CompletableFuture<Void> interactive = throttle.request(UpstreamPriority.INTERACTIVE);
+        assertTrue(interactive.isDone());
+        advance(throttle, Duration.ofMillis(100));
+        assertEquals(5, throttle.getGranted(UpstreamPriority.BACKGROUND));
+        advance(throttle, Duration.ofMillis(100));
+        assertEquals(6, throttle.getGranted(UpstreamPriority.BACKGROUND));
+
+        // Lifted, they get what is left of the throttle's own allowance at once
+        throttle.setMaxShare(UpstreamPriority.BACKGROUND, 1);
+        assertEquals(10, throttle.getGranted(UpstreamPriority.BACKGROUND));
+        assertEquals(0, throttle.getQueued());
+        assertThrows(IllegalArgumentException.class, () -> throttle.setMaxShare(UpstreamPriority.BACKGROUND, 0));
+    }
+
+    @Test
+    void bindTo_CallsQueued_PublishesQueueDepthAndWaitPerPriority() {
+        UpstreamThrottles throttles = musicBrainzThrottles(1, Duration.ofSeconds(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new UpstreamThrottleMetrics(throttles).bindTo(registry);
+        try {
+            UpstreamThrottle throttle = throttles.get("musicbrainz");
+            throttle.request(UpstreamPriority.INTERACTIVE);
+            throttle.request(UpstreamPriority.BATCH);
+
+            assertEquals(1, registry.get("jukebox.http.throttle.queued")
+                    .tags("upstream", "musicbrainz", "priority", "batch").gauge().value());
+            assertEquals(0, registry.get("jukebox.http.throttle.queued")
+                    .tags("upstream", "musicbrainz", "priority", "interactive").gauge().value());
+            assertEquals(1, registry.get("jukebox.http.throttle.wait")
+                    .tags("upstream", "musicbrainz", "priority", "interactive").timer().count());
+        } finally {
+            throttles.destroy();
+        }
+    }
+
+    @Test
+    void onResponse_ServiceUnavailable_CutsRateOncePerSecondDownToMinRate() {
+        UpstreamThrottle throttle = throttle(8, 3, Duration.ofSeconds(5));
+
+        throttle.onResponse(503, null);
+        throttle.onResponse(503, null);
+        assertEquals(4, throttle.getRate());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        throttle.onResponse(429, null);
+        assertEquals(3, throttle.getRate());
+        assertEquals(2, throttle.getBackOffs());
+    }
+
+    @Test
+    void onResponse_Healthy_RampsRateBackUpToMaxRate() {
+        UpstreamThrottle throttle = throttle(4, 1, Duration.ofSeconds(5));
+        throttle.onResponse(503, null);
+
+        throttle.onResponse(200, null);
+        assertEquals(2.5, throttle.getRate());
+        throttle.onResponse(500, null);
+        assertEquals(2.5, throttle.getRate());
+        for (int i = 0; i < 20; i++) {
+            throttle.onResponse(404, null);
+        }
+        assertEquals(4, throttle.getRate());
+    }
+
+    @Test
+    void onResponse_RetryAfter_HoldsBackEveryPermitForThatLong() {
+        UpstreamThrottle throttle = throttle(10, 1, Duration.ofSeconds(5));
+
+        throttle.onResponse(503, "2");
+        CompletableFuture<Void> permit = throttle.request(UpstreamPriority.INTERACTIVE);
+
+        advance(throttle, Duration.ofMillis(1999));
+        assertFalse(permit.isDone());
+        advance(throttle, Duration.ofMillis(1));
+        assertTrue(permit.isDone());
+        assertEquals(1, throttle.getPauses());
+        assertEquals(5, throttle.getRate());
+    }
+
+    @Test
+    void parseRetryAfter_SecondsOrHttpDate_ReturnsDelay() {
+        String inOneMinute = ZonedDateTime.now().plusMinutes(1).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+
+        assertEquals(Duration.ofSeconds(120), UpstreamThrottle.parseRetryAfter("120"));
+        Duration untilDate = UpstreamThrottle.parseRetryAfter(inOneMinute);
+        assertTrue(untilDate.compareTo(Duration.ofSeconds(50)) > 0 && untilDate.compareTo(Duration.ofSeconds(61)) < 0);
+        assertNull(UpstreamThrottle.parseRetryAfter("soon"));
+        assertNull(UpstreamThrottle.parseRetryAfter(null));
+    }
+
+    @Test
+    void intercept_RetryAfterLongerThanMaxWait_RefusesFollowingRequestsWithoutSending() {
+        UpstreamThrottles throttles = musicBrainzThrottles(50, Duration.ofSeconds(5));
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new UpstreamThrottleInterceptor(throttles));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(MUSICBRAINZ_URL))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30"));
+
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(MUSICBRAINZ_URL, String.class));
+        assertThrows(UpstreamThrottledException.class, () -> restTemplate.getForObject(MUSICBRAINZ_URL, String.class));
+
+        server.verify();
+        UpstreamThrottle throttle = throttles.get("musicbrainz");
+        assertEquals(25, throttle.getRate());
+        assertEquals(1, throttle.getRejected());
+    }
+
+    @Test
+    void schedule_CallSendsRequest_UsesItsPermitAndRunsTaggedWithPriority() {
+        UpstreamThrottles throttles = musicBrainzThrottles(1, Duration.ZERO);
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new UpstreamThrottleInterceptor(throttles));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(MUSICBRAINZ_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        String body = throttles.get("musicbrainz").schedule(() -> {
+            assertEquals(UpstreamPriority.BATCH, UpstreamPriority.current());
+            return restTemplate.getForObject(MUSICBRAINZ_URL, String.class);
+        }, Runnable::run, UpstreamPriority.BATCH).join();
+
+        assertEquals("{}", body);
+        assertEquals(UpstreamPriority.INTERACTIVE, UpstreamPriority.current());
+        assertEquals(1, throttles.get("musicbrainz").getGranted(UpstreamPriority.BATCH));
+        assertThrows(UpstreamThrottledException.class, () -> restTemplate.getForObject(MUSICBRAINZ_URL, String.class));
+        server.verify();
+    }
+
+    @Test
+    void filter_TooManyRequests_BacksOffUpstream() {
+        UpstreamThrottles throttles = musicBrainzThrottles(50, Duration.ofSeconds(5));
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).build()))
+                .filter(new UpstreamThrottleFilter(throttles))
+                .build();
+
+        HttpStatus status = webClient.get().uri(MUSICBRAINZ_URL)
+                .exchangeToMono(response -> Mono.just(HttpStatus.valueOf(response.statusCode().value())))
+                .block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, status);
+        assertEquals(25, throttles.get("musicbrainz").getRate());
+        assertEquals(50, throttles.get("wikipedia").getRate());
+    }
+
+    private UpstreamThrottle throttle(double maxRate, double minRate, Duration maxWait) {
+        HttpClientProperties.Upstream limits = new HttpClientProperties.Upstream();
+        limits.setMaxRate(maxRate);
+        limits.setMinRate(minRate);
+        limits.setMaxWait(maxWait);
+        // Dispatches only when a test moves the clock on
+        return new UpstreamThrottle("test", limits, new HttpClientProperties.Throttle(), mock(ScheduledExecutorService.class),
+                clock::get);
+    }
+
+    private void advance(UpstreamThrottle throttle, Duration duration) {
+        clock.addAndGet(duration.toNanos());
+        throttle.dispatch();
+    }
+
+    private static UpstreamThrottles musicBrainzThrottles(double maxRate, Duration maxWait) {
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("musicbrainz.org");
+        musicBrainz.setMaxRate(maxRate);
+        musicBrainz.setMaxWait(maxWait);
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.getUpstreams().put("musicbrainz", musicBrainz);
+        return new UpstreamThrottles(properties);
+    }
+}
@@ -0,0 +1,126 @@
+package se.hollytech.jukebox.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.client.RestTemplate;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static se.hollytech.jukebox.service.UpstreamStubs.*;
+
+@SpringBootTest(properties = {"jukebox.cache.persistent.enabled=false", "jukebox.cache.artist.partial-ttl=300ms"})
+class JukeboxServiceCacheTest {
+
+    private static final int CONCURRENT_REQUESTS = 10;
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+
+    @Autowired
+    private JukeboxService jukeboxService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getArtistMbid_ConcurrentCacheMisses_CallsUpstreamOnce() throws Exception {
+        stubSlowResponse("query=artist:", "{\"artists\":[{\"id\":\"" + MBID + "\",\"name\":\"Electric Light Orchestra\"}]}");
+
+        List<Object> results = runConcurrently(() -> jukeboxService.getArtistMbid("Electric Light Orchestra"));
+
+        results.forEach(result -> assertEquals(results.get(0), result));
+        upstreamGet(verify(restTemplate, times(1)), "");
+    }
+
+    @Test
+    void getArtistDetails_ConcurrentCacheMisses_CallsUpstreamOnce() throws Exception {
+        stubSlowResponse("artist/" + MBID, "{\"id\":\"" + MBID + "\",\"name\":\"Electric Light Orchestra\"}");
+
+        List<Object> results = runConcurrently(() -> jukeboxService.getArtistDetails(MBID));
+
+        results.forEach(result -> assertSame(results.get(0), result));
+        upstreamGet(verify(restTemplate, times(1)), "");
+    }
+
+    @Test
+    void getArtistDiscography_ConcurrentCacheMisses_CallsUpstreamOncePerStage() throws Exception {
+        stubSlowResponse("query=artist:", "{\"artists\":[{\"id\":\"" + MBID + "\",\"name\":\"Electric Light Orchestra\"}]}");
+        stubSlowResponse("artist/" + MBID, "{\"id\":\"" + MBID + "\",\"name\":\"Electric Light Orchestra\"}");
+
+        List<Object> results = runConcurrently(() -> jukeboxService.getArtistDiscography("Electric Light Orchestra"));
+
+        results.forEach(result -> assertSame(results.get(0), result));
+        upstreamGet(verify(restTemplate, times(1)), "query=artist:");
+        upstreamGet(verify(restTemplate, times(1)), "artist/" + MBID);
+    }
+
+    @Test
+    void getArtistDetails_PartialArtist_ExpiresAfterPartialTtl() throws Exception {
+        when(upstreamGet(restTemplate, "artist/" + MBID)).thenAnswer(json("{\"id\":\"" + MBID
+                + "\",\"name\":\"Electric Light Orchestra\",\"release-groups\":[{\"id\":\"album1\",\"title\":\"Eldorado\",\"primary-type\":\"Album\"}]}"));
+        stubSlowResponse("coverartarchive.org", "{\"images\":[{\"front\":true,\"image\":\"http://img/album1.jpg\"}]}");
+
+        Artist partial = jukeboxService.getArtistDetails(MBID, Duration.ofMillis(50));
+
+        assertTrue(partial.partial());
+        assertSame(partial, jukeboxService.getArtistDetails(MBID));
+
+        Thread.sleep(400);
+        Artist complete = jukeboxService.getArtistDetails(MBID);
+
+        assertFalse(complete.partial());
+        assertEquals(List.of("Eldorado"), complete.albums().stream().map(Album::title).toList());
+    }
+
+    private void stubSlowResponse(String urlFragment, String body) {
+        when(upstreamGet(restTemplate, urlFragment))
+                .thenAnswer(respond(url -> {
+                    Thread.sleep(200);
+                    return body;
+                }));
+    }
+
+    private List<Object> runConcurrently(Callable<Object> request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return request.call();
+                }));
+            }
+            start.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package se.hollytech.jukebox.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import se.hollytech.jukebox.http.UpstreamPriority;
+import se.hollytech.jukebox.model.Artist;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static se.hollytech.jukebox.service.UpstreamStubs.*;
+
+@SpringBootTest(properties = {
+        "jukebox.cache.artist.soft-ttl=200ms",
+        "jukebox.cache.artist.hard-ttl=1h",
+        "jukebox.cache.persistent.enabled=false"
+})
+class JukeboxServiceRefreshTest {
+
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+    private static final long SOFT_TTL_MILLIS = 200;
+
+    @Autowired
+    private JukeboxService jukeboxService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier("cacheRefreshExecutor")
+    private ThreadPoolTaskExecutor cacheRefreshExecutor;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        // A refresh left over from the previous test would call the mock while this one stubs it
+        for (int i = 0; i < 100 && cacheRefreshExecutor.getActiveCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getArtistDetails_PastSoftTtl_ServesStaleAndRefreshesInBackground() throws Exception {
+        when(upstreamGet(restTemplate, "artist/" + MBID))
+                .thenAnswer(json(artistJson("ELO")))
+                .thenAnswer(json(artistJson("Electric Light Orchestra")));
+
+        assertEquals("ELO", jukeboxService.getArtistDetails(MBID).name());
+        Thread.sleep(SOFT_TTL_MILLIS + 100);
+
+        assertEquals("ELO", jukeboxService.getArtistDetails(MBID).name());
+        upstreamGet(verify(restTemplate, timeout(2000).times(2)), "artist/" + MBID);
+        assertEquals("Electric Light Orchestra", awaitName("Electric Light Orchestra"));
+    }
+
+    @Test
+    void getArtistDetails_PastSoftTtl_RefreshesAtBackgroundPriority() throws Exception {
+        List<UpstreamPriority> priorities = new CopyOnWriteArrayList<>();
+        when(upstreamGet(restTemplate, "artist/" + MBID)).thenAnswer(invocation -> {
+            priorities.add(UpstreamPriority.current());
+            return json(artistJson("ELO")).answer(invocation);
+        });
+
+        jukeboxService.getArtistDetails(MBID);
+        Thread.sleep(SOFT_TTL_MILLIS + 100);
+        jukeboxService.getArtistDetails(MBID);
+
+        upstreamGet(verify(restTemplate, timeout(2000).times(2)), "artist/" + MBID);
+        assertEquals(List.of(UpstreamPriority.INTERACTIVE, UpstreamPriority.BACKGROUND), priorities);
+    }
+
+    @Test
+    void getArtistDetails_RefreshFails_KeepsServingStaleEntry() throws Exception {
+        when(upstreamGet(restTemplate, "artist/" + MBID))
+                .thenAnswer(json(artistJson("ELO")))
+                .thenThrow(new ResourceAccessException("MusicBrainz unavailable"));
+
+        assertEquals("ELO", jukeboxService.getArtistDetails(MBID).name());
+        Thread.sleep(SOFT_TTL_MILLIS + 100);
+
+        assertEquals("ELO", jukeboxService.getArtistDetails(MBID).name());
+        upstreamGet(verify(restTemplate, timeout(2000).times(2)), "artist/" + MBID);
+        Thread.sleep(100);
+
+        Artist artist = jukeboxService.getArtistDetails(MBID);
+        assertEquals("ELO", artist.name());
+        assertEquals(MBID, artist.mbid());
+    }
+
+    @Test
+    void getArtistDetails_RefreshGetsPartialDetails_KeepsServingCompleteEntry() throws Exception {
+        when(upstreamGet(restTemplate, "artist/" + MBID)).thenAnswer(json("{\"id\":\"" + MBID + "\",\"name\":\"ELO\","
+                + "\"relations\":[{\"type\":\"wikipedia\",\"url\":{\"resource\":\"https://en.wikipedia.org/wiki/ELO\"}}]}"));
+        when(upstreamGet(restTemplate, "wikipedia.org"))
+                .thenAnswer(json("{\"query\":{\"pages\":{\"1\":{\"pageid\":1,\"title\":\"ELO\",\"extract\":\"<p>ELO is...</p>\"}}}}"))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertFalse(jukeboxService.getArtistDetails(MBID).partial());
+        Thread.sleep(SOFT_TTL_MILLIS + 100);
+
+        jukeboxService.getArtistDetails(MBID);
+        upstreamGet(verify(restTemplate, timeout(2000).times(2)), "wikipedia.org");
+        Thread.sleep(100);
+
+        Artist artist = jukeboxService.getArtistDetails(MBID);
+        assertFalse(artist.partial());
+        assertEquals("<p>ELO is...</p>", artist.description());
+    }
+
+    private String awaitName(String expected) throws InterruptedException {
+        String name = null;
+        for (int i = 0; i < 20 && !expected.equals(name); i++) {
+            name = jukeboxService.getArtistDetails(MBID).name();
+            Thread.sleep(50);
+        }
+        return name;
+    }
+
+    private static String artistJson(String name) {
+        return "{\"id\":\"" + MBID + "\",\"name\":\"" + name + "\"}";
+    }
+}
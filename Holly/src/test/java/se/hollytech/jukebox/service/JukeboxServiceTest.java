@@ -3,23 +3,60 @@ package se.hollytech.jukebox.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.http.HttpEntity;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import se.hollytech.jukebox.batch.MicroBatchProperties;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.cache.PersistentCache;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.cache.PersistentCacheProperties;
+import se.hollytech.jukebox.http.HttpClientProperties;
+import se.hollytech.jukebox.http.UpstreamHedging;
+import se.hollytech.jukebox.http.UpstreamPriority;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.model.Album;
 import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistBatchItem;
 import se.hollytech.jukebox.model.ArtistLookup;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static se.hollytech.jukebox.service.UpstreamStubs.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "jukebox.cache.persistent.enabled=false")
 class JukeboxServiceTest {
 
     private JukeboxService jukeboxService;
@@ -29,8 +66,10 @@ class JukeboxServiceTest {
     @BeforeEach
     void setUp() {
         restTemplate = mock(RestTemplate.class);
-        objectMapper = mock(ObjectMapper.class);
-        jukeboxService = new JukeboxService(restTemplate, objectMapper);
+        objectMapper = new ObjectMapper();
+        jukeboxService = new JukeboxService(restTemplate, objectMapper, Runnable::run, UpstreamThrottles.disabled(),
+                new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
     }
 
     @Test
@@ -38,36 +77,57 @@ class JukeboxServiceTest {
         String artistName = "Electric Light Orchestra";
         String mbid = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
         String jsonResponse = "{\"artists\":[{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\"}]}";
-        JsonNode rootNode = mock(JsonNode.class);
-        JsonNode artistNode = mock(JsonNode.class);
-
-        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(), eq(String.class)))
-                .thenReturn(ResponseEntity.ok(jsonResponse));
-        when(objectMapper.readTree(jsonResponse)).thenReturn(rootNode);
-        when(rootNode.path("artists")).thenReturn(rootNode);
-        when(rootNode.get(0)).thenReturn(artistNode);
-        when(artistNode.path("id")).thenReturn(mock(JsonNode.class));
-        when(artistNode.path("name")).thenReturn(mock(JsonNode.class));
-        when(artistNode.path("id").asText()).thenReturn(mbid);
-        when(artistNode.path("name").asText()).thenReturn(artistName);
+
+        when(upstreamGet(restTemplate, ""))
+                .thenAnswer(json(jsonResponse));
 
         ArtistLookup result = jukeboxService.getArtistMbid(artistName);
 
         assertEquals(artistName, result.name());
         assertEquals(mbid, result.mbid());
-        verify(restTemplate).exchange(contains("query=artist:Electric%20Light%20Orchestra"), eq(HttpMethod.GET), any(), eq(String.class));
+        upstreamGet(verify(restTemplate), "query=artist:Electric%20Light%20Orchestra");
     }
 
     @Test
     void getArtistMbid_NoArtistsFound_ThrowsArtistNotFoundException() throws JsonProcessingException {
         String artistName = "NonExistentBand";
         String jsonResponse = "{\"artists\":[]}";
-        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(), eq(String.class)))
-                .thenReturn(ResponseEntity.ok(jsonResponse));
-        when(objectMapper.readTree(jsonResponse)).thenReturn(mock(JsonNode.class));
+        when(upstreamGet(restTemplate, ""))
+                .thenAnswer(json(jsonResponse));
+
+        assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistMbid(artistName));
+        upstreamGet(verify(restTemplate), "query=artist:NonExistentBand");
+    }
+
+    @Test
+    void getArtistMbid_NoArtistsFoundTwice_QueriesUpstreamOnce() {
+        String artistName = "NonExistentBand";
+        when(upstreamGet(restTemplate, ""))
+                .thenAnswer(json("{\"artists\":[]}"));
 
         assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistMbid(artistName));
-        verify(restTemplate).exchange(contains("query=artist:NonExistentBand"), eq(HttpMethod.GET), any(), eq(String.class));
+        assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistMbid(artistName.toLowerCase()));
+
+        upstreamGet(verify(restTemplate, times(1)), "query=artist:NonExistentBand");
+    }
+
+    @Test
+    void getArtistMbid_CacheMissesAndHits_TimesOnlyTheLoads() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        jukeboxService = new JukeboxService(restTemplate, objectMapper, Runnable::run, UpstreamThrottles.disabled(),
+                new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), new CacheLoadMetrics(registry));
+        when(upstreamGet(restTemplate, "query=artist:Electric"))
+                .thenAnswer(json("{\"artists\":[{\"id\":\"elo-mbid\",\"name\":\"Electric Light Orchestra\"}]}"));
+        when(upstreamGet(restTemplate, "query=artist:NonExistentBand"))
+                .thenAnswer(json("{\"artists\":[]}"));
+
+        jukeboxService.getArtistMbid("Electric Light Orchestra");
+        jukeboxService.getArtistMbid("Electric Light Orchestra");
+        assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistMbid("NonExistentBand"));
+
+        assertEquals(1, registry.get("jukebox.cache.loads").tags("cache", "artistLookupCache", "result", "success").timer().count());
+        assertEquals(1, registry.get("jukebox.cache.loads").tags("cache", "artistLookupCache", "result", "failure").timer().count());
     }
 
     @ParameterizedTest
@@ -134,44 +194,24 @@ class JukeboxServiceTest {
         assertNotNull(coverArtNode, "Cover Art JSON should parse to a valid node");
 
         // Mock RestTemplate
-        when(restTemplate.exchange(
-                eq(musicBrainzUrl),
-                eq(HttpMethod.GET),
-                any(HttpEntity.class),
-                eq(String.class)
-        )).thenAnswer(invocation -> {
-            System.out.println("MusicBrainz URL invoked: " + invocation.getArgument(0));
-            return ResponseEntity.ok(musicBrainzResponse);
-        });
+        when(upstreamGet(restTemplate, musicBrainzUrl)).thenAnswer(respond(url -> {
+            System.out.println("MusicBrainz URL invoked: " + url);
+            return musicBrainzResponse;
+        }));
 
         // Mock Wikipedia API
         String wikipediaUrl = "https://en.wikipedia.org/w/api.php?action=query&prop=extracts&exintro=true&explaintext=false&redirects=true&titles=Electric_Light_Orchestra&format=json";
-        when(restTemplate.exchange(
-                eq(wikipediaUrl),
-                eq(HttpMethod.GET),
-                any(HttpEntity.class),
-                eq(String.class)
-        )).thenAnswer(invocation -> {
-            System.out.println("Wikipedia URL invoked: " + invocation.getArgument(0));
-            return ResponseEntity.ok(wikipediaResponse);
-        });
+        when(upstreamGet(restTemplate, wikipediaUrl)).thenAnswer(respond(url -> {
+            System.out.println("Wikipedia URL invoked: " + url);
+            return wikipediaResponse;
+        }));
 
         // Mock Cover Art API
         String coverArtUrl = "http://coverartarchive.org/release-group/album1";
-        when(restTemplate.exchange(
-                eq(coverArtUrl),
-                eq(HttpMethod.GET),
-                any(HttpEntity.class),
-                eq(String.class)
-        )).thenAnswer(invocation -> {
-            System.out.println("Cover Art URL invoked: " + invocation.getArgument(0));
-            return ResponseEntity.ok(coverArtResponse);
-        });
-
-        // Mock ObjectMapper
-        when(objectMapper.readTree(musicBrainzResponse)).thenReturn(musicBrainzNode);
-        when(objectMapper.readTree(wikipediaResponse)).thenReturn(wikipediaNode);
-        when(objectMapper.readTree(coverArtResponse)).thenReturn(coverArtNode);
+        when(upstreamGet(restTemplate, coverArtUrl)).thenAnswer(respond(url -> {
+            System.out.println("Cover Art URL invoked: " + url);
+            return coverArtResponse;
+        }));
 
         // Debug: Log mocked responses
         System.out.println("Mocked MusicBrainz response: " + musicBrainzResponse);
@@ -190,20 +230,399 @@ class JukeboxServiceTest {
         assertEquals("http://coverartarchive.org/release-group/album1/front.jpg", result.albums().get(0).image(), "Album image should match");
 
         // Verify API calls
-        verify(restTemplate).exchange(eq(musicBrainzUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
-        verify(restTemplate).exchange(eq(wikipediaUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
-        verify(restTemplate).exchange(eq(coverArtUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
-        verify(objectMapper, times(3)).readTree(anyString());
+        upstreamGet(verify(restTemplate), musicBrainzUrl);
+        upstreamGet(verify(restTemplate), wikipediaUrl);
+        upstreamGet(verify(restTemplate), coverArtUrl);
+    }
+
+    @Test
+    void getArtistDetails_BudgetRunsOut_ReturnsResolvedAlbumsMarkedPartial() {
+        // Arrange: one cover art lookup answers at once, the other takes far longer than the budget
+        when(upstreamGet(restTemplate, "musicbrainz.org")).thenAnswer(json("""
+            {
+                "id": "elo-mbid",
+                "name": "Electric Light Orchestra",
+                "release-groups": [
+                    {"id": "fast", "title": "Eldorado", "primary-type": "Album"},
+                    {"id": "slow", "title": "Discovery", "primary-type": "Album"}
+                ]
+            }
+            """));
+        when(upstreamGet(restTemplate, "coverartarchive.org"))
+                .thenAnswer(respond(url -> {
+                    if (url.endsWith("/slow")) {
+                        Thread.sleep(1000);
+                    }
+                    return "{\"images\": [{\"front\": true, \"image\": \"http://img/cover.jpg\"}]}";
+                }));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), executor, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                    MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+            // Act
+            long start = System.nanoTime();
+            Artist result = service.getArtistDetails("elo-mbid", Duration.ofMillis(300));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Assert: the answer comes when the budget runs out and holds only the album resolved by then
+            assertTrue(result.partial());
+            assertEquals(List.of("Eldorado"), result.albums().stream().map(Album::title).toList());
+            assertTrue(elapsedMillis < 800, "Should answer when the budget runs out, took " + elapsedMillis + " ms");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getArtistDetails_BudgetSpentBeforeLookupsStart_SkipsThemWithoutCachingMisses() {
+        // Arrange: the MusicBrainz call alone uses up the budget
+        when(upstreamGet(restTemplate, "musicbrainz.org")).thenAnswer(respond(url -> {
+            Thread.sleep(100);
+            return """
+                {
+                    "id": "elo-mbid",
+                    "name": "Electric Light Orchestra",
+                    "relations": [{"type": "wikipedia", "url": {"resource": "https://en.wikipedia.org/wiki/Electric_Light_Orchestra"}}],
+                    "release-groups": [{"id": "album1", "title": "Eldorado", "primary-type": "Album"}]
+                }
+                """;
+        }));
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run, UpstreamThrottles.disabled(),
+                cacheManager, PersistentCacheManager.disabled(), MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+        // Act
+        Artist result = service.getArtistDetails("elo-mbid", Duration.ofMillis(50));
+
+        // Assert: the other lookups never start, and their absence is not remembered as a miss
+        assertTrue(result.partial());
+        assertNull(result.description());
+        assertTrue(result.albums().isEmpty());
+        upstreamGet(verify(restTemplate, never()), "wikipedia.org");
+        upstreamGet(verify(restTemplate, never()), "coverartarchive.org");
+        assertNull(cacheManager.getCache("missingDescriptionCache").get("elo-mbid"));
+        assertNull(cacheManager.getCache("missingCoverArtCache").get("album1"));
+    }
+
+    @Test
+    void getArtistDetails_BudgetedCallerJoinsLoadWithoutBudget_AnswersWithinItsOwnBudget() throws Exception {
+        // Arrange: a load without a budget waits on cover art until the test releases it
+        CountDownLatch coverArtRequested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(upstreamGet(restTemplate, "musicbrainz.org")).thenAnswer(json("""
+            {"id": "elo-mbid", "name": "Electric Light Orchestra",
+             "release-groups": [{"id": "album1", "title": "Eldorado", "primary-type": "Album"}]}
+            """));
+        when(upstreamGet(restTemplate, "coverartarchive.org")).thenAnswer(respond(url -> {
+            coverArtRequested.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "{\"images\": [{\"front\": true, \"image\": \"http://img/cover.jpg\"}]}";
+        }));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), executor, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                    MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+            Future<Artist> complete = executor.submit(() -> service.getArtistDetails("elo-mbid"));
+            assertTrue(coverArtRequested.await(5, TimeUnit.SECONDS));
+
+            // Act
+            long start = System.nanoTime();
+            Artist budgeted = service.getArtistDetails("elo-mbid", Duration.ofMillis(200));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            release.countDown();
+
+            // Assert: the budgeted caller stops waiting when its budget runs out; the other still gets everything
+            assertTrue(budgeted.partial());
+            assertTrue(elapsedMillis < 2000, "Should answer when the budget runs out, took " + elapsedMillis + " ms");
+            assertFalse(complete.get(5, TimeUnit.SECONDS).partial());
+            assertFalse(service.getArtistDetails("elo-mbid").partial());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getArtistDetails_CallerWithoutBudgetWhileBudgetedLoadRuns_GetsCompleteArtist() throws Exception {
+        // Arrange: cover art takes longer than the first caller's budget
+        CountDownLatch coverArtRequested = new CountDownLatch(1);
+        when(upstreamGet(restTemplate, "musicbrainz.org")).thenAnswer(json("""
+            {"id": "elo-mbid", "name": "Electric Light Orchestra",
+             "release-groups": [{"id": "album1", "title": "Eldorado", "primary-type": "Album"}]}
+            """));
+        when(upstreamGet(restTemplate, "coverartarchive.org")).thenAnswer(respond(url -> {
+            coverArtRequested.countDown();
+            Thread.sleep(500);
+            return "{\"images\": [{\"front\": true, \"image\": \"http://img/cover.jpg\"}]}";
+        }));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), executor, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                    MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+            Future<Artist> budgeted = executor.submit(() -> service.getArtistDetails("elo-mbid", Duration.ofMillis(100)));
+            assertTrue(coverArtRequested.await(5, TimeUnit.SECONDS));
+
+            // Act
+            Artist complete = service.getArtistDetails("elo-mbid");
+
+            // Assert: only the budgeted caller gets the partial answer, and it does not replace the complete one
+            assertTrue(budgeted.get(5, TimeUnit.SECONDS).partial());
+            assertFalse(complete.partial());
+            assertEquals("http://img/cover.jpg", complete.albums().get(0).image());
+            assertFalse(service.getArtistDetails("elo-mbid", Duration.ofMillis(100)).partial());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getArtistDetails_SlowCoverArt_ResolvesAlbumsConcurrently() {
+        // Arrange: six albums (plus a single that must be skipped), every cover art lookup takes 300 ms
+        String mbid = "elo-mbid";
+        String musicBrainzResponse = """
+            {
+                "id": "elo-mbid",
+                "name": "Electric Light Orchestra",
+                "release-groups": [
+                    {"id": "album1", "title": "On the Third Day", "primary-type": "Album"},
+                    {"id": "album2", "title": "Eldorado", "primary-type": "Album"},
+                    {"id": "single1", "title": "Evil Woman", "primary-type": "Single"},
+                    {"id": "album3", "title": "Face the Music", "primary-type": "Album"},
+                    {"id": "album4", "title": "A New World Record", "primary-type": "Album"},
+                    {"id": "album5", "title": "Out of the Blue", "primary-type": "Album"},
+                    {"id": "album6", "title": "Discovery", "primary-type": "Album"}
+                ]
+            }
+            """;
+        long coverArtDelayMillis = 300;
+        when(upstreamGet(restTemplate, "musicbrainz.org"))
+                .thenAnswer(json(musicBrainzResponse));
+        when(upstreamGet(restTemplate, "coverartarchive.org"))
+                .thenAnswer(respond(url -> {
+                    String releaseGroupId = url.substring(url.lastIndexOf('/') + 1);
+                    Thread.sleep(coverArtDelayMillis);
+                    if (releaseGroupId.equals("album3")) {
+                        return "{\"images\": []}";
+                    }
+                    return "{\"images\": [{\"front\": true, \"image\": \"http://img/" + releaseGroupId + ".jpg\"}]}";
+                }));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), executor, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                    MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+            // Act
+            long start = System.nanoTime();
+            Artist result = service.getArtistDetails(mbid);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Assert: album order is kept, the album without a front cover is dropped
+            assertEquals(List.of("On the Third Day", "Eldorado", "A New World Record", "Out of the Blue", "Discovery"),
+                    result.albums().stream().map(Album::title).toList());
+            assertEquals("http://img/album1.jpg", result.albums().get(0).image());
+            upstreamGet(verify(restTemplate, times(6)), "coverartarchive.org");
+
+            // Sequential lookups would take 6 x 300 ms; concurrent ones roughly the slowest single call
+            assertTrue(elapsedMillis < 3 * coverArtDelayMillis,
+                    "Cover art should be fetched concurrently, took " + elapsedMillis + " ms");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getArtistDetails_SlowDescriptionAndCoverArt_RunsStagesConcurrently() {
+        // Arrange: the Wikipedia description and the cover art lookup each take 400 ms
+        String mbid = "elo-mbid";
+        String musicBrainzResponse = """
+            {
+                "id": "elo-mbid",
+                "name": "Electric Light Orchestra",
+                "relations": [
+                    {"type": "wikipedia", "url": {"resource": "https://en.wikipedia.org/wiki/Electric_Light_Orchestra"}}
+                ],
+                "release-groups": [
+                    {"id": "album1", "title": "Eldorado", "primary-type": "Album"}
+                ]
+            }
+            """;
+        long upstreamDelayMillis = 400;
+        when(upstreamGet(restTemplate, "musicbrainz.org"))
+                .thenAnswer(json(musicBrainzResponse));
+        when(upstreamGet(restTemplate, "wikipedia.org"))
+                .thenAnswer(respond(url -> {
+                    Thread.sleep(upstreamDelayMillis);
+                    return "{\"query\": {\"pages\": {\"1\": {\"pageid\": 1, \"extract\": \"<p>ELO is...</p>\"}}}}";
+                }));
+        when(upstreamGet(restTemplate, "coverartarchive.org"))
+                .thenAnswer(respond(url -> {
+                    Thread.sleep(upstreamDelayMillis);
+                    return "{\"images\": [{\"front\": true, \"image\": \"http://img/album1.jpg\"}]}";
+                }));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), executor, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                    MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+            // Act
+            long start = System.nanoTime();
+            Artist result = service.getArtistDetails(mbid);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Assert: both branches are joined into the artist, in about the time of the slower one
+            assertEquals("<p>ELO is...</p>", result.description());
+            assertEquals(1, result.albums().size());
+            assertTrue(elapsedMillis < 2 * upstreamDelayMillis,
+                    "Description and albums should resolve concurrently, took " + elapsedMillis + " ms");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getArtistDetails_SharedReleaseGroup_FetchesCoverArtOnce() {
+        // Two artists credited on the same compilation share its release group
+        when(upstreamGet(restTemplate, "artist/artist-a"))
+                .thenAnswer(json("{\"id\":\"artist-a\",\"name\":\"Artist A\",\"release-groups\":[{\"id\":\"shared1\",\"title\":\"Duets\",\"primary-type\":\"Album\"}]}"));
+        when(upstreamGet(restTemplate, "artist/artist-b"))
+                .thenAnswer(json("{\"id\":\"artist-b\",\"name\":\"Artist B\",\"release-groups\":[{\"id\":\"shared1\",\"title\":\"Duets\",\"primary-type\":\"Album\"}]}"));
+        when(upstreamGet(restTemplate, "coverartarchive.org"))
+                .thenAnswer(json("{\"images\": [{\"front\": true, \"image\": \"http://img/shared1.jpg\"}]}"));
+        JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run,
+                UpstreamThrottles.disabled(), new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+        Artist artistA = service.getArtistDetails("artist-a");
+        Artist artistB = service.getArtistDetails("artist-b");
+
+        assertEquals("http://img/shared1.jpg", artistA.albums().get(0).image());
+        assertEquals("http://img/shared1.jpg", artistB.albums().get(0).image());
+        upstreamGet(verify(restTemplate, times(1)), "coverartarchive.org");
+    }
+
+    @Test
+    void getArtistDetails_MissingCoverArtAndDescription_AreNotRefetchedOnReload() {
+        String mbid = "elo-mbid";
+        when(upstreamGet(restTemplate, "musicbrainz.org"))
+                .thenAnswer(json("""
+                    {
+                        "id": "elo-mbid",
+                        "name": "Electric Light Orchestra",
+                        "relations": [
+                            {"type": "wikipedia", "url": {"resource": "https://en.wikipedia.org/wiki/Electric_Light_Orchestra"}}
+                        ],
+                        "release-groups": [{"id": "album1", "title": "Eldorado", "primary-type": "Album"}]
+                    }
+                    """));
+        when(upstreamGet(restTemplate, "wikipedia.org"))
+                .thenAnswer(json("{\"query\": {\"pages\": {\"-1\": {\"title\": \"Electric Light Orchestra\", \"missing\": \"\"}}}}"));
+        when(upstreamGet(restTemplate, "coverartarchive.org"))
+                .thenAnswer(json("{\"images\": []}"));
+        JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run,
+                UpstreamThrottles.disabled(), new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+        Artist first = service.getArtistDetails(mbid);
+        service.evictArtistDetailsCache(mbid);
+        Artist reloaded = service.getArtistDetails(mbid);
+
+        assertNull(first.description());
+        assertTrue(first.albums().isEmpty());
+        assertEquals(first, reloaded);
+        upstreamGet(verify(restTemplate, times(2)), "musicbrainz.org");
+        upstreamGet(verify(restTemplate, times(1)), "wikipedia.org");
+        upstreamGet(verify(restTemplate, times(1)), "coverartarchive.org");
+    }
+
+    @Test
+    void getArtistDetails_CoverArtServerError_MarksPartialWithoutCachingMiss() {
+        String mbid = "elo-mbid";
+        when(upstreamGet(restTemplate, "musicbrainz.org"))
+                .thenAnswer(json("""
+                    {
+                        "id": "elo-mbid",
+                        "name": "Electric Light Orchestra",
+                        "release-groups": [
+                            {"id": "album1", "title": "Eldorado", "primary-type": "Album"},
+                            {"id": "album2", "title": "Time", "primary-type": "Album"}
+                        ]
+                    }
+                    """));
+        AtomicInteger album1Calls = new AtomicInteger();
+        when(upstreamGet(restTemplate, "coverartarchive.org"))
+                .thenAnswer(respond(url -> {
+                    if (url.contains("album2")) {
+                        throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+                    }
+                    if (album1Calls.getAndIncrement() == 0) {
+                        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                    }
+                    return "{\"images\": [{\"front\": true, \"image\": \"http://img/album1.jpg\"}]}";
+                }));
+
+        Artist failed = jukeboxService.getArtistDetails(mbid);
+        jukeboxService.evictArtistDetailsCache(mbid);
+        Artist reloaded = jukeboxService.getArtistDetails(mbid);
+
+        assertTrue(failed.partial());
+        assertTrue(failed.albums().isEmpty());
+        assertFalse(reloaded.partial());
+        assertEquals(List.of(new Album("Eldorado", "album1", "http://img/album1.jpg")), reloaded.albums());
+        // The 404 is remembered as a miss, the 503 is retried
+        upstreamGet(verify(restTemplate, times(3)), "coverartarchive.org");
+    }
+
+    @Test
+    void getArtistDetails_WikipediaServerError_MarksPartialWithoutCachingMiss() {
+        String mbid = "elo-mbid";
+        when(upstreamGet(restTemplate, "musicbrainz.org"))
+                .thenAnswer(json("""
+                    {
+                        "id": "elo-mbid",
+                        "name": "Electric Light Orchestra",
+                        "relations": [
+                            {"type": "wikipedia", "url": {"resource": "https://en.wikipedia.org/wiki/Electric_Light_Orchestra"}}
+                        ],
+                        "release-groups": []
+                    }
+                    """));
+        AtomicInteger wikipediaCalls = new AtomicInteger();
+        when(upstreamGet(restTemplate, "wikipedia.org"))
+                .thenAnswer(respond(url -> {
+                    if (wikipediaCalls.getAndIncrement() == 0) {
+                        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                    }
+                    return "{\"query\": {\"pages\": {\"123\": {\"title\": \"Electric Light Orchestra\", \"extract\": \"<p>ELO is...</p>\"}}}}";
+                }));
+
+        Artist failed = jukeboxService.getArtistDetails(mbid);
+        jukeboxService.evictArtistDetailsCache(mbid);
+        Artist reloaded = jukeboxService.getArtistDetails(mbid);
+
+        assertTrue(failed.partial());
+        assertNull(failed.description());
+        assertFalse(reloaded.partial());
+        assertEquals("<p>ELO is...</p>", reloaded.description());
+        upstreamGet(verify(restTemplate, times(2)), "wikipedia.org");
     }
 
     @Test
     void getArtistDetails_NoData_ThrowsArtistNotFoundException() throws JsonProcessingException {
         String mbid = "invalid-mbid";
-        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(), eq(String.class)))
-                .thenReturn(ResponseEntity.ok(null));
+        when(upstreamGet(restTemplate, ""))
+                .thenAnswer(json(null));
 
         assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistDetails(mbid));
-        verify(restTemplate).exchange(contains("artist/" + mbid), eq(HttpMethod.GET), any(), eq(String.class));
+        upstreamGet(verify(restTemplate), "artist/" + mbid);
     }
 
 //    @ParameterizedTest
@@ -224,8 +643,8 @@ class JukeboxServiceTest {
 //        JsonNode imageNode = mock(JsonNode.class);
 //
 //        // MusicBrainz MBID
-//        when(restTemplate.exchange(contains("query=artist:" + artistName.replace(" ", "%20")), eq(HttpMethod.GET), any(), eq(String.class)))
-//                .thenReturn(ResponseEntity.ok(mbResponse));
+//        when(upstreamGet(restTemplate, "query=artist:" + artistName.replace(" ", "%20")))
+//                .thenAnswer(json(mbResponse));
 //        when(objectMapper.readTree(mbResponse)).thenReturn(mbRoot);
 //        when(mbRoot.path("artists")).thenReturn(mbRoot);
 //        when(mbRoot.get(0)).thenReturn(artistNode);
@@ -235,8 +654,8 @@ class JukeboxServiceTest {
 //        when(artistNode.path("name").asText()).thenReturn(artistName);
 //
 //        // MusicBrainz Details
-//        when(restTemplate.exchange(contains("artist/" + mbid), eq(HttpMethod.GET), any(), eq(String.class)))
-//                .thenReturn(ResponseEntity.ok(detailsResponse));
+//        when(upstreamGet(restTemplate, "artist/" + mbid))
+//                .thenAnswer(json(detailsResponse));
 //        when(objectMapper.readTree(detailsResponse)).thenReturn(detailsRoot);
 //        when(detailsRoot.path("name")).thenReturn(mock(JsonNode.class));
 //        when(detailsRoot.path("id")).thenReturn(mock(JsonNode.class));
@@ -253,8 +672,8 @@ class JukeboxServiceTest {
 //        when(releaseGroupNode.path("title").asText()).thenReturn("Eldorado");
 //
 //        // Cover Art
-//        when(restTemplate.exchange(contains("release-group/c2e4b8f1"), eq(HttpMethod.GET), any(), eq(String.class)))
-//                .thenReturn(ResponseEntity.ok(coverArtResponse));
+//        when(upstreamGet(restTemplate, "release-group/c2e4b8f1"))
+//                .thenAnswer(json(coverArtResponse));
 //        when(objectMapper.readTree(coverArtResponse)).thenReturn(coverArtRoot);
 //        when(coverArtRoot.path("images")).thenReturn(imagesNode);
 //        when(imagesNode.isArray()).thenReturn(true);
@@ -270,21 +689,382 @@ class JukeboxServiceTest {
 //        assertEquals(mbid, result.mbid());
 //        assertEquals(1, result.albums().size());
 //        assertEquals("Eldorado", result.albums().get(0).title());
-//        verify(restTemplate).exchange(contains("query=artist:" + artistName.replace(" ", "%20")), eq(HttpMethod.GET), any(), eq(String.class));
-//        verify(restTemplate).exchange(contains("artist/" + mbid), eq(HttpMethod.GET), any(), eq(String.class));
-//        verify(restTemplate).exchange(contains("release-group/c2e4b8f1"), eq(HttpMethod.GET), any(), eq(String.class));
+//        upstreamGet(verify(restTemplate), "query=artist:" + artistName.replace(" ", "%20"));
+//        upstreamGet(verify(restTemplate), "artist/" + mbid);
+//        upstreamGet(verify(restTemplate), "release-group/c2e4b8f1");
 //    }
 
     @Test
     void getArtistDiscography_ArtistNotFound_ThrowsArtistNotFoundException() throws JsonProcessingException {
         String artistName = "NonExistentBand";
         String jsonResponse = "{\"artists\":[]}";
-        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(), eq(String.class)))
-                .thenReturn(ResponseEntity.ok(jsonResponse));
-        when(objectMapper.readTree(jsonResponse)).thenReturn(mock(JsonNode.class));
+        when(upstreamGet(restTemplate, ""))
+                .thenAnswer(json(jsonResponse));
 
         assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistDiscography(artistName));
-        verify(restTemplate).exchange(contains("query=artist:NonExistentBand"), eq(HttpMethod.GET), any(), eq(String.class));
+        upstreamGet(verify(restTemplate), "query=artist:NonExistentBand");
+    }
+
+    @Test
+    void getArtistDiscography_DetailsAlreadyCached_ReusesCachedArtist() {
+        String artistName = "Electric Light Orchestra";
+        String mbid = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+        when(upstreamGet(restTemplate, "query=artist:"))
+                .thenAnswer(json("{\"artists\":[{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\"}]}"));
+        when(upstreamGet(restTemplate, "artist/" + mbid))
+                .thenAnswer(json("{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\"}"));
+        JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run,
+                UpstreamThrottles.disabled(), new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+        Artist details = service.getArtistDetails(mbid);
+        Artist discography = service.getArtistDiscography(artistName);
+        Artist discographyAgain = service.getArtistDiscography(artistName.toUpperCase());
+
+        // The discography is served from the details cache entry, not a copy of it
+        assertSame(details, discography);
+        assertSame(details, discographyAgain);
+        upstreamGet(verify(restTemplate, times(1)), "query=artist:");
+        upstreamGet(verify(restTemplate, times(1)), "artist/" + mbid);
+    }
+
+    @Test
+    void streamArtistDiscography_Success_EmitsHeaderFirstAndCachesDetails() {
+        String artistName = "Electric Light Orchestra";
+        String mbid = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+        when(upstreamGet(restTemplate, "query=artist:"))
+                .thenAnswer(json("{\"artists\":[{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\"}]}"));
+        when(upstreamGet(restTemplate, "artist/" + mbid)).thenAnswer(json("{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\","
+                + "\"relations\":[{\"type\":\"wikipedia\",\"url\":{\"resource\":\"https://en.wikipedia.org/wiki/ELO\"}}],"
+                + "\"release-groups\":[{\"id\":\"album1\",\"title\":\"Eldorado\",\"primary-type\":\"Album\"},"
+                + "{\"id\":\"album2\",\"title\":\"Time\",\"primary-type\":\"Album\"}]}"));
+        when(upstreamGet(restTemplate, "titles=ELO"))
+                .thenAnswer(json("{\"query\":{\"pages\":{\"1\":{\"extract\":\"<p>ELO is...</p>\"}}}}"));
+        when(upstreamGet(restTemplate, "release-group/"))
+                .thenAnswer(respond(url -> "{\"images\":[{\"front\":true,\"image\":\"http://img/"
+                        + url.substring(url.lastIndexOf('/') + 1) + ".jpg\"}]}"));
+        List<String> events = new ArrayList<>();
+
+        Artist artist = jukeboxService.streamArtistDiscography(artistName, recordingListener(events)).join();
+
+        assertEquals("artist:" + mbid, events.get(0));
+        assertEquals(List.of("album:Eldorado", "album:Time", "description:<p>ELO is...</p>"),
+                events.subList(1, events.size()).stream().sorted().toList());
+        assertEquals(2, artist.albums().size());
+        assertSame(artist, jukeboxService.getArtistDetails(mbid));
+        upstreamGet(verify(restTemplate, times(1)), "artist/" + mbid);
+    }
+
+    @Test
+    void streamArtistDiscography_DetailsAlreadyCached_ReplaysWithoutUpstreamCall() {
+        String artistName = "Electric Light Orchestra";
+        String mbid = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+        when(upstreamGet(restTemplate, "query=artist:"))
+                .thenAnswer(json("{\"artists\":[{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\"}]}"));
+        when(upstreamGet(restTemplate, "artist/" + mbid))
+                .thenAnswer(json("{\"id\":\"" + mbid + "\",\"name\":\"" + artistName + "\"}"));
+        Artist details = jukeboxService.getArtistDetails(mbid);
+        List<String> events = new ArrayList<>();
+
+        Artist streamed = jukeboxService.streamArtistDiscography(artistName, recordingListener(events)).join();
+
+        assertSame(details, streamed);
+        assertEquals(List.of("artist:" + mbid, "description:null"), events);
+        upstreamGet(verify(restTemplate, times(1)), "artist/" + mbid);
+    }
+
+    @Test
+    void streamArtistDiscography_ArtistNotFound_ThrowsBeforeStreaming() {
+        when(upstreamGet(restTemplate, "query=artist:")).thenAnswer(json("{\"artists\":[]}"));
+        List<String> events = new ArrayList<>();
+
+        assertThrows(ArtistNotFoundException.class,
+                () -> jukeboxService.streamArtistDiscography("NonExistentBand", recordingListener(events)));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void getArtistDetailsBatch_DuplicatesAndCachedEntries_LoadsEachMissOnce() {
+        when(upstreamGet(restTemplate, "artist/mbid-a")).thenAnswer(json("{\"id\":\"mbid-a\",\"name\":\"ABBA\"}"));
+        when(upstreamGet(restTemplate, "artist/mbid-b")).thenAnswer(json("{\"id\":\"mbid-b\",\"name\":\"Blondie\"}"));
+        when(upstreamGet(restTemplate, "artist/mbid-c")).thenAnswer(json(null));
+        Artist cached = jukeboxService.getArtistDetails("mbid-a");
+
+        List<ArtistBatchItem> items = jukeboxService.getArtistDetailsBatch(
+                Arrays.asList("mbid-a", "mbid-b", "mbid-a", " ", "mbid-c", "mbid-b"));
+
+        assertEquals(List.of("mbid-a", "mbid-b", "", "mbid-c"), items.stream().map(ArtistBatchItem::key).toList());
+        assertEquals(List.of(ArtistBatchItem.Status.OK, ArtistBatchItem.Status.OK, ArtistBatchItem.Status.INVALID,
+                ArtistBatchItem.Status.NOT_FOUND), items.stream().map(ArtistBatchItem::status).toList());
+        assertSame(cached, items.get(0).artist());
+        assertEquals("Blondie", items.get(1).artist().name());
+        assertSame(items.get(1).artist(), jukeboxService.getArtistDetails("mbid-b"));
+        upstreamGet(verify(restTemplate, times(1)), "artist/mbid-a");
+        upstreamGet(verify(restTemplate, times(1)), "artist/mbid-b");
+    }
+
+    @Test
+    void getArtistDetailsBatch_InteractiveLoadInFlight_WaitsForIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(upstreamGet(restTemplate, "artist/mbid-a")).thenAnswer(respond(url -> {
+            started.countDown();
+            release.await();
+            return "{\"id\":\"mbid-a\",\"name\":\"ABBA\"}";
+        }));
+        AtomicReference<List<ArtistBatchItem>> items = new AtomicReference<>();
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<Artist> interactive = executor.submit(() -> jukeboxService.getArtistDetails("mbid-a"));
+            started.await();
+            Thread batchCaller = new Thread(() -> items.set(jukeboxService.getArtistDetailsBatch(List.of("mbid-a"))));
+            batchCaller.start();
+            while (batchCaller.getState() != Thread.State.WAITING) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            batchCaller.join();
+
+            assertSame(interactive.get(), items.get().get(0).artist());
+        }
+        upstreamGet(verify(restTemplate, times(1)), "artist/mbid-a");
+    }
+
+    @Test
+    void getArtistDetailsBatch_UnknownMbid_IsRememberedAsNotFound() {
+        when(upstreamGet(restTemplate, "artist/mbid-c")).thenAnswer(json(null));
+
+        List<ArtistBatchItem> items = jukeboxService.getArtistDetailsBatch(List.of("mbid-c"));
+
+        assertEquals(ArtistBatchItem.Status.NOT_FOUND, items.get(0).status());
+        assertThrows(ArtistNotFoundException.class, () -> jukeboxService.getArtistDetails("mbid-c"));
+        upstreamGet(verify(restTemplate, times(1)), "artist/mbid-c");
+    }
+
+    @Test
+    void getArtistDiscographyBatch_PartialFailure_ReportsPerItemStatus() {
+        when(upstreamGet(restTemplate, "query=artist:ELO"))
+                .thenAnswer(json("{\"artists\":[{\"id\":\"mbid-elo\",\"name\":\"ELO\"}]}"));
+        when(upstreamGet(restTemplate, "query=artist:Nobody")).thenAnswer(json("{\"artists\":[]}"));
+        when(upstreamGet(restTemplate, "artist/mbid-elo"))
+                .thenThrow(new ResourceAccessException("MusicBrainz unavailable"))
+                .thenAnswer(json("{\"id\":\"mbid-elo\",\"name\":\"Electric Light Orchestra\"}"));
+
+        List<ArtistBatchItem> failed = jukeboxService.getArtistDiscographyBatch(List.of("ELO", "elo", "Nobody"));
+        List<ArtistBatchItem> retried = jukeboxService.getArtistDiscographyBatch(List.of("ELO", "Nobody"));
+
+        assertEquals(List.of("ELO", "Nobody"), failed.stream().map(ArtistBatchItem::key).toList());
+        assertEquals(ArtistBatchItem.Status.ERROR, failed.get(0).status());
+        assertEquals("MusicBrainz unavailable", failed.get(0).error());
+        assertEquals(ArtistBatchItem.Status.NOT_FOUND, failed.get(1).status());
+        assertEquals(ArtistBatchItem.Status.OK, retried.get(0).status());
+        assertEquals("Electric Light Orchestra", retried.get(0).artist().name());
+        assertEquals(ArtistBatchItem.Status.NOT_FOUND, retried.get(1).status());
+        // The lookup and the missing artist are cached, so only the failed details load is repeated
+        upstreamGet(verify(restTemplate, times(1)), "query=artist:ELO");
+        upstreamGet(verify(restTemplate, times(1)), "query=artist:Nobody");
+        upstreamGet(verify(restTemplate, times(2)), "artist/mbid-elo");
+    }
+
+    @Test
+    void getArtistDiscographyBatch_UpstreamCalls_RunAtBatchPriority() {
+        List<UpstreamPriority> priorities = new CopyOnWriteArrayList<>();
+        when(upstreamGet(restTemplate, "query=artist:")).thenAnswer(invocation -> {
+            priorities.add(UpstreamPriority.current());
+            return json("{\"artists\":[{\"id\":\"mbid-elo\",\"name\":\"ELO\"}]}").answer(invocation);
+        });
+        when(upstreamGet(restTemplate, "artist/mbid-")).thenAnswer(invocation -> {
+            priorities.add(UpstreamPriority.current());
+            return json("{\"id\":\"mbid-elo\",\"name\":\"ELO\"}").answer(invocation);
+        });
+
+        jukeboxService.getArtistDiscographyBatch(List.of("ELO"));
+        jukeboxService.getArtistDetails("mbid-other");
+
+        assertEquals(List.of(UpstreamPriority.BATCH, UpstreamPriority.BATCH, UpstreamPriority.INTERACTIVE), priorities);
+    }
+
+    @Test
+    void getArtistDetailsBatch_OutOfPermits_ReportsRateLimitedItems() {
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("musicbrainz.org");
+        musicBrainz.setMaxRate(1);
+        musicBrainz.setMaxWait(Duration.ZERO);
+        HttpClientProperties httpProperties = new HttpClientProperties();
+        httpProperties.getUpstreams().put("musicbrainz", musicBrainz);
+        JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run,
+                new UpstreamThrottles(httpProperties), new CaffeineCacheManager(), PersistentCacheManager.disabled(),
+                MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+        when(upstreamGet(restTemplate, "artist/mbid-")).thenAnswer(json("{\"id\":\"mbid\",\"name\":\"ABBA\"}"));
+
+        List<ArtistBatchItem> items = service.getArtistDetailsBatch(List.of("mbid-a", "mbid-b"));
+
+        assertEquals(ArtistBatchItem.Status.OK, items.get(0).status());
+        assertEquals(ArtistBatchItem.Status.RATE_LIMITED, items.get(1).status());
+        upstreamGet(verify(restTemplate, times(1)), "artist/mbid-");
+    }
+
+    @Test
+    void getArtistDetailsBatch_TooManyEntries_ThrowsIllegalArgumentException() {
+        List<String> mbids = IntStream.rangeClosed(0, 100).mapToObj(i -> "mbid-" + i).toList();
+
+        assertThrows(IllegalArgumentException.class, () -> jukeboxService.getArtistDetailsBatch(mbids));
+        assertThrows(IllegalArgumentException.class, () -> jukeboxService.getArtistDetailsBatch(List.of()));
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void getArtistDetailsBatch_ConcurrentDescriptions_SharesOneWikipediaRequest() {
+        for (String name : List.of("ELO", "Queen")) {
+            when(upstreamGet(restTemplate, "artist/mbid-" + name)).thenAnswer(json("{\"id\":\"mbid-" + name + "\",\"name\":\"" + name + "\","
+                    + "\"relations\":[{\"type\":\"wikipedia\",\"url\":{\"resource\":\"https://en.wikipedia.org/wiki/" + name + "\"}}]}"));
+        }
+        when(upstreamGet(restTemplate, "en.wikipedia.org")).thenAnswer(json("{\"query\":{\"pages\":{"
+                + "\"1\":{\"title\":\"ELO\",\"extract\":\"<p>ELO is...</p>\"},"
+                + "\"2\":{\"title\":\"Queen\",\"extract\":\"<p>Queen are...</p>\"}}}}"));
+        MicroBatchProperties batchProperties = new MicroBatchProperties();
+        batchProperties.setWindow(Duration.ofMillis(200));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        MicroBatchScheduler microBatchScheduler = new MicroBatchScheduler(batchProperties, executor);
+        try {
+            JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), executor, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), PersistentCacheManager.disabled(), microBatchScheduler,
+                    UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+
+            List<ArtistBatchItem> items = service.getArtistDetailsBatch(List.of("mbid-ELO", "mbid-Queen"));
+
+            assertEquals("<p>ELO is...</p>", items.get(0).artist().description());
+            assertEquals("<p>Queen are...</p>", items.get(1).artist().description());
+            upstreamGet(verify(restTemplate, times(1)), "en.wikipedia.org");
+        } finally {
+            executor.shutdownNow();
+            microBatchScheduler.destroy();
+        }
+    }
+
+    private static DiscographyListener recordingListener(List<String> events) {
+        return new DiscographyListener() {
+            @Override
+            public void onArtist(ArtistLookup artist) {
+                events.add("artist:" + artist.mbid());
+            }
+
+            @Override
+            public void onAlbum(Album album) {
+                events.add("album:" + album.title());
+            }
+
+            @Override
+            public void onDescription(String description) {
+                events.add("description:" + description);
+            }
+        };
+    }
+
+    @Test
+    void getArtistDetails_AfterRestart_ServedFromPersistentCache(@TempDir Path directory) {
+        String mbid = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+        when(upstreamGet(restTemplate, "artist/" + mbid))
+                .thenAnswer(json("{\"id\":\"" + mbid + "\",\"name\":\"Electric Light Orchestra\"}"));
+        PersistentCacheProperties properties = new PersistentCacheProperties();
+        properties.setDirectory(directory);
+
+        Artist loaded;
+        try (PersistentCacheManager persistentCacheManager = new PersistentCacheManager(properties)) {
+            loaded = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), persistentCacheManager, MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled()).getArtistDetails(mbid);
+        }
+        Artist restored;
+        try (PersistentCacheManager persistentCacheManager = new PersistentCacheManager(properties)) {
+            restored = new JukeboxService(restTemplate, new ObjectMapper(), Runnable::run, UpstreamThrottles.disabled(),
+                    new CaffeineCacheManager(), persistentCacheManager, MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled()).getArtistDetails(mbid);
+        }
+
+        assertEquals(loaded, restored);
+        upstreamGet(verify(restTemplate, times(1)), "artist/" + mbid);
+    }
+
+    @Test
+    void promote_PersistedEntry_ExpiresAndRefreshesByItsAge() {
+        AtomicInteger refreshes = new AtomicInteger();
+        LoadingCache<String, String> cache = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(String key, String value, long currentTime) {
+                        return Duration.ofHours(6).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, String value, long currentTime, long currentDuration) {
+                        return Duration.ofHours(6).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, String value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .refreshAfterWrite(Duration.ofHours(1))
+                .executor(Runnable::run)
+                .build(key -> {
+                    refreshes.incrementAndGet();
+                    return "refreshed";
+                });
+
+        assertEquals("fresh", JukeboxService.promote(cache, persisted("fresh", Duration.ofMinutes(30)), "fresh"));
+        assertEquals("stale", JukeboxService.promote(cache, persisted("stale", Duration.ofHours(2)), "stale"));
+        assertNull(JukeboxService.promote(cache, persisted("expired", Duration.ofHours(7)), "expired"));
+
+        Policy.VarExpiration<String, String> expiry = cache.policy().expireVariably().orElseThrow();
+        long freshLeft = expiry.getExpiresAfter("fresh").orElseThrow().toMinutes();
+        assertTrue(freshLeft > 320 && freshLeft <= 330, "minutes left " + freshLeft);
+        assertEquals(1, refreshes.get(), "only the entry past the soft TTL is refreshed");
+        assertEquals("refreshed", cache.getIfPresent("stale"));
+        assertNull(cache.getIfPresent("expired"));
+    }
+
+    private static PersistentCache<String> persisted(String value, Duration age) {
+        return new PersistentCache<>() {
+            @Override
+            public Entry<String> getEntry(String key) {
+                return new Entry<>(value, System.currentTimeMillis() - age.toMillis());
+            }
+
+            @Override
+            public void put(String key, String value) {
+            }
+
+            @Override
+            public void invalidate(String key) {
+            }
+
+            @Override
+            public void clear() {
+            }
+        };
+    }
+
+    @Test
+    void sharingCoverArt_PersistedArtist_ReusesCachedCoverArtUrlsAndSeedsMissingOnes() {
+        String mbid = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+        String cachedImage = "http://coverartarchive.org/release/1/front.jpg";
+        Cache<String, String> coverArtCache = Caffeine.newBuilder().build();
+        coverArtCache.put("album1", cachedImage);
+        coverArtCache.put("album2", "http://coverartarchive.org/release/2/new.jpg");
+        Artist persisted = new Artist("Electric Light Orchestra", "British rock band", mbid, List.of(
+                new Album("Eldorado", "album1", new String(cachedImage)),
+                new Album("Time", "album2", "http://coverartarchive.org/release/2/old.jpg"),
+                new Album("Discovery", "album3", "http://coverartarchive.org/release/3/front.jpg")));
+        PersistentCache<Artist> persistent = mock(PersistentCache.class);
+        when(persistent.getEntry(mbid)).thenReturn(new PersistentCache.Entry<>(persisted, 1000L));
+
+        PersistentCache.Entry<Artist> shared = JukeboxService.sharingCoverArt(persistent, coverArtCache).getEntry(mbid);
+
+        assertEquals(persisted, shared.value());
+        assertEquals(1000L, shared.writtenAt());
+        assertSame(cachedImage, shared.value().albums().get(0).image());
+        assertSame(persisted.albums().get(1), shared.value().albums().get(1));
+        assertSame(persisted.albums().get(2).image(), coverArtCache.getIfPresent("album3"));
     }
 
     @ParameterizedTest
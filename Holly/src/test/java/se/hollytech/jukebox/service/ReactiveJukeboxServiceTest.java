@@ -0,0 +1,178 @@
+package se.hollytech.jukebox.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.http.HttpClientProperties;
+import se.hollytech.jukebox.http.UpstreamThrottleFilter;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveJukeboxServiceTest {
+
+    private static final String ELO_MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+    private static final String ELO_SEARCH = "{\"artists\":[{\"id\":\"" + ELO_MBID + "\",\"name\":\"Electric Light Orchestra\"}]}";
+    private static final String ELO_DETAILS = """
+            {
+                "id": "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e",
+                "name": "Electric Light Orchestra",
+                "relations": [
+                    {"type": "wikipedia", "url": {"resource": "https://en.wikipedia.org/wiki/Electric_Light_Orchestra"}}
+                ],
+                "release-groups": [
+                    {"id": "album1", "title": "Eldorado", "primary-type": "Album"},
+                    {"id": "album2", "title": "Out of the Blue", "primary-type": "Album"},
+                    {"id": "album3", "title": "Time", "primary-type": "Album"}
+                ]
+            }
+            """;
+    private static final String ELO_EXTRACT = """
+            {"query": {"pages": {"123": {"pageid": 123, "title": "Electric Light Orchestra", "extract": "<p>ELO is...</p>"}}}}
+            """;
+
+    private final Map<String, String> responses = new LinkedHashMap<>();
+    private final List<String> requestedUrls = new CopyOnWriteArrayList<>();
+    private Duration latency = Duration.ZERO;
+
+    @Test
+    void getArtistMbid_Success_ReturnsArtistLookup() {
+        responses.put("query=artist:Electric%20Light%20Orchestra", ELO_SEARCH);
+
+        ArtistLookup result = service(UpstreamThrottles.disabled()).getArtistMbid("Electric Light Orchestra").block();
+
+        assertEquals(new ArtistLookup("Electric Light Orchestra", ELO_MBID), result);
+    }
+
+    @Test
+    void getArtistMbid_NoArtistsFoundTwice_QueriesUpstreamOnce() {
+        responses.put("query=artist:", "{\"artists\":[]}");
+        ReactiveJukeboxService service = service(UpstreamThrottles.disabled());
+
+        assertThrows(ArtistNotFoundException.class, () -> service.getArtistMbid("NonExistentBand").block());
+        assertThrows(ArtistNotFoundException.class, () -> service.getArtistMbid("nonexistentband").block());
+
+        assertEquals(1, requestedUrls.size());
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    void getArtistMbid_InvalidInput_FailsWithIllegalArgumentException(String artistName) {
+        assertThrows(IllegalArgumentException.class, () -> service(UpstreamThrottles.disabled()).getArtistMbid(artistName).block());
+        assertTrue(requestedUrls.isEmpty());
+    }
+
+    @Test
+    void getArtistDetails_Success_KeepsMusicBrainzOrderAndSkipsAlbumsWithoutCover() {
+        responses.put("musicbrainz.org/ws/2/artist/" + ELO_MBID, ELO_DETAILS);
+        responses.put("en.wikipedia.org", ELO_EXTRACT);
+        responses.put("release-group/album1", "{\"images\":[{\"front\":true,\"image\":\"http://img/1.jpg\"}]}");
+        responses.put("release-group/album2", "{\"images\":[{\"front\":false,\"image\":\"http://img/back.jpg\"}]}");
+        responses.put("release-group/album3", "{\"images\":[{\"front\":true,\"image\":\"http://img/3.jpg\"}]}");
+
+        Artist artist = service(UpstreamThrottles.disabled()).getArtistDetails(ELO_MBID).block();
+
+        assertNotNull(artist);
+        assertEquals("Electric Light Orchestra", artist.name());
+        assertEquals("<p>ELO is...</p>", artist.description());
+        assertEquals(List.of(new Album("Eldorado", "album1", "http://img/1.jpg"), new Album("Time", "album3", "http://img/3.jpg")),
+                artist.albums());
+    }
+
+    @Test
+    void getArtistDetails_ConcurrentMisses_ShareOneLoad() {
+        responses.put("musicbrainz.org/ws/2/artist/" + ELO_MBID, ELO_DETAILS);
+        latency = Duration.ofMillis(50);
+        ReactiveJukeboxService service = service(UpstreamThrottles.disabled());
+
+        List<Artist> artists = Mono.zip(service.getArtistDetails(ELO_MBID), service.getArtistDetails(ELO_MBID))
+                .map(both -> List.of(both.getT1(), both.getT2()))
+                .block();
+
+        assertNotNull(artists);
+        assertSame(artists.get(0), artists.get(1));
+        assertEquals(1, requestedUrls.stream().filter(url -> url.contains("musicbrainz.org")).count());
+    }
+
+    @Test
+    void getArtistDetails_UnknownMbidTwice_QueriesUpstreamOnce() {
+        ReactiveJukeboxService service = service(UpstreamThrottles.disabled());
+
+        assertThrows(ArtistNotFoundException.class, () -> service.getArtistDetails(ELO_MBID).block());
+        assertThrows(ArtistNotFoundException.class, () -> service.getArtistDetails(ELO_MBID).block());
+
+        assertEquals(1, requestedUrls.size());
+    }
+
+    @Test
+    void getArtistDiscography_SecondCall_IsServedFromCaches() {
+        responses.put("query=artist:", ELO_SEARCH);
+        responses.put("musicbrainz.org/ws/2/artist/" + ELO_MBID, ELO_DETAILS);
+        ReactiveJukeboxService service = service(UpstreamThrottles.disabled());
+
+        Artist first = service.getArtistDiscography("Electric Light Orchestra").block();
+        int callsAfterFirst = requestedUrls.size();
+        Artist second = service.getArtistDiscography("electric light orchestra").block();
+
+        assertEquals(first, second);
+        assertEquals(callsAfterFirst, requestedUrls.size());
+    }
+
+    @Test
+    void getArtistDiscography_MusicBrainzOutOfPermits_FailsWithRateLimitMessage() {
+        responses.put("query=artist:", ELO_SEARCH);
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("musicbrainz.org");
+        musicBrainz.setMaxRate(1);
+        musicBrainz.setMaxWait(Duration.ZERO);
+        HttpClientProperties httpProperties = new HttpClientProperties();
+        httpProperties.getUpstreams().put("musicbrainz", musicBrainz);
+        ReactiveJukeboxService service = service(new UpstreamThrottles(httpProperties));
+
+        MusicBrainzApiException error = assertThrows(MusicBrainzApiException.class,
+                () -> service.getArtistDiscography("Electric Light Orchestra").block());
+
+        assertEquals("Rate limit exceeded for MusicBrainz API, please try again later", error.getMessage());
+        assertEquals(1, requestedUrls.size());
+    }
+
+    private ReactiveJukeboxService service(UpstreamThrottles throttles) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String url = request.url().toString();
+                    requestedUrls.add(url);
+                    String body = responses.entrySet().stream()
+                            .filter(response -> url.contains(response.getKey()))
+                            .map(Map.Entry::getValue)
+                            .findFirst()
+                            .orElse("{}");
+                    return Mono.delay(latency).thenReturn(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .filter(new UpstreamThrottleFilter(throttles))
+                .build();
+        return new ReactiveJukeboxService(webClient, new ObjectMapper(), 4,
+                new CaffeineCacheManager(), PersistentCacheManager.disabled(), MicroBatchScheduler.disabled());
+    }
+}
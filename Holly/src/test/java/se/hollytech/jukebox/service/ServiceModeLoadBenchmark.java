@@ -0,0 +1,127 @@
+package se.hollytech.jukebox.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.http.UpstreamHedging;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.model.Artist;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static se.hollytech.jukebox.service.UpstreamStubs.*;
+
+/**
+ * Fires cold discography requests at both service modes with the same fixed number of request threads
+ * and upstream threads, against upstreams that answer after a fixed latency, and compares the sustained
+ * throughput. Run with {@code gradle benchmark}; it is excluded from the regular test task.
+ */
+@Tag("benchmark")
+class ServiceModeLoadBenchmark {
+
+    private static final int REQUEST_THREADS = 8;
+    private static final int UPSTREAM_THREADS = 8;
+    private static final int REQUESTS = 200;
+    private static final int ALBUMS = 5;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(50);
+
+    @Test
+    void reactiveModeSustainsMoreColdRequestsOnSameThreads() throws Exception {
+        double blocking = requestsPerSecond("blocking", blockingService());
+        double reactive = requestsPerSecond("reactive", reactiveService());
+
+        System.out.printf("%d cold discography requests, %d request threads, %d upstream threads, %d ms upstream latency: "
+                        + "blocking %.0f req/s, reactive %.0f req/s (%.1fx)%n",
+                REQUESTS, REQUEST_THREADS, UPSTREAM_THREADS, UPSTREAM_LATENCY.toMillis(), blocking, reactive, reactive / blocking);
+        assertTrue(reactive > blocking);
+    }
+
+    /**
+     * Each request thread starts a request and moves on once the service hands back a future, as an async
+     * servlet request does; a blocking service only hands it back when the response is complete.
+     */
+    private double requestsPerSecond(String mode, Function<String, CompletableFuture<Artist>> service) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<Artist>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                String artistName = "Artist " + i;
+                responses.add(CompletableFuture.supplyAsync(() -> service.apply(artistName), requestThreads)
+                        .thenCompose(Function.identity()));
+            }
+            for (CompletableFuture<Artist> response : responses) {
+                assertEquals(ALBUMS, response.get().albums().size(), mode);
+            }
+            return REQUESTS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            requestThreads.shutdownNow();
+        }
+    }
+
+    private Function<String, CompletableFuture<Artist>> blockingService() throws Exception {
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(upstreamGet(restTemplate, "")).thenAnswer(respond(url -> {
+            Thread.sleep(UPSTREAM_LATENCY.toMillis());
+            return responseFor(url);
+        }));
+        ExecutorService upstreamThreads = Executors.newFixedThreadPool(UPSTREAM_THREADS);
+        JukeboxService service = new JukeboxService(restTemplate, new ObjectMapper(), upstreamThreads, UpstreamThrottles.disabled(),
+                new CaffeineCacheManager(), PersistentCacheManager.disabled(), MicroBatchScheduler.disabled(),
+                UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+        return artistName -> CompletableFuture.completedFuture(service.getArtistDiscography(artistName));
+    }
+
+    private Function<String, CompletableFuture<Artist>> reactiveService() {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.delay(UPSTREAM_LATENCY).thenReturn(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(responseFor(request.url().toString()))
+                        .build()))
+                .build();
+        ReactiveJukeboxService service = new ReactiveJukeboxService(webClient, new ObjectMapper(), UPSTREAM_THREADS,
+                new CaffeineCacheManager(), PersistentCacheManager.disabled(), MicroBatchScheduler.disabled());
+        return artistName -> service.getArtistDiscography(artistName).toFuture();
+    }
+
+    private static String responseFor(String url) {
+        if (url.contains("query=artist:")) {
+            String id = url.substring(url.lastIndexOf("%20") + 3, url.indexOf('&'));
+            return "{\"artists\":[{\"id\":\"mbid-" + id + "\",\"name\":\"Artist " + id + "\"}]}";
+        }
+        if (url.contains("musicbrainz.org/ws/2/artist/mbid-")) {
+            String id = url.substring(url.indexOf("mbid-") + 5, url.indexOf('?'));
+            StringBuilder releaseGroups = new StringBuilder();
+            for (int album = 0; album < ALBUMS; album++) {
+                releaseGroups.append(album > 0 ? "," : "")
+                        .append("{\"id\":\"rg-").append(id).append('-').append(album)
+                        .append("\",\"title\":\"Album ").append(album).append("\",\"primary-type\":\"Album\"}");
+            }
+            return "{\"id\":\"mbid-" + id + "\",\"name\":\"Artist " + id + "\",\"relations\":[{\"type\":\"wikipedia\","
+                    + "\"url\":{\"resource\":\"https://en.wikipedia.org/wiki/Artist_" + id + "\"}}],"
+                    + "\"release-groups\":[" + releaseGroups + "]}";
+        }
+        if (url.contains("en.wikipedia.org")) {
+            return "{\"query\":{\"pages\":{\"1\":{\"pageid\":1,\"title\":\"Artist\",\"extract\":\"<p>An artist.</p>\"}}}}";
+        }
+        return "{\"images\":[{\"front\":true,\"image\":\"http://img/cover.jpg\"}]}";
+    }
+}
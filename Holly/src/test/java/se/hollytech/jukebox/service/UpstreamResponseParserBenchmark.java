@@ -0,0 +1,130 @@
+package se.hollytech.jukebox.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import se.hollytech.jukebox.service.UpstreamResponseParser.ArtistDetailsResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the bytes allocated per MusicBrainz artist response by buffering it as a string and a
+ * {@link JsonNode} tree with streaming it through {@link UpstreamResponseParser}. Run with
+ * {@code gradle benchmark}; it is excluded from the regular test task.
+ */
+@Tag("benchmark")
+class UpstreamResponseParserBenchmark {
+
+    private static final int RELATIONS = 300;
+    private static final int RELEASE_GROUPS = 500;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void streamingAllocatesLessThanStringAndTree() throws IOException {
+        byte[] body = artistResponse().getBytes(StandardCharsets.UTF_8);
+        assertEquals(readTree(body), readStreaming(body));
+
+        long treeBytes = allocatedPerResponse(() -> readTree(body));
+        long streamingBytes = allocatedPerResponse(() -> readStreaming(body));
+
+        System.out.printf("MusicBrainz artist response of %,d bytes: string + tree %,d B/op, streaming %,d B/op (%.1fx)%n",
+                body.length, treeBytes, streamingBytes, (double) treeBytes / streamingBytes);
+        assertTrue(streamingBytes < treeBytes);
+    }
+
+    /**
+     * The pre-streaming path: the body as a string, then a full tree, then the used fields.
+     */
+    private ArtistDetailsResponse readTree(byte[] body) throws IOException {
+        String json = new String(body, StandardCharsets.UTF_8);
+        if (json.contains("\"artists\":[]")) {
+            return null;
+        }
+        JsonNode root = objectMapper.readTree(json);
+        String wikipediaPageTitle = null;
+        String wikidataId = null;
+        for (JsonNode relation : root.path("relations")) {
+            String type = relation.path("type").asText();
+            String resource = relation.path("url").path("resource").asText();
+            if ("wikipedia".equalsIgnoreCase(type) && wikipediaPageTitle == null) {
+                wikipediaPageTitle = resource.substring(resource.lastIndexOf('/') + 1);
+            } else if ("wikidata".equalsIgnoreCase(type)) {
+                wikidataId = resource.substring(resource.lastIndexOf('/') + 1);
+            }
+        }
+        List<UpstreamResponseParser.ReleaseGroup> albums = new ArrayList<>();
+        for (JsonNode releaseGroup : root.path("release-groups")) {
+            if ("Album".equalsIgnoreCase(releaseGroup.path("primary-type").asText())) {
+                albums.add(new UpstreamResponseParser.ReleaseGroup(releaseGroup.path("id").asText(),
+                        releaseGroup.path("title").asText()));
+            }
+        }
+        return new ArtistDetailsResponse(root.path("id").asText(), root.path("name").asText(),
+                wikipediaPageTitle, wikidataId, List.copyOf(albums));
+    }
+
+    private ArtistDetailsResponse readStreaming(byte[] body) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(body))) {
+            parser.nextToken();
+            return UpstreamResponseParser.readArtistDetails(parser);
+        }
+    }
+
+    private interface Read {
+        Object run() throws IOException;
+    }
+
+    private long allocatedPerResponse(Read read) throws IOException {
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            assertNotNull(read.run());
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            assertNotNull(read.run());
+        }
+        return (threadBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+    }
+
+    /**
+     * A MusicBrainz {@code inc=url-rels+release-groups} response for an artist with a long catalogue.
+     */
+    private static String artistResponse() {
+        StringBuilder json = new StringBuilder("{\"id\":\"0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e\",")
+                .append("\"name\":\"Electric Light Orchestra\",\"sort-name\":\"Electric Light Orchestra\",")
+                .append("\"type\":\"Group\",\"country\":\"GB\",\"relations\":[");
+        for (int i = 0; i < RELATIONS; i++) {
+            String type = i == 0 ? "wikidata" : i == 1 ? "wikipedia" : "discogs";
+            String resource = i == 0 ? "https://www.wikidata.org/wiki/Q207225"
+                    : i == 1 ? "https://en.wikipedia.org/wiki/Electric_Light_Orchestra"
+                    : "https://www.discogs.com/artist/" + i;
+            json.append(i > 0 ? "," : "")
+                    .append("{\"type\":\"").append(type).append("\",\"direction\":\"forward\",")
+                    .append("\"attributes\":[],\"ended\":false,\"target-type\":\"url\",")
+                    .append("\"url\":{\"id\":\"url-").append(i).append("\",\"resource\":\"").append(resource).append("\"}}");
+        }
+        json.append("],\"release-groups\":[");
+        for (int i = 0; i < RELEASE_GROUPS; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"id\":\"rg-").append(i).append("\",\"title\":\"Release group number ").append(i).append("\",")
+                    .append("\"primary-type\":\"").append(i % 3 == 0 ? "Album" : "Single").append("\",")
+                    .append("\"secondary-types\":[],\"first-release-date\":\"1977-10-").append(10 + i % 20).append("\",")
+                    .append("\"disambiguation\":\"\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
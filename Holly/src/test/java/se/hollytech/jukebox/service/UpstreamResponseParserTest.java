@@ -0,0 +1,111 @@
+package se.hollytech.jukebox.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.UpstreamResponseParser.ArtistDetailsResponse;
+import se.hollytech.jukebox.service.UpstreamResponseParser.ReleaseGroup;
+import se.hollytech.jukebox.service.UpstreamResponseParser.WikipediaExtracts;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamResponseParserTest {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Test
+    void readFirstArtist_SkipsFieldsBeforeArtists() throws IOException {
+        String json = "{\"created\":\"2024-01-01\",\"count\":2,\"offset\":0,\"artists\":["
+                + "{\"score\":100,\"tags\":[{\"name\":\"rock\"}],\"name\":\"ELO\",\"id\":\"mbid-1\"},"
+                + "{\"id\":\"mbid-2\",\"name\":\"Other\"}]}";
+
+        assertEquals(new ArtistLookup("ELO", "mbid-1"), read(json, UpstreamResponseParser::readFirstArtist));
+    }
+
+    @Test
+    void readFirstArtist_EmptyArtists_ReturnsNull() throws IOException {
+        assertNull(read("{\"count\":0,\"artists\":[]}", UpstreamResponseParser::readFirstArtist));
+        assertNull(read("[]", UpstreamResponseParser::readFirstArtist));
+    }
+
+    @Test
+    void readArtistDetails_PrefersWikipediaRelationAndKeepsOnlyAlbums() throws IOException {
+        String json = "{\"release-groups\":["
+                + "{\"id\":\"rg-1\",\"title\":\"Out of the Blue\",\"primary-type\":\"Album\",\"secondary-types\":[]},"
+                + "{\"id\":\"rg-2\",\"title\":\"Mr. Blue Sky\",\"primary-type\":\"Single\"}],"
+                + "\"relations\":["
+                + "{\"type\":\"wikidata\",\"url\":{\"resource\":\"https://www.wikidata.org/wiki/Q207225\",\"id\":\"u1\"}},"
+                + "{\"url\":{\"id\":\"u2\",\"resource\":\"https://en.wikipedia.org/wiki/Electric_Light_Orchestra\"},\"type\":\"wikipedia\"},"
+                + "{\"type\":\"discogs\",\"url\":{\"resource\":\"https://www.discogs.com/artist/1\"}}],"
+                + "\"name\":\"Electric Light Orchestra\",\"id\":\"mbid-1\"}";
+
+        ArtistDetailsResponse details = read(json, UpstreamResponseParser::readArtistDetails);
+
+        assertEquals("mbid-1", details.id());
+        assertEquals("Electric Light Orchestra", details.name());
+        assertEquals("Electric_Light_Orchestra", details.wikipediaPageTitle());
+        assertEquals("Q207225", details.wikidataId());
+        assertEquals(List.of(new ReleaseGroup("rg-1", "Out of the Blue")), details.albums());
+    }
+
+    @Test
+    void readFrontImage_SkipsNonFrontImages() throws IOException {
+        String json = "{\"images\":["
+                + "{\"front\":false,\"image\":\"http://img/back.jpg\",\"thumbnails\":{\"small\":\"s\"}},"
+                + "{\"thumbnails\":{\"small\":\"s\"},\"image\":\"http://img/front.jpg\",\"front\":true}],"
+                + "\"release\":\"https://musicbrainz.org/release/1\"}";
+
+        assertEquals("http://img/front.jpg", read(json, UpstreamResponseParser::readFrontImage));
+        assertNull(read("{\"images\":[]}", UpstreamResponseParser::readFrontImage));
+    }
+
+    @Test
+    void readEnwikiTitles_ReadsSitelinkOfEachEntity() throws IOException {
+        String json = "{\"entities\":{"
+                + "\"Q207225\":{\"type\":\"item\",\"sitelinks\":{\"dewiki\":{\"title\":\"ELO (Band)\"},"
+                + "\"enwiki\":{\"site\":\"enwiki\",\"title\":\"Electric Light Orchestra\",\"badges\":[]}},\"id\":\"Q207225\"},"
+                + "\"Q1\":{\"type\":\"item\",\"sitelinks\":{}},"
+                + "\"Q15862\":{\"sitelinks\":{\"enwiki\":{\"title\":\"Queen (band)\"}}}},"
+                + "\"success\":1}";
+
+        assertEquals(Map.of("Q207225", "Electric Light Orchestra", "Q15862", "Queen (band)"),
+                read(json, UpstreamResponseParser::readEnwikiTitles));
+        assertEquals(Map.of(), read("{\"error\":{}}", UpstreamResponseParser::readEnwikiTitles));
+    }
+
+    @Test
+    void readExtracts_FollowsNormalizationAndRedirects() throws IOException {
+        String json = "{\"batchcomplete\":\"\",\"query\":{"
+                + "\"normalized\":[{\"from\":\"Electric_Light_Orchestra\",\"to\":\"Electric Light Orchestra\"}],"
+                + "\"redirects\":[{\"from\":\"ELO\",\"to\":\"Electric Light Orchestra\"}],"
+                + "\"pages\":{"
+                + "\"-1\":{\"ns\":0,\"title\":\"Missing\",\"missing\":\"\"},"
+                + "\"123\":{\"pageid\":123,\"title\":\"Electric Light Orchestra\",\"extract\":\"<p>ELO is...</p>\"},"
+                + "\"456\":{\"pageid\":456,\"title\":\"Queen (band)\",\"extract\":\"<p>Queen are...</p>\"}}}}";
+
+        WikipediaExtracts extracts = read(json, UpstreamResponseParser::readExtracts);
+
+        assertEquals("<p>ELO is...</p>", extracts.extractFor("Electric_Light_Orchestra"));
+        assertEquals("<p>ELO is...</p>", extracts.extractFor("ELO"));
+        assertEquals("<p>Queen are...</p>", extracts.extractFor("Queen_(band)"));
+        assertNull(extracts.extractFor("Missing"));
+        assertEquals("<p>ELO is...</p>", extracts.firstExtract());
+        assertNull(read("{\"query\":{\"pages\":{\"-1\":{\"missing\":\"\"}}}}", UpstreamResponseParser::readExtracts).firstExtract());
+    }
+
+    private interface Reader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    private static <T> T read(String json, Reader<T> reader) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            return reader.read(parser);
+        }
+    }
+}
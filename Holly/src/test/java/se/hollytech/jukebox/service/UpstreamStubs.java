@@ -0,0 +1,54 @@
+package se.hollytech.jukebox.service;
+
+import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.*;
+
+/**
+ * Stubs for the streaming upstream calls of {@link JukeboxService}, which read responses through a
+ * {@link ResponseExtractor} instead of receiving them as strings.
+ */
+final class UpstreamStubs {
+
+    @FunctionalInterface
+    interface Body {
+        String forUrl(String url) throws Exception;
+    }
+
+    private UpstreamStubs() {
+    }
+
+    /**
+     * Matches a GET whose URL contains {@code urlFragment}; use it on the mock in {@code when(...)} or on
+     * {@code verify(mock)}.
+     */
+    @SuppressWarnings("unchecked")
+    static Object upstreamGet(RestTemplate restTemplate, String urlFragment) {
+        return restTemplate.execute(contains(urlFragment), eq(HttpMethod.GET), any(RequestCallback.class),
+                any(ResponseExtractor.class));
+    }
+
+    static Answer<Object> json(String body) {
+        return respond(url -> body);
+    }
+
+    /**
+     * Answers with a body computed from the requested URL; {@code null} answers with an empty body.
+     */
+    static Answer<Object> respond(Body body) {
+        return invocation -> {
+            String json = body.forUrl(invocation.getArgument(0));
+            ResponseExtractor<?> extractor = invocation.getArgument(3);
+            byte[] bytes = json != null ? json.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            return extractor.extractData(new MockClientHttpResponse(bytes, HttpStatus.OK));
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package se.hollytech.jukebox.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+import se.hollytech.jukebox.BoundedVirtualThreadExecutor;
+import se.hollytech.jukebox.batch.MicroBatchScheduler;
+import se.hollytech.jukebox.cache.PersistentCacheManager;
+import se.hollytech.jukebox.http.UpstreamHedging;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Finds the highest number of concurrent cold discography requests each thread mode serves within a
+ * latency budget, against upstreams that answer after a fixed delay. Platform mode gets Jetty's default
+ * 200 request threads; virtual mode a virtual thread per request. Both use the default fan-out cap.
+ * Pinning of virtual threads is recorded with JFR while virtual mode runs. Run with
+ * {@code gradle benchmark}; it is excluded from the regular test task.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmark {
+
+    private static final int PLATFORM_REQUEST_THREADS = 200;
+    private static final int MAX_CONCURRENCY = 8;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(100);
+    // Each request makes two sequential upstream calls; allow half of that again for queueing and overhead
+    private static final Duration LATENCY_BUDGET = UPSTREAM_LATENCY.multipliedBy(3);
+    private static final int[] CONCURRENCY_LEVELS = {100, 200, 400, 800, 1600, 3200};
+
+    @BeforeAll
+    static void quietServiceLogging() {
+        // Thousands of requests per level would otherwise be measured mostly as console output
+        ((Logger) LoggerFactory.getLogger("se.hollytech.jukebox")).setLevel(Level.WARN);
+    }
+
+    @Test
+    void virtualThreadsSustainMoreConcurrentSlowRequests() throws Exception {
+        int platform = maxSustainedConcurrency("platform", () -> Executors.newFixedThreadPool(PLATFORM_REQUEST_THREADS),
+                Executors.newFixedThreadPool(MAX_CONCURRENCY));
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        int virtual;
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withStackTrace().withThreshold(Duration.ofMillis(1));
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+            virtual = maxSustainedConcurrency("virtual", Executors::newVirtualThreadPerTaskExecutor,
+                    new BoundedVirtualThreadExecutor("upstream-", MAX_CONCURRENCY));
+            recording.stop();
+        }
+
+        System.out.printf("Max concurrent cold requests within %d ms (%d ms upstream latency): platform %d, virtual %d; "
+                + "virtual threads pinned %d times%n", LATENCY_BUDGET.toMillis(), UPSTREAM_LATENCY.toMillis(), platform, virtual, pinned.size());
+        pinned.forEach(event -> System.out.println(event.getStackTrace()));
+        assertTrue(virtual > platform);
+        assertTrue(pinned.isEmpty());
+    }
+
+    private int maxSustainedConcurrency(String mode, RequestThreads requestThreads, Executor upstreamExecutor) throws Exception {
+        int sustained = 0;
+        for (int concurrency : CONCURRENCY_LEVELS) {
+            JukeboxService service = service(upstreamExecutor);
+            long slowestMillis = slowestResponseMillis(service, concurrency, requestThreads, mode);
+            System.out.printf("  %s: %d concurrent requests, slowest %d ms%n", mode, concurrency, slowestMillis);
+            if (slowestMillis > LATENCY_BUDGET.toMillis()) {
+                break;
+            }
+            sustained = concurrency;
+        }
+        return sustained;
+    }
+
+    private static long slowestResponseMillis(JukeboxService service, int concurrency, RequestThreads requestThreads,
+                                              String mode) throws Exception {
+        try (ExecutorService requests = requestThreads.create()) {
+            long start = System.nanoTime();
+            List<Future<Long>> responses = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                String artistName = mode + " Artist " + i;
+                responses.add(requests.submit(() -> {
+                    assertNotNull(service.getArtistDiscography(artistName));
+                    return System.nanoTime() - start;
+                }));
+            }
+            long slowest = 0;
+            for (Future<Long> response : responses) {
+                slowest = Math.max(slowest, response.get());
+            }
+            return slowest / 1_000_000;
+        }
+    }
+
+    private static JukeboxService service(Executor upstreamExecutor) {
+        return new JukeboxService(new RestTemplate((uri, method) -> new SlowUpstreamRequest(uri.toString())),
+                new ObjectMapper(), upstreamExecutor, UpstreamThrottles.disabled(), new CaffeineCacheManager(),
+                PersistentCacheManager.disabled(), MicroBatchScheduler.disabled(), UpstreamHedging.disabled(), CacheLoadMetrics.disabled());
+    }
+
+    @FunctionalInterface
+    private interface RequestThreads {
+        ExecutorService create();
+    }
+
+    /**
+     * Answers after {@link #UPSTREAM_LATENCY}, sleeping rather than waiting on a monitor, as a socket read would.
+     */
+    private static class SlowUpstreamRequest extends MockClientHttpRequest {
+
+        private final String url;
+
+        SlowUpstreamRequest(String url) {
+            this.url = url;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal() {
+            try {
+                Thread.sleep(UPSTREAM_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String body;
+            if (url.contains("query=artist:")) {
+                body = "{\"artists\":[{\"id\":\"mbid-" + url.hashCode() + "\",\"name\":\"Artist\"}]}";
+            } else {
+                body = "{\"id\":\"" + url.substring(url.indexOf("mbid-"), url.indexOf('?')) + "\",\"name\":\"Artist\"}";
+            }
+            return new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        }
+    }
+}
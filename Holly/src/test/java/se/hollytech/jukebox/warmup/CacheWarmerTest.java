@@ -0,0 +1,144 @@
+package se.hollytech.jukebox.warmup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import se.hollytech.jukebox.http.HttpClientProperties;
+import se.hollytech.jukebox.http.UpstreamPriority;
+import se.hollytech.jukebox.http.UpstreamThrottle;
+import se.hollytech.jukebox.http.UpstreamThrottles;
+import se.hollytech.jukebox.model.Album;
+import se.hollytech.jukebox.model.Artist;
+import se.hollytech.jukebox.model.ArtistLookup;
+import se.hollytech.jukebox.service.ArtistNotFoundException;
+import se.hollytech.jukebox.service.JukeboxService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheWarmerTest {
+
+    private static final String MBID = "0c0b7ac3-266f-47e4-8e87-02d1d1eb4f0e";
+    private static final String OTHER_MBID = "83d91898-7763-47d7-b03b-b92132375c47";
+
+    private JukeboxService jukeboxService;
+    private WarmupProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        jukeboxService = mock(JukeboxService.class);
+        properties = new WarmupProperties();
+        when(jukeboxService.getArtistDetails(anyString()))
+                .thenReturn(new Artist("Electric Light Orchestra", null, MBID, List.of(new Album("Time", "rg-1", null))));
+    }
+
+    @Test
+    void run_NamesAndMbids_WarmsThroughServicePaths() {
+        properties.setSeedFile(seedFile("# top artists\nElectric Light Orchestra\n\nelectric light orchestra\n" + OTHER_MBID + "\n"));
+        when(jukeboxService.getArtistMbid("Electric Light Orchestra")).thenReturn(new ArtistLookup("Electric Light Orchestra", MBID));
+        CacheWarmer cacheWarmer = new CacheWarmer(jukeboxService, properties, UpstreamThrottles.disabled());
+
+        cacheWarmer.run();
+
+        verify(jukeboxService, times(1)).getArtistMbid("Electric Light Orchestra");
+        verify(jukeboxService).getArtistDetails(MBID);
+        verify(jukeboxService).getArtistDetails(OTHER_MBID);
+        assertEquals(CacheWarmer.State.COMPLETED, cacheWarmer.getState());
+        assertEquals(2, cacheWarmer.getTotal());
+        assertEquals(2, cacheWarmer.getWarmed());
+        assertTrue(cacheWarmer.isReady());
+    }
+
+    @Test
+    void run_UnknownArtist_CountsFailureAndContinues() {
+        properties.setSeedFile(seedFile("Nobody At All\n" + MBID + "\n"));
+        when(jukeboxService.getArtistMbid("Nobody At All")).thenThrow(new ArtistNotFoundException("No artists found"));
+        CacheWarmer cacheWarmer = new CacheWarmer(jukeboxService, properties, UpstreamThrottles.disabled());
+
+        cacheWarmer.run();
+
+        assertEquals(1, cacheWarmer.getWarmed());
+        assertEquals(1, cacheWarmer.getFailed());
+        verify(jukeboxService).getArtistDetails(MBID);
+    }
+
+    @Test
+    void run_PartialDetails_CountsFailureAndDoesNotCountTowardsReadiness() {
+        String lastMbid = "9c9f1380-2516-4fc9-a3e6-f9f61941d090";
+        properties.setSeedFile(seedFile(MBID + "\n" + OTHER_MBID + "\n" + lastMbid + "\n"));
+        properties.setReadyFraction(0.6);
+        when(jukeboxService.getArtistDetails(OTHER_MBID))
+                .thenReturn(new Artist("Jeff Lynne", null, OTHER_MBID, List.of(), true));
+        CacheWarmer cacheWarmer = new CacheWarmer(jukeboxService, properties, UpstreamThrottles.disabled());
+        List<Boolean> readyBeforeLast = new ArrayList<>();
+        when(jukeboxService.getArtistDetails(lastMbid)).thenAnswer(invocation -> {
+            readyBeforeLast.add(cacheWarmer.isReady());
+            return new Artist("The Move", null, lastMbid, List.of());
+        });
+
+        cacheWarmer.run();
+
+        assertEquals(List.of(false), readyBeforeLast);
+        assertEquals(2, cacheWarmer.getWarmed());
+        assertEquals(1, cacheWarmer.getFailed());
+    }
+
+    @Test
+    void isReady_BeforeReadyFractionIsWarm_ReturnsFalse() {
+        properties.setSeedFile(seedFile(MBID + "\n"));
+        properties.setReadyFraction(0.5);
+        CacheWarmer cacheWarmer = new CacheWarmer(jukeboxService, properties, UpstreamThrottles.disabled());
+
+        assertEquals(CacheWarmer.State.PENDING, cacheWarmer.getState());
+        assertFalse(cacheWarmer.isReady());
+    }
+
+    @Test
+    void isReady_NoSeedFile_ReturnsTrue() {
+        CacheWarmer cacheWarmer = new CacheWarmer(jukeboxService, properties, UpstreamThrottles.disabled());
+
+        assertEquals(CacheWarmer.State.DISABLED, cacheWarmer.getState());
+        assertTrue(cacheWarmer.isReady());
+    }
+
+    @Test
+    void run_RateLimitShare_HoldsBackgroundCallsToItWhileRunning() {
+        properties.setSeedFile(seedFile(MBID + "\n"));
+        properties.setRateLimitShare(0.2);
+        HttpClientProperties.Upstream musicBrainz = new HttpClientProperties.Upstream();
+        musicBrainz.setHost("musicbrainz.org");
+        HttpClientProperties httpProperties = new HttpClientProperties();
+        httpProperties.getUpstreams().put("musicbrainz", musicBrainz);
+        UpstreamThrottles throttles = new UpstreamThrottles(httpProperties);
+        List<Double> sharesDuringWarmUp = new ArrayList<>();
+        when(jukeboxService.getArtistDetails(MBID)).thenAnswer(invocation -> {
+            throttles.getThrottles().values().forEach(throttle -> sharesDuringWarmUp.add(throttle.getMaxShare(UpstreamPriority.BACKGROUND)));
+            return new Artist("Electric Light Orchestra", null, MBID, List.of());
+        });
+        CacheWarmer cacheWarmer = new CacheWarmer(jukeboxService, properties, throttles);
+
+        cacheWarmer.run();
+
+        assertEquals(List.of(0.2, 0.2), sharesDuringWarmUp);
+        for (UpstreamThrottle throttle : throttles.getThrottles().values()) {
+            assertEquals(1, throttle.getMaxShare(UpstreamPriority.BACKGROUND));
+        }
+        throttles.destroy();
+    }
+
+    @Test
+    void new_RateLimitShareOutOfRange_Throws() {
+        properties.setSeedFile(seedFile(MBID + "\n"));
+        properties.setRateLimitShare(0);
+
+        assertThrows(IllegalArgumentException.class, () -> new CacheWarmer(jukeboxService, properties, UpstreamThrottles.disabled()));
+    }
+
+    private static ByteArrayResource seedFile(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+    }
+}